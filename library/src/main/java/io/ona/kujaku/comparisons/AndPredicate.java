@@ -0,0 +1,29 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+
+import java.util.List;
+
+/**
+ * Matches features that match all of its predicates.  Evaluation stops at the first predicate
+ * that does not match.
+ */
+public class AndPredicate extends CompositePredicate {
+
+    public AndPredicate(@NonNull List<FeaturePredicate> predicates) {
+        super(predicates);
+    }
+
+    @Override
+    public boolean test(@NonNull Feature feature) {
+        for (FeaturePredicate predicate : predicates) {
+            if (!predicate.test(feature)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
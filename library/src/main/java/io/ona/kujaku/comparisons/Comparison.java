@@ -1,9 +1,38 @@
 package io.ona.kujaku.comparisons;
 
+import android.support.annotation.NonNull;
+
+import com.google.gson.JsonPrimitive;
+
 public interface Comparison {
     String TYPE_STRING = "string";
+    String TYPE_NUMBER = "number";
+    String TYPE_DATE = "date";
 
     boolean compare(String a, String type, String b);
 
     String getFunctionName();
-}
\ No newline at end of file
+
+    /**
+     * Compiles the comparison against a fixed value into a predicate on the given property so that
+     * anything that only depends on the value, e.g. a regular expression, is prepared once.
+     * <p>
+     * By default the predicate calls {@link #compare(String, String, String)} with the property value
+     * as a string, so that comparisons written before predicates existed keep working.
+     *
+     * @param propertyName
+     * @param type
+     * @param value
+     * @return the predicate
+     */
+    @NonNull
+    default FeaturePredicate compile(@NonNull String propertyName, @NonNull final String type, @NonNull Object value) {
+        final String comparedValue = String.valueOf(value);
+        return new PropertyPredicate(propertyName, FeaturePredicate.COST_CUSTOM) {
+            @Override
+            protected boolean matches(@NonNull JsonPrimitive propertyValue) {
+                return Comparison.this.compare(propertyValue.getAsString(), type, comparedValue);
+            }
+        };
+    }
+}
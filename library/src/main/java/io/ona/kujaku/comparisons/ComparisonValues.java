@@ -0,0 +1,134 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.JsonPrimitive;
+
+import org.threeten.bp.DateTimeException;
+import org.threeten.bp.Instant;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.OffsetDateTime;
+import org.threeten.bp.ZoneOffset;
+import org.threeten.bp.ZonedDateTime;
+import org.threeten.bp.format.DateTimeFormatter;
+import org.threeten.bp.temporal.TemporalAccessor;
+
+/**
+ * Converts property values and the values they are compared to for the typed comparisons.
+ * Dates are ISO-8601 date-times, e.g. {@code 2019-02-14T10:15:30+03:00}, or dates, e.g.
+ * {@code 2019-02-14}, and are compared as instants.
+ */
+final class ComparisonValues {
+
+    private ComparisonValues() {}
+
+    /**
+     * @param value a {@link Number} or a string representation of one
+     * @return the value as a double
+     * @throws IllegalArgumentException if the value is not a number
+     */
+    static double toDouble(@NonNull Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+
+        try {
+            return Double.parseDouble(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number but got " + value, e);
+        }
+    }
+
+    /**
+     * @param value
+     * @return the value as a double or {@link Double#NaN} if it is not a number
+     */
+    static double toDouble(@NonNull JsonPrimitive value) {
+        if (value.isNumber()) {
+            return value.getAsDouble();
+        } else if (value.isString()) {
+            return parseDouble(value.getAsString());
+        }
+
+        return Double.NaN;
+    }
+
+    /**
+     * @param value
+     * @return the value as a double or {@link Double#NaN} if it is not a number
+     */
+    static double parseDouble(@Nullable String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    static boolean equalNumbers(@NonNull String a, @NonNull String b) {
+        double number = parseDouble(a);
+        return !Double.isNaN(number) && number == parseDouble(b.trim());
+    }
+
+    /**
+     * @param value a {@link Instant}, an {@link OffsetDateTime}, a {@link ZonedDateTime}, a
+     *              {@link LocalDateTime}, a {@link LocalDate} or an ISO-8601 date or date-time string
+     * @return the instant the value stands for
+     * @throws IllegalArgumentException if the value is not a date-time
+     */
+    @NonNull
+    static Instant toDateTime(@NonNull Object value) {
+        if (value instanceof Instant) {
+            return (Instant) value;
+        } else if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toInstant();
+        } else if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toInstant();
+        } else if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).toInstant(ZoneOffset.UTC);
+        } else if (value instanceof LocalDate) {
+            return ((LocalDate) value).atStartOfDay().toInstant(ZoneOffset.UTC);
+        }
+
+        Instant dateTime = parseDateTime(String.valueOf(value));
+        if (dateTime == null) {
+            throw new IllegalArgumentException("Expected an ISO-8601 date-time but got " + value);
+        }
+
+        return dateTime;
+    }
+
+    /**
+     * Parses an ISO-8601 date-time, with or without an offset, or an ISO-8601 date.  Date-times
+     * without an offset are read as UTC and dates as the start of the day in UTC.
+     *
+     * @param value
+     * @return the instant or {@code null} if the value is not an ISO-8601 date or date-time
+     */
+    @Nullable
+    static Instant parseDateTime(@Nullable String value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            TemporalAccessor dateTime = DateTimeFormatter.ISO_DATE_TIME.parseBest(value, OffsetDateTime.FROM, LocalDateTime.FROM);
+            return dateTime instanceof OffsetDateTime ? ((OffsetDateTime) dateTime).toInstant()
+                    : ((LocalDateTime) dateTime).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeException e) {
+            // Not a date-time, try a date next
+        }
+
+        try {
+            return LocalDate.parse(value, DateTimeFormatter.ISO_LOCAL_DATE).atStartOfDay().toInstant(ZoneOffset.UTC);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+}
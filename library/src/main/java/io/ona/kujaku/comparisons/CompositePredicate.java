@@ -0,0 +1,50 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A {@link FeaturePredicate} combining other predicates, which are evaluated from the cheapest to
+ * the most expensive, e.g. equality before regular expressions, so that evaluation can stop early
+ * as cheaply as possible
+ */
+public abstract class CompositePredicate implements FeaturePredicate {
+
+    protected final FeaturePredicate[] predicates;
+    private final int cost;
+
+    protected CompositePredicate(@NonNull List<FeaturePredicate> predicates) {
+        List<FeaturePredicate> sortedPredicates = new ArrayList<>(predicates);
+        Collections.sort(sortedPredicates, new Comparator<FeaturePredicate>() {
+            @Override
+            public int compare(FeaturePredicate predicate1, FeaturePredicate predicate2) {
+                return predicate1.getCost() - predicate2.getCost();
+            }
+        });
+
+        this.predicates = sortedPredicates.toArray(new FeaturePredicate[0]);
+
+        int totalCost = 0;
+        for (FeaturePredicate predicate : this.predicates) {
+            totalCost += predicate.getCost();
+        }
+        this.cost = totalCost;
+    }
+
+    @Override
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * @return the predicates in the order in which they are evaluated
+     */
+    @NonNull
+    public FeaturePredicate[] getPredicates() {
+        return predicates.clone();
+    }
+}
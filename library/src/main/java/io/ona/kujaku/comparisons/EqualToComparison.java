@@ -1,6 +1,10 @@
 package io.ona.kujaku.comparisons;
 
 
+import android.support.annotation.NonNull;
+
+import com.google.gson.JsonPrimitive;
+
 public class EqualToComparison implements Comparison {
     public static final String COMPARISON_NAME = "equalTo";
 
@@ -13,4 +17,16 @@ public class EqualToComparison implements Comparison {
     public String getFunctionName() {
         return COMPARISON_NAME;
     }
+
+    @NonNull
+    @Override
+    public FeaturePredicate compile(@NonNull String propertyName, @NonNull String type, @NonNull Object value) {
+        final String expectedValue = String.valueOf(value);
+        return new PropertyPredicate(propertyName, FeaturePredicate.COST_EQUAL_TO) {
+            @Override
+            protected boolean matches(@NonNull JsonPrimitive value) {
+                return expectedValue.equals(value.getAsString());
+            }
+        };
+    }
 }
@@ -0,0 +1,26 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Checks that a property is present, whatever its value.  The compared value is ignored.
+ */
+public class ExistsComparison implements Comparison {
+    public static final String COMPARISON_NAME = "exists";
+
+    @Override
+    public boolean compare(String a, String type, String b) {
+        return a != null;
+    }
+
+    @Override
+    public String getFunctionName() {
+        return COMPARISON_NAME;
+    }
+
+    @NonNull
+    @Override
+    public FeaturePredicate compile(@NonNull String propertyName, @NonNull String type, @NonNull Object value) {
+        return new ExistsPredicate(propertyName);
+    }
+}
@@ -0,0 +1,34 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.JsonObject;
+import com.mapbox.geojson.Feature;
+
+/**
+ * Matches features that have the given property, whatever its value
+ */
+public class ExistsPredicate implements FeaturePredicate {
+
+    private final String propertyName;
+
+    public ExistsPredicate(@NonNull String propertyName) {
+        this.propertyName = propertyName.intern();
+    }
+
+    @Override
+    public boolean test(@NonNull Feature feature) {
+        JsonObject properties = feature.properties();
+        return properties != null && properties.has(propertyName);
+    }
+
+    @Override
+    public int getCost() {
+        return COST_EXISTS;
+    }
+
+    @NonNull
+    public String getPropertyName() {
+        return propertyName;
+    }
+}
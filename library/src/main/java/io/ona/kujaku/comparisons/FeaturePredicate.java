@@ -0,0 +1,29 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+
+/**
+ * A condition on a {@link Feature} compiled once from a {@link io.ona.kujaku.utils.FeatureFilter.Builder}
+ * so that it can be evaluated against many features without any further lookups or allocations.
+ * <p>
+ * Predicates should be stateless, or at least thread-safe, since they may be shared between filters.
+ */
+public interface FeaturePredicate {
+
+    int COST_EXISTS = 1;
+    int COST_EQUAL_TO = 2;
+    int COST_IN = 3;
+    int COST_RANGE = 3;
+    int COST_DATE_RANGE = 8;
+    int COST_REGEX = 10;
+    int COST_CUSTOM = 10;
+
+    boolean test(@NonNull Feature feature);
+
+    /**
+     * @return the relative cost of {@link #test(Feature)}, used to evaluate cheaper predicates first
+     */
+    int getCost();
+}
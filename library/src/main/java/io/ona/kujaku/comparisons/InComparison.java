@@ -0,0 +1,84 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.JsonPrimitive;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Checks that a property value is one of a set of values.  {@link Comparison#TYPE_NUMBER} values
+ * are compared as numbers so that e.g. {@code 1} and {@code 1.0} are the same value, all other
+ * values are compared as strings.
+ */
+public class InComparison implements Comparison {
+    public static final String COMPARISON_NAME = "in";
+
+    /**
+     * @param a
+     * @param type
+     * @param b    the values separated by commas
+     * @return {@code true} if {@code a} is one of the values in {@code b}
+     */
+    @Override
+    public boolean compare(String a, String type, String b) {
+        if (a == null || b == null) {
+            return false;
+        }
+
+        for (String value : b.split(",")) {
+            if (TYPE_NUMBER.equals(type) ? ComparisonValues.equalNumbers(a, value) : a.equals(value)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public String getFunctionName() {
+        return COMPARISON_NAME;
+    }
+
+    /**
+     * @param propertyName
+     * @param type
+     * @param value        a {@link Collection} of values
+     * @return a predicate looking the property value up in a hash set
+     */
+    @NonNull
+    @Override
+    public FeaturePredicate compile(@NonNull String propertyName, @NonNull String type, @NonNull Object value) {
+        Collection<?> values = value instanceof Collection ? (Collection<?>) value : Collections.singleton(value);
+
+        if (TYPE_NUMBER.equals(type)) {
+            final Set<Double> numbers = new HashSet<>();
+            for (Object number : values) {
+                numbers.add(ComparisonValues.toDouble(number));
+            }
+
+            return new PropertyPredicate(propertyName, FeaturePredicate.COST_IN) {
+                @Override
+                protected boolean matches(@NonNull JsonPrimitive value) {
+                    double number = ComparisonValues.toDouble(value);
+                    return !Double.isNaN(number) && numbers.contains(number);
+                }
+            };
+        } else {
+            final Set<String> strings = new HashSet<>();
+            for (Object string : values) {
+                strings.add(String.valueOf(string));
+            }
+
+            return new PropertyPredicate(propertyName, FeaturePredicate.COST_IN) {
+                @Override
+                protected boolean matches(@NonNull JsonPrimitive value) {
+                    return strings.contains(value.getAsString());
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+
+/**
+ * Matches features that do not match the given predicate
+ */
+public class NotPredicate implements FeaturePredicate {
+
+    private final FeaturePredicate predicate;
+
+    public NotPredicate(@NonNull FeaturePredicate predicate) {
+        this.predicate = predicate;
+    }
+
+    @Override
+    public boolean test(@NonNull Feature feature) {
+        return !predicate.test(feature);
+    }
+
+    @Override
+    public int getCost() {
+        return predicate.getCost();
+    }
+
+    @NonNull
+    public FeaturePredicate getPredicate() {
+        return predicate;
+    }
+}
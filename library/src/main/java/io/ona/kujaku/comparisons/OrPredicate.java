@@ -0,0 +1,29 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+
+import java.util.List;
+
+/**
+ * Matches features that match any of its predicates.  Evaluation stops at the first predicate
+ * that matches, and no feature matches if there are no predicates.
+ */
+public class OrPredicate extends CompositePredicate {
+
+    public OrPredicate(@NonNull List<FeaturePredicate> predicates) {
+        super(predicates);
+    }
+
+    @Override
+    public boolean test(@NonNull Feature feature) {
+        for (FeaturePredicate predicate : predicates) {
+            if (predicate.test(feature)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,46 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.mapbox.geojson.Feature;
+
+/**
+ * A {@link FeaturePredicate} on the value of a single {@link Feature} property.  Features that do
+ * not have the property, or whose value is {@code null}, an array or an object, do not match.
+ */
+public abstract class PropertyPredicate implements FeaturePredicate {
+
+    private final String propertyName;
+    private final int cost;
+
+    protected PropertyPredicate(@NonNull String propertyName, int cost) {
+        this.propertyName = propertyName.intern();
+        this.cost = cost;
+    }
+
+    @Override
+    public boolean test(@NonNull Feature feature) {
+        JsonObject properties = feature.properties();
+        if (properties == null) {
+            return false;
+        }
+
+        JsonElement value = properties.get(propertyName);
+        return value != null && value.isJsonPrimitive() && matches(value.getAsJsonPrimitive());
+    }
+
+    protected abstract boolean matches(@NonNull JsonPrimitive value);
+
+    @NonNull
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    @Override
+    public int getCost() {
+        return cost;
+    }
+}
@@ -0,0 +1,106 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.JsonPrimitive;
+
+import org.threeten.bp.Instant;
+
+/**
+ * Orders a property value against a bound.  {@link Comparison#TYPE_NUMBER} values are compared as
+ * numbers, {@link Comparison#TYPE_DATE} values as ISO-8601 dates or date-times and all other values as strings.
+ * Values that cannot be converted to the type do not match.
+ */
+public class RangeComparison implements Comparison {
+    public static final String GREATER_THAN = "greaterThan";
+    public static final String GREATER_THAN_OR_EQUAL_TO = "greaterThanOrEqualTo";
+    public static final String LESS_THAN = "lessThan";
+    public static final String LESS_THAN_OR_EQUAL_TO = "lessThanOrEqualTo";
+
+    private final String comparisonName;
+
+    /**
+     * @param comparisonName one of {@link #GREATER_THAN}, {@link #GREATER_THAN_OR_EQUAL_TO},
+     *                       {@link #LESS_THAN} or {@link #LESS_THAN_OR_EQUAL_TO}
+     */
+    public RangeComparison(@NonNull String comparisonName) {
+        if (!GREATER_THAN.equals(comparisonName) && !GREATER_THAN_OR_EQUAL_TO.equals(comparisonName)
+                && !LESS_THAN.equals(comparisonName) && !LESS_THAN_OR_EQUAL_TO.equals(comparisonName)) {
+            throw new IllegalArgumentException("Unknown range comparison " + comparisonName);
+        }
+
+        this.comparisonName = comparisonName;
+    }
+
+    @Override
+    public boolean compare(String a, String type, String b) {
+        if (a == null || b == null) {
+            return false;
+        }
+
+        if (TYPE_NUMBER.equals(type)) {
+            double number1 = ComparisonValues.parseDouble(a);
+            double number2 = ComparisonValues.parseDouble(b);
+            return !Double.isNaN(number1) && !Double.isNaN(number2) && accepts(Double.compare(number1, number2));
+        } else if (TYPE_DATE.equals(type)) {
+            Instant dateTime1 = ComparisonValues.parseDateTime(a);
+            Instant dateTime2 = ComparisonValues.parseDateTime(b);
+            return dateTime1 != null && dateTime2 != null && accepts(dateTime1.compareTo(dateTime2));
+        }
+
+        return accepts(a.compareTo(b));
+    }
+
+    private boolean accepts(int compareResult) {
+        switch (comparisonName) {
+            case GREATER_THAN:
+                return compareResult > 0;
+            case GREATER_THAN_OR_EQUAL_TO:
+                return compareResult >= 0;
+            case LESS_THAN:
+                return compareResult < 0;
+            default:
+                return compareResult <= 0;
+        }
+    }
+
+    @Override
+    public String getFunctionName() {
+        return comparisonName;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bound cannot be converted to the type
+     */
+    @NonNull
+    @Override
+    public FeaturePredicate compile(@NonNull String propertyName, @NonNull String type, @NonNull Object value) {
+        if (TYPE_NUMBER.equals(type)) {
+            final double bound = ComparisonValues.toDouble(value);
+            return new PropertyPredicate(propertyName, FeaturePredicate.COST_RANGE) {
+                @Override
+                protected boolean matches(@NonNull JsonPrimitive value) {
+                    double number = ComparisonValues.toDouble(value);
+                    return !Double.isNaN(number) && accepts(Double.compare(number, bound));
+                }
+            };
+        } else if (TYPE_DATE.equals(type)) {
+            final Instant bound = ComparisonValues.toDateTime(value);
+            return new PropertyPredicate(propertyName, FeaturePredicate.COST_DATE_RANGE) {
+                @Override
+                protected boolean matches(@NonNull JsonPrimitive value) {
+                    Instant dateTime = ComparisonValues.parseDateTime(value.getAsString());
+                    return dateTime != null && accepts(dateTime.compareTo(bound));
+                }
+            };
+        }
+
+        final String bound = String.valueOf(value);
+        return new PropertyPredicate(propertyName, FeaturePredicate.COST_RANGE) {
+            @Override
+            protected boolean matches(@NonNull JsonPrimitive value) {
+                return accepts(value.getAsString().compareTo(bound));
+            }
+        };
+    }
+}
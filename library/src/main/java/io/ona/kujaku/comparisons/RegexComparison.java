@@ -1,7 +1,11 @@
 package io.ona.kujaku.comparisons;
 
+import android.support.annotation.NonNull;
 import android.util.Log;
 
+import com.google.gson.JsonPrimitive;
+import com.mapbox.geojson.Feature;
+
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -31,4 +35,45 @@ public class RegexComparison implements Comparison {
     public String getFunctionName() {
         return COMPARISON_NAME;
     }
+
+    /**
+     * Compiles the regular expression once.  An invalid regular expression is logged and
+     * matches no feature.
+     */
+    @NonNull
+    @Override
+    public FeaturePredicate compile(@NonNull String propertyName, @NonNull String type, @NonNull Object value) {
+        final Pattern pattern;
+        try {
+            pattern = Pattern.compile(String.valueOf(value));
+        } catch (PatternSyntaxException e) {
+            Log.e(TAG, Log.getStackTraceString(e));
+            return new FeaturePredicate() {
+                @Override
+                public boolean test(@NonNull Feature feature) {
+                    return false;
+                }
+
+                @Override
+                public int getCost() {
+                    return 0;
+                }
+            };
+        }
+
+        // Matchers are not thread-safe but can be reset, so each thread reuses its own
+        final ThreadLocal<Matcher> matchers = new ThreadLocal<Matcher>() {
+            @Override
+            protected Matcher initialValue() {
+                return pattern.matcher("");
+            }
+        };
+
+        return new PropertyPredicate(propertyName, FeaturePredicate.COST_REGEX) {
+            @Override
+            protected boolean matches(@NonNull JsonPrimitive value) {
+                return matchers.get().reset(value.getAsString()).matches();
+            }
+        };
+    }
 }
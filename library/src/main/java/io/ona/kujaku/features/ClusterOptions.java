@@ -0,0 +1,128 @@
+package io.ona.kujaku.features;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.mapboxsdk.style.expressions.Expression;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonOptions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.mapbox.mapboxsdk.style.expressions.Expression.eq;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.get;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.literal;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.switchCase;
+
+/**
+ * Clustering options for the primary source of a {@link io.ona.kujaku.views.KujakuMapView}. Points are
+ * grouped into clusters by Mapbox at the zoom levels up to {@link #setMaxZoom(int)}, so only one symbol
+ * is rendered per cluster at low zoom levels.
+ * <p>
+ * Cluster features have a {@code point_count} property and any aggregated properties added through
+ * {@link #addProperty(String, Expression, Expression)} or {@link #addCountProperty(String, String, Object)},
+ * which can be used by the layers that render the clusters.
+ */
+public class ClusterOptions {
+
+    public static final String CLUSTER = "cluster";
+    public static final String POINT_COUNT = "point_count";
+
+    public static final int DEFAULT_RADIUS = 50;
+    public static final int DEFAULT_MAX_ZOOM = 14;
+
+    private int radius = DEFAULT_RADIUS;
+    private int maxZoom = DEFAULT_MAX_ZOOM;
+    private boolean zoomOnClick = true;
+    private final Map<String, Expression[]> properties = new LinkedHashMap<>();
+
+    /**
+     * @param radius the radius of each cluster in pixels
+     * @return these options
+     */
+    public ClusterOptions setRadius(int radius) {
+        this.radius = radius;
+        return this;
+    }
+
+    /**
+     * @param maxZoom the maximum zoom level at which points are clustered
+     * @return these options
+     */
+    public ClusterOptions setMaxZoom(int maxZoom) {
+        this.maxZoom = maxZoom;
+        return this;
+    }
+
+    /**
+     * @param zoomOnClick whether clicking a cluster through the feature click listener zooms in until
+     *                    the cluster expands, instead of delivering the cluster to the listener
+     * @return these options
+     */
+    public ClusterOptions setZoomOnClick(boolean zoomOnClick) {
+        this.zoomOnClick = zoomOnClick;
+        return this;
+    }
+
+    /**
+     * Adds a property aggregated over the points of each cluster
+     *
+     * @param name       the name of the property on the cluster features
+     * @param operator   the operator that combines two values, e.g. {@code literal("+")}
+     * @param mapper     the expression that gives the value of a single point
+     * @return these options
+     */
+    public ClusterOptions addProperty(@NonNull String name, @NonNull Expression operator, @NonNull Expression mapper) {
+        properties.put(name, new Expression[]{operator, mapper});
+        return this;
+    }
+
+    /**
+     * Adds a property that counts the points of each cluster whose {@code property} equals {@code value},
+     * e.g. the number of households per visit status
+     *
+     * @param name     the name of the property on the cluster features
+     * @param property the property of the points to compare
+     * @param value    the value to count
+     * @return these options
+     */
+    public ClusterOptions addCountProperty(@NonNull String name, @NonNull String property, @NonNull Object value) {
+        return addProperty(name, literal("+"), switchCase(eq(get(property), literal(value)), literal(1), literal(0)));
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    public boolean isZoomOnClick() {
+        return zoomOnClick;
+    }
+
+    public Map<String, Expression[]> getProperties() {
+        return properties;
+    }
+
+    @NonNull
+    public GeoJsonOptions toGeoJsonOptions() {
+        GeoJsonOptions geoJsonOptions = new GeoJsonOptions()
+                .withCluster(true)
+                .withClusterRadius(radius)
+                .withClusterMaxZoom(maxZoom);
+        for (Map.Entry<String, Expression[]> property : properties.entrySet()) {
+            geoJsonOptions.withClusterProperty(property.getKey(), property.getValue()[0], property.getValue()[1]);
+        }
+        return geoJsonOptions;
+    }
+
+    /**
+     * @param feature
+     * @return {@code true} if the feature is a cluster rendered from a clustered source
+     */
+    public static boolean isCluster(@NonNull Feature feature) {
+        return feature.hasNonNullValueForProperty(CLUSTER) && feature.getBooleanProperty(CLUSTER);
+    }
+}
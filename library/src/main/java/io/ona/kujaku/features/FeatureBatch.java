@@ -0,0 +1,133 @@
+package io.ona.kujaku.features;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Queues additions, property updates and removals of features so that they can be applied
+ * together with a single update of the source on {@link #commit()}.  Operations are applied
+ * in the order in which they were queued.
+ * <p>
+ * A batch is obtained from {@link io.ona.kujaku.interfaces.IKujakuMapView#beginFeatureBatch()}
+ * and can only be committed once.
+ */
+public class FeatureBatch {
+
+    public static final int ADD = 0;
+    public static final int UPDATE = 1;
+    public static final int REMOVE = 2;
+
+    public interface Committer {
+
+        /**
+         * Applies the queued operations
+         *
+         * @param operations
+         * @return the number of features that changed
+         */
+        int commit(@NonNull List<Operation> operations);
+    }
+
+    public static class Operation {
+
+        private final int type;
+        private final Feature feature;
+        private final String featureId;
+
+        private Operation(int type, Feature feature, String featureId) {
+            this.type = type;
+            this.feature = feature;
+            this.featureId = featureId;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * @return the feature to add or update, {@code null} for removals
+         */
+        public Feature getFeature() {
+            return feature;
+        }
+
+        public String getFeatureId() {
+            return featureId;
+        }
+    }
+
+    private final Committer committer;
+    private final List<Operation> operations = new ArrayList<>();
+    private boolean committed;
+
+    public FeatureBatch(@NonNull Committer committer) {
+        this.committer = committer;
+    }
+
+    /**
+     * Queues a feature to be added.  Features without an id or whose id already exists are ignored.
+     *
+     * @param feature
+     * @return this batch
+     */
+    public FeatureBatch add(@NonNull Feature feature) {
+        return queue(new Operation(ADD, feature, feature.id()));
+    }
+
+    /**
+     * Queues the properties of a feature to be merged into the existing feature with the same id.
+     * The feature is added if it does not exist.
+     *
+     * @param feature
+     * @return this batch
+     */
+    public FeatureBatch update(@NonNull Feature feature) {
+        return queue(new Operation(UPDATE, feature, feature.id()));
+    }
+
+    /**
+     * Queues the feature with the given id to be removed
+     *
+     * @param featureId
+     * @return this batch
+     */
+    public FeatureBatch remove(@NonNull String featureId) {
+        return queue(new Operation(REMOVE, null, featureId));
+    }
+
+    private FeatureBatch queue(Operation operation) {
+        checkNotCommitted();
+        operations.add(operation);
+        return this;
+    }
+
+    public int size() {
+        return operations.size();
+    }
+
+    public List<Operation> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * Applies the queued operations and schedules a single update of the source
+     *
+     * @return the number of features that changed
+     */
+    public int commit() {
+        checkNotCommitted();
+        committed = true;
+        return operations.isEmpty() ? 0 : committer.commit(getOperations());
+    }
+
+    private void checkNotCommitted() {
+        if (committed) {
+            throw new IllegalStateException("The batch has already been committed");
+        }
+    }
+}
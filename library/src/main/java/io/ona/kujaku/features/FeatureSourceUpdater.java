@@ -0,0 +1,295 @@
+package io.ona.kujaku.features;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.ViewCompat;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.mapboxsdk.maps.MapView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.ona.kujaku.callables.AsyncTaskCallable;
+import io.ona.kujaku.listeners.OnFeatureSourceUpdatedListener;
+import io.ona.kujaku.listeners.OnFinishedListener;
+import io.ona.kujaku.tasks.GenericAsyncTask;
+import timber.log.Timber;
+
+/**
+ * Coalesces changes to the features of a GeoJSON source so that the source is updated at
+ * most once per frame (or once per debounce window), however many features change in between,
+ * and not at all when nothing changed.  The features are serialized to GeoJSON off the main
+ * thread from a snapshot, and only the resulting string is handed to the source on the main thread.
+ * Updates that cannot be pushed yet, e.g. because the style is still loading, are kept until
+ * {@link #flush()} succeeds.
+ */
+public class FeatureSourceUpdater {
+
+    public interface Target {
+
+        /**
+         * Takes a snapshot of the current features, e.g. {@link FeatureStore#snapshot()}, or of those
+         * intersecting {@code bbox}, e.g. using {@link FeatureSpatialIndex#queryWithinBounds(double[])}.
+         * Features outside {@code bbox} may be included when narrowing them down would be costly on the
+         * main thread, they are dropped on the background thread. The features in the snapshot must not
+         * be modified afterwards since they are serialized on a background thread. {@code null} entries
+         * are skipped.
+         *
+         * @param bbox the bounds filter as {@code [west, south, east, north]} or {@code null} for all features
+         * @return the snapshot or {@code null} if the source is not available yet
+         */
+        @Nullable
+        Feature[] snapshotFeatures(@Nullable double[] bbox);
+
+        /**
+         * Sets the serialized features on the source
+         *
+         * @param geoJson
+         * @return {@code true} if the source was updated, {@code false} if it is not available anymore
+         */
+        boolean setGeoJson(@NonNull String geoJson);
+    }
+
+    private final MapView mapView;
+    private final Target target;
+
+    private long debounceWindow;
+
+    private int dirtyFeatureCount;
+    private long firstChangeTime;
+    private boolean flushScheduled;
+
+    @Nullable
+    private double[] boundsFilter;
+    private boolean refreshRequested;
+
+    @Nullable
+    private GenericAsyncTask serializationTask;
+    private boolean destroyed;
+
+    @Nullable
+    private OnFeatureSourceUpdatedListener onFeatureSourceUpdatedListener;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled = false;
+            flush();
+        }
+    };
+
+    public FeatureSourceUpdater(@NonNull MapView mapView, @NonNull Target target) {
+        this.mapView = mapView;
+        this.target = target;
+    }
+
+    /**
+     * Records that features changed and schedules a source update for the next frame, or for the
+     * end of the debounce window if one is set
+     *
+     * @param changedFeatureCount the number of features added, updated or removed
+     */
+    public void markDirty(int changedFeatureCount) {
+        if (changedFeatureCount <= 0 || destroyed) {
+            return;
+        }
+        if (!isDirty()) {
+            firstChangeTime = SystemClock.elapsedRealtime();
+        }
+        dirtyFeatureCount += changedFeatureCount;
+        scheduleFlush();
+    }
+
+    /**
+     * Restricts the features pushed to the source to those intersecting the given bounds, and
+     * schedules a source update for the new bounds.  The bounds are passed on to
+     * {@link Target#snapshotFeatures(double[])} so that the target can look them up in an index.
+     *
+     * @param bbox the bounds as {@code [west, south, east, north]} or {@code null} to push all features
+     */
+    public void setBoundsFilter(@Nullable double[] bbox) {
+        if (destroyed) {
+            return;
+        }
+        boundsFilter = bbox;
+        if (!isDirty()) {
+            firstChangeTime = SystemClock.elapsedRealtime();
+        }
+        refreshRequested = true;
+        scheduleFlush();
+    }
+
+    @Nullable
+    public double[] getBoundsFilter() {
+        return boundsFilter;
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        if (debounceWindow > 0) {
+            long delay = firstChangeTime + debounceWindow - SystemClock.elapsedRealtime();
+            mapView.postDelayed(flushRunnable, Math.max(delay, 0));
+        } else {
+            ViewCompat.postOnAnimation(mapView, flushRunnable);
+        }
+    }
+
+    public boolean isDirty() {
+        return dirtyFeatureCount > 0 || refreshRequested;
+    }
+
+    /**
+     * Pushes pending changes to the source right away.  If a previous update is still being
+     * serialized, the changes are pushed as soon as it completes.
+     */
+    public void flush() {
+        if (!isDirty() || serializationTask != null || destroyed) {
+            return;
+        }
+
+        final Feature[] snapshot = target.snapshotFeatures(boundsFilter);
+        if (snapshot == null) {
+            return;
+        }
+
+        final double[] bbox = boundsFilter;
+        final int changedFeatureCount = dirtyFeatureCount;
+        final long changeTime = firstChangeTime;
+        dirtyFeatureCount = 0;
+        refreshRequested = false;
+
+        serializationTask = new GenericAsyncTask(new AsyncTaskCallable() {
+            @Override
+            public Object[] call() {
+                List<Feature> features = bbox == null ? FeatureStore.toFeatureList(snapshot) : getFeaturesWithinBounds(snapshot, bbox);
+                return new Object[]{FeatureCollection.fromFeatures(features).toJson()};
+            }
+        });
+        serializationTask.setOnFinishedListener(new OnFinishedListener() {
+            @Override
+            public void onSuccess(Object[] objects) {
+                serializationTask = null;
+                if (target.setGeoJson((String) objects[0])) {
+                    reportUpdate(changedFeatureCount, changeTime);
+                } else {
+                    restoreDirty(changedFeatureCount, changeTime);
+                }
+                if (isDirty()) {
+                    scheduleFlush();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                serializationTask = null;
+                if (!destroyed) {
+                    Timber.e(e);
+                    restoreDirty(changedFeatureCount, changeTime);
+                }
+            }
+        });
+        serializationTask.execute();
+    }
+
+    @NonNull
+    private static List<Feature> getFeaturesWithinBounds(@NonNull Feature[] snapshot, @NonNull double[] bbox) {
+        List<Feature> features = new ArrayList<>();
+        for (Feature feature : snapshot) {
+            if (feature != null) {
+                double[] featureBbox = GeometryBounds.getBbox(feature);
+                if (featureBbox != null && GeometryBounds.intersects(featureBbox, bbox)) {
+                    features.add(feature);
+                }
+            }
+        }
+        return features;
+    }
+
+    private void restoreDirty(int changedFeatureCount, long changeTime) {
+        if (!isDirty() || changeTime < firstChangeTime) {
+            firstChangeTime = changeTime;
+        }
+        dirtyFeatureCount += changedFeatureCount;
+        refreshRequested = true;
+    }
+
+    private void reportUpdate(int changedFeatureCount, long changeTime) {
+        if (onFeatureSourceUpdatedListener != null && changedFeatureCount > 0) {
+            mapView.addOnDidFinishRenderingFrameListener(new TimeToVisibleReporter(changedFeatureCount, changeTime));
+        }
+    }
+
+    /**
+     * Sets the window within which changes are collected before the source is updated.
+     * The default of 0 updates the source on the next frame.
+     *
+     * @param debounceWindow the window in milliseconds
+     */
+    public void setDebounceWindow(long debounceWindow) {
+        if (debounceWindow < 0) {
+            throw new IllegalArgumentException("The debounce window cannot be negative");
+        }
+        this.debounceWindow = debounceWindow;
+    }
+
+    public long getDebounceWindow() {
+        return debounceWindow;
+    }
+
+    public void setOnFeatureSourceUpdatedListener(@Nullable OnFeatureSourceUpdatedListener onFeatureSourceUpdatedListener) {
+        this.onFeatureSourceUpdatedListener = onFeatureSourceUpdatedListener;
+    }
+
+    /**
+     * Drops pending changes and cancels a running serialization
+     */
+    public void destroy() {
+        destroyed = true;
+        dirtyFeatureCount = 0;
+        refreshRequested = false;
+        mapView.removeCallbacks(flushRunnable);
+        if (serializationTask != null) {
+            serializationTask.cancel(true);
+            serializationTask = null;
+        }
+    }
+
+    /**
+     * Reports the time until the first fully rendered frame after an update, then removes itself
+     */
+    private class TimeToVisibleReporter implements MapView.OnDidFinishRenderingFrameListener, Runnable {
+
+        private final int changedFeatureCount;
+        private final long changeTime;
+        private boolean reported;
+
+        TimeToVisibleReporter(int changedFeatureCount, long changeTime) {
+            this.changedFeatureCount = changedFeatureCount;
+            this.changeTime = changeTime;
+        }
+
+        @Override
+        public void onDidFinishRenderingFrame(boolean fully) {
+            if (fully && !reported) {
+                reported = true;
+                // Listeners should not be removed while the map is notifying them
+                mapView.post(this);
+                if (onFeatureSourceUpdatedListener != null) {
+                    onFeatureSourceUpdatedListener.onFeatureSourceUpdated(changedFeatureCount,
+                            SystemClock.elapsedRealtime() - changeTime);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            mapView.removeOnDidFinishRenderingFrameListener(this);
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package io.ona.kujaku.features;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Geometry;
+import com.mapbox.geojson.GeometryCollection;
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.MultiLineString;
+import com.mapbox.geojson.MultiPoint;
+import com.mapbox.geojson.MultiPolygon;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import io.ona.kujaku.location.clients.SphericalUtil;
+import io.ona.kujaku.utils.CoordinateUtils;
+
+/**
+ * An R-tree over the features of a {@link FeatureStore}, bulk-loaded with the Sort-Tile-Recursive
+ * (STR) algorithm. The tree is rebuilt on the first query after a geometry in the store changed, so
+ * a burst of changes only costs one rebuild. Features whose properties alone were replaced are
+ * looked up in the store when returned, so results are never stale.
+ * <p>
+ * Candidates are found from the bounding boxes in the tree and distances are then refined with
+ * {@link SphericalUtil}. The distance to a feature is the distance to the closest point of its
+ * lines and polygon edges, or 0 when the point lies inside one of its polygons.
+ * <p>
+ * Like the store, the index should only be used on the main thread.
+ */
+public class FeatureSpatialIndex {
+
+    private static final int NODE_CAPACITY = 16;
+
+    private final FeatureStore featureStore;
+
+    @Nullable
+    private Node root;
+    private int builtGeometryModificationCount = -1;
+
+    private final Comparator<Feature> storeOrderComparator = new Comparator<Feature>() {
+        @Override
+        public int compare(Feature a, Feature b) {
+            return featureStore.getPosition(a.id()) - featureStore.getPosition(b.id());
+        }
+    };
+
+    public FeatureSpatialIndex(@NonNull FeatureStore featureStore) {
+        this.featureStore = featureStore;
+    }
+
+    /**
+     * @param bbox the bounds as {@code [west, south, east, north]}
+     * @return the features whose bounding box intersects the bounds, in the order in which they were
+     * added to the store
+     */
+    @NonNull
+    public List<Feature> queryWithinBounds(@NonNull double[] bbox) {
+        List<Feature> features = new ArrayList<>();
+        Node root = getRoot();
+        if (root != null) {
+            List<Entry> entries = new ArrayList<>();
+            collectEntries(root, bbox, entries);
+            for (Entry entry : entries) {
+                features.add(getCurrentFeature(entry.feature));
+            }
+            Collections.sort(features, storeOrderComparator);
+        }
+        return features;
+    }
+
+    /**
+     * @param center
+     * @param radiusInMetres
+     * @return the features within {@code radiusInMetres} of {@code center}, nearest first
+     */
+    @NonNull
+    public List<Feature> queryWithinRadius(@NonNull LatLng center, double radiusInMetres) {
+        double[] bbox = CoordinateUtils.getPaddedBbox(new double[]{center.getLongitude(), center.getLatitude(),
+                center.getLongitude(), center.getLatitude()}, radiusInMetres);
+
+        List<Entry> candidates = new ArrayList<>();
+        Node root = getRoot();
+        if (root != null) {
+            collectEntries(root, bbox, candidates);
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (Entry candidate : candidates) {
+            double distance = getDistance(center, candidate.feature.geometry());
+            if (distance <= radiusInMetres) {
+                results.add(new Result(candidate.feature, distance));
+            }
+        }
+        Collections.sort(results, RESULT_COMPARATOR);
+        return toFeatures(results);
+    }
+
+    /**
+     * @param point
+     * @param k the maximum number of features to return
+     * @return the {@code k} features nearest to {@code point}, nearest first
+     */
+    @NonNull
+    public List<Feature> queryNearest(@NonNull LatLng point, int k) {
+        List<Feature> features = new ArrayList<>();
+        Node root = getRoot();
+        if (root == null || k <= 0) {
+            return features;
+        }
+
+        // Best-first search: nodes are queued by the distance to their bounds, which is a lower bound
+        // for the distance to any feature below them, and features by their refined distance
+        PriorityQueue<Result> queue = new PriorityQueue<>(64, RESULT_COMPARATOR);
+        queue.add(new Result(root, GeometryBounds.getDistance(point, root.bbox)));
+        while (!queue.isEmpty() && features.size() < k) {
+            Result result = queue.poll();
+            if (result.item instanceof Feature) {
+                features.add(getCurrentFeature((Feature) result.item));
+            } else if (result.item instanceof Node) {
+                Node node = (Node) result.item;
+                if (node.children != null) {
+                    for (Node child : node.children) {
+                        queue.add(new Result(child, GeometryBounds.getDistance(point, child.bbox)));
+                    }
+                } else {
+                    for (Entry entry : node.entries) {
+                        queue.add(new Result(entry.feature, getDistance(point, entry.feature.geometry())));
+                    }
+                }
+            }
+        }
+        return features;
+    }
+
+    public int size() {
+        return featureStore.size();
+    }
+
+    /**
+     * @return {@code true} if a geometry in the store changed since the tree was built, in which case
+     * the next query rebuilds it
+     */
+    public boolean isStale() {
+        return builtGeometryModificationCount != featureStore.getGeometryModificationCount();
+    }
+
+    @Nullable
+    private Node getRoot() {
+        if (isStale()) {
+            root = build(featureStore.snapshot());
+            builtGeometryModificationCount = featureStore.getGeometryModificationCount();
+        }
+        return root;
+    }
+
+    /**
+     * @return the feature currently in the store for the indexed one, which may only differ by its properties
+     */
+    @NonNull
+    private Feature getCurrentFeature(@NonNull Feature indexedFeature) {
+        Feature feature = featureStore.get(indexedFeature.id());
+        return feature != null ? feature : indexedFeature;
+    }
+
+    @Nullable
+    private static Node build(@NonNull Feature[] snapshot) {
+        List<Entry> entries = new ArrayList<>(snapshot.length);
+        for (Feature feature : snapshot) {
+            if (feature != null) {
+                double[] bbox = GeometryBounds.getBbox(feature);
+                if (bbox != null) {
+                    entries.add(new Entry(feature, bbox));
+                }
+            }
+        }
+        if (entries.isEmpty()) {
+            return null;
+        }
+
+        List<Node> level = new ArrayList<>();
+        for (List<Entry> group : packSortTileRecursive(entries)) {
+            Node leaf = new Node();
+            leaf.entries = group.toArray(new Entry[0]);
+            leaf.bbox = union(group);
+            level.add(leaf);
+        }
+        while (level.size() > 1) {
+            List<Node> parents = new ArrayList<>();
+            for (List<Node> group : packSortTileRecursive(level)) {
+                Node parent = new Node();
+                parent.children = group.toArray(new Node[0]);
+                parent.bbox = union(group);
+                parents.add(parent);
+            }
+            level = parents;
+        }
+        return level.get(0);
+    }
+
+    /**
+     * Sorts the items into vertical slices by the x of their centres and each slice by the y of their
+     * centres, then groups runs of {@link #NODE_CAPACITY} items
+     */
+    private static <T extends Bounded> List<List<T>> packSortTileRecursive(List<T> items) {
+        int nodeCount = (int) Math.ceil(items.size() / (double) NODE_CAPACITY);
+        int sliceCount = (int) Math.ceil(Math.sqrt(nodeCount));
+        int sliceSize = sliceCount * NODE_CAPACITY;
+
+        Collections.sort(items, CENTRE_X_COMPARATOR);
+        List<List<T>> groups = new ArrayList<>(nodeCount);
+        for (int sliceStart = 0; sliceStart < items.size(); sliceStart += sliceSize) {
+            List<T> slice = new ArrayList<>(items.subList(sliceStart, Math.min(sliceStart + sliceSize, items.size())));
+            Collections.sort(slice, CENTRE_Y_COMPARATOR);
+            for (int groupStart = 0; groupStart < slice.size(); groupStart += NODE_CAPACITY) {
+                groups.add(slice.subList(groupStart, Math.min(groupStart + NODE_CAPACITY, slice.size())));
+            }
+        }
+        return groups;
+    }
+
+    private static double[] union(List<? extends Bounded> items) {
+        double[] bbox = Arrays.copyOf(items.get(0).getBbox(), 4);
+        for (Bounded item : items) {
+            double[] itemBbox = item.getBbox();
+            bbox[0] = Math.min(bbox[0], itemBbox[0]);
+            bbox[1] = Math.min(bbox[1], itemBbox[1]);
+            bbox[2] = Math.max(bbox[2], itemBbox[2]);
+            bbox[3] = Math.max(bbox[3], itemBbox[3]);
+        }
+        return bbox;
+    }
+
+    private static void collectEntries(Node node, double[] bbox, List<Entry> entries) {
+        if (!GeometryBounds.intersects(node.bbox, bbox)) {
+            return;
+        }
+        if (node.children != null) {
+            for (Node child : node.children) {
+                collectEntries(child, bbox, entries);
+            }
+        } else {
+            for (Entry entry : node.entries) {
+                if (GeometryBounds.intersects(entry.bbox, bbox)) {
+                    entries.add(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the distance in metres from the point to the closest point of the geometry, or 0 if
+     * the point is inside a polygon of the geometry
+     */
+    private static double getDistance(LatLng point, @Nullable Geometry geometry) {
+        if (geometry instanceof Point) {
+            return getDistance(point, (Point) geometry);
+        } else if (geometry instanceof MultiPoint) {
+            return getDistance(point, ((MultiPoint) geometry).coordinates());
+        } else if (geometry instanceof LineString) {
+            return getLineDistance(point, ((LineString) geometry).coordinates());
+        } else if (geometry instanceof MultiLineString) {
+            double distance = Double.POSITIVE_INFINITY;
+            for (List<Point> line : ((MultiLineString) geometry).coordinates()) {
+                distance = Math.min(distance, getLineDistance(point, line));
+            }
+            return distance;
+        } else if (geometry instanceof Polygon) {
+            return getPolygonDistance(point, ((Polygon) geometry).coordinates());
+        } else if (geometry instanceof MultiPolygon) {
+            double distance = Double.POSITIVE_INFINITY;
+            for (List<List<Point>> polygon : ((MultiPolygon) geometry).coordinates()) {
+                distance = Math.min(distance, getPolygonDistance(point, polygon));
+            }
+            return distance;
+        } else if (geometry instanceof GeometryCollection) {
+            double distance = Double.POSITIVE_INFINITY;
+            for (Geometry child : ((GeometryCollection) geometry).geometries()) {
+                distance = Math.min(distance, getDistance(point, child));
+            }
+            return distance;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private static double getPolygonDistance(LatLng point, List<List<Point>> rings) {
+        if (rings.isEmpty()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (isInsidePolygon(point, rings)) {
+            return 0;
+        }
+        double distance = Double.POSITIVE_INFINITY;
+        for (List<Point> ring : rings) {
+            distance = Math.min(distance, getLineDistance(point, ring));
+        }
+        return distance;
+    }
+
+    private static boolean isInsidePolygon(LatLng point, List<List<Point>> rings) {
+        if (!isInsideRing(point, rings.get(0))) {
+            return false;
+        }
+        for (int i = 1; i < rings.size(); i++) {
+            if (isInsideRing(point, rings.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ray casting on the plane, which is accurate enough for rings that are small compared to the earth
+     */
+    private static boolean isInsideRing(LatLng point, List<Point> ring) {
+        double x = point.getLongitude();
+        double y = point.getLatitude();
+        boolean inside = false;
+        for (int i = 0, j = ring.size() - 1; i < ring.size(); j = i++) {
+            Point a = ring.get(i);
+            Point b = ring.get(j);
+            if ((a.latitude() > y) != (b.latitude() > y)
+                    && x < (b.longitude() - a.longitude()) * (y - a.latitude()) / (b.latitude() - a.latitude()) + a.longitude()) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private static double getDistance(LatLng point, List<Point> points) {
+        double distance = Double.POSITIVE_INFINITY;
+        for (Point vertex : points) {
+            distance = Math.min(distance, getDistance(point, vertex));
+        }
+        return distance;
+    }
+
+    private static double getLineDistance(LatLng point, List<Point> line) {
+        if (line.size() < 2) {
+            return getDistance(point, line);
+        }
+        double distance = Double.POSITIVE_INFINITY;
+        for (int i = 1; i < line.size(); i++) {
+            distance = Math.min(distance, getSegmentDistance(point, line.get(i - 1), line.get(i)));
+        }
+        return distance;
+    }
+
+    /**
+     * Projects the point onto the segment on a plane where longitudes are scaled by the cosine of the
+     * point's latitude, then measures the distance to the projection with {@link SphericalUtil}
+     */
+    private static double getSegmentDistance(LatLng point, Point a, Point b) {
+        double scale = Math.cos(Math.toRadians(point.getLatitude()));
+        double ax = (a.longitude() - point.getLongitude()) * scale;
+        double ay = a.latitude() - point.getLatitude();
+        double dx = (b.longitude() - a.longitude()) * scale;
+        double dy = b.latitude() - a.latitude();
+
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+        return SphericalUtil.computeDistanceBetween(point, new LatLng(a.latitude() + t * (b.latitude() - a.latitude())
+                , a.longitude() + t * (b.longitude() - a.longitude())));
+    }
+
+    private static double getDistance(LatLng point, Point vertex) {
+        return SphericalUtil.computeDistanceBetween(point, new LatLng(vertex.latitude(), vertex.longitude()));
+    }
+
+    private List<Feature> toFeatures(List<Result> results) {
+        List<Feature> features = new ArrayList<>(results.size());
+        for (Result result : results) {
+            features.add(getCurrentFeature((Feature) result.item));
+        }
+        return features;
+    }
+
+    private interface Bounded {
+
+        double[] getBbox();
+    }
+
+    private static class Entry implements Bounded {
+
+        private final Feature feature;
+        private final double[] bbox;
+
+        private Entry(Feature feature, double[] bbox) {
+            this.feature = feature;
+            this.bbox = bbox;
+        }
+
+        @Override
+        public double[] getBbox() {
+            return bbox;
+        }
+    }
+
+    private static class Node implements Bounded {
+
+        private double[] bbox;
+        private Node[] children;
+        private Entry[] entries;
+
+        @Override
+        public double[] getBbox() {
+            return bbox;
+        }
+    }
+
+    private static class Result {
+
+        private final Object item;
+        private final double distance;
+
+        private Result(Object item, double distance) {
+            this.item = item;
+            this.distance = distance;
+        }
+    }
+
+    private static final Comparator<Result> RESULT_COMPARATOR = new Comparator<Result>() {
+        @Override
+        public int compare(Result a, Result b) {
+            return Double.compare(a.distance, b.distance);
+        }
+    };
+
+    private static final Comparator<Bounded> CENTRE_X_COMPARATOR = new Comparator<Bounded>() {
+        @Override
+        public int compare(Bounded a, Bounded b) {
+            return Double.compare(a.getBbox()[0] + a.getBbox()[2], b.getBbox()[0] + b.getBbox()[2]);
+        }
+    };
+
+    private static final Comparator<Bounded> CENTRE_Y_COMPARATOR = new Comparator<Bounded>() {
+        @Override
+        public int compare(Bounded a, Bounded b) {
+            return Double.compare(a.getBbox()[1] + a.getBbox()[3], b.getBbox()[1] + b.getBbox()[3]);
+        }
+    };
+}
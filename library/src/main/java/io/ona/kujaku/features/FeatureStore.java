@@ -0,0 +1,212 @@
+package io.ona.kujaku.features;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps features indexed by id so that they can be added, replaced and removed in constant time
+ * while preserving the order in which they were added.
+ * <p>
+ * Removed features leave an empty slot behind so that removals stay constant time. Once more than
+ * half of the slots are empty they are compacted by the next {@link #snapshot()}, or by the next
+ * {@link #add(Feature)} that would otherwise grow them. Both already copy the slots, so compaction
+ * at most doubles work they do anyway instead of stalling a removal. The slots array is shrunk
+ * after compaction so that long sessions with many removals do not hold on to memory.
+ * <p>
+ * The store is not thread-safe and should only be modified on the main thread.
+ */
+public class FeatureStore {
+
+    private static final int MIN_COMPACTION_SIZE = 64;
+    private static final int MIN_CAPACITY = 16;
+
+    private Feature[] slots = new Feature[MIN_CAPACITY];
+    private int slotCount;
+    private int removedCount;
+    private int modificationCount;
+    private int geometryModificationCount;
+    private final Map<String, Integer> index = new HashMap<>();
+
+    /**
+     * Adds a feature.  Features without an id or whose id already exists are ignored.
+     *
+     * @param feature
+     * @return {@code true} if the feature was added
+     */
+    public boolean add(@NonNull Feature feature) {
+        String featureId = feature.id();
+        if (featureId == null || index.containsKey(featureId)) {
+            return false;
+        }
+        if (slotCount == slots.length) {
+            if (needsCompaction()) {
+                compact();
+            }
+            if (slotCount == slots.length) {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+            }
+        }
+        index.put(featureId, slotCount);
+        slots[slotCount++] = feature;
+        modificationCount++;
+        geometryModificationCount++;
+        return true;
+    }
+
+    @Nullable
+    public Feature get(@Nullable String featureId) {
+        Integer slot = index.get(featureId);
+        return slot == null ? null : slots[slot];
+    }
+
+    public boolean contains(@Nullable String featureId) {
+        return index.containsKey(featureId);
+    }
+
+    /**
+     * @param featureId
+     * @return a position that orders the feature relative to the others by when they were added,
+     * or -1 if it does not exist
+     */
+    public int getPosition(@Nullable String featureId) {
+        Integer slot = index.get(featureId);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Replaces the existing feature with the same id, keeping its position
+     *
+     * @param feature
+     * @return {@code true} if the feature was replaced, {@code false} if it does not exist
+     */
+    public boolean replace(@NonNull Feature feature) {
+        Integer slot = index.get(feature.id());
+        if (slot == null) {
+            return false;
+        }
+        Geometry previousGeometry = slots[slot].geometry();
+        Geometry geometry = feature.geometry();
+        if (previousGeometry != geometry && (previousGeometry == null || !previousGeometry.equals(geometry))) {
+            geometryModificationCount++;
+        }
+        slots[slot] = feature;
+        modificationCount++;
+        return true;
+    }
+
+    /**
+     * @param featureId
+     * @return {@code true} if the feature existed and was removed
+     */
+    public boolean remove(@Nullable String featureId) {
+        Integer slot = index.remove(featureId);
+        if (slot == null) {
+            return false;
+        }
+        slots[slot] = null;
+        removedCount++;
+        modificationCount++;
+        geometryModificationCount++;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0, slotCount, null);
+        slotCount = 0;
+        removedCount = 0;
+        modificationCount++;
+        geometryModificationCount++;
+        index.clear();
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return a counter that changes whenever a feature is added, replaced or removed, so that
+     * structures derived from the store, e.g. {@link FeatureSpatialIndex}, know when to rebuild
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * @return a counter like {@link #getModificationCount()} that does not change when a feature is
+     * replaced by one with the same geometry, e.g. when only its properties were updated
+     */
+    public int getGeometryModificationCount() {
+        return geometryModificationCount;
+    }
+
+    private boolean needsCompaction() {
+        return slotCount >= MIN_COMPACTION_SIZE && removedCount * 2 > slotCount;
+    }
+
+    /**
+     * Moves the features to the front of the slots, keeping their order, and shrinks the slots
+     * array when it is more than four times larger than needed
+     */
+    private void compact() {
+        int size = 0;
+        for (int i = 0; i < slotCount; i++) {
+            Feature feature = slots[i];
+            if (feature != null) {
+                slots[size] = feature;
+                index.put(feature.id(), size);
+                size++;
+            }
+        }
+        Arrays.fill(slots, size, slotCount, null);
+        slotCount = size;
+        removedCount = 0;
+
+        int capacity = Math.max(MIN_CAPACITY, size * 2);
+        if (slots.length > capacity * 2) {
+            slots = Arrays.copyOf(slots, capacity);
+        }
+    }
+
+    /**
+     * Copies the current slots, compacting them first if most of them are empty.  The copy may
+     * contain {@code null} entries for removed features, which are dropped by
+     * {@link #toFeatureList(Feature[])} off the main thread.
+     *
+     * @return the copy
+     */
+    @NonNull
+    public Feature[] snapshot() {
+        if (needsCompaction()) {
+            compact();
+        }
+        return Arrays.copyOf(slots, slotCount);
+    }
+
+    /**
+     * @return the features in the order in which they were added
+     */
+    @NonNull
+    public List<Feature> getFeatures() {
+        return toFeatureList(snapshot());
+    }
+
+    @NonNull
+    public static List<Feature> toFeatureList(@NonNull Feature[] snapshot) {
+        List<Feature> features = new ArrayList<>(snapshot.length);
+        for (Feature feature : snapshot) {
+            if (feature != null) {
+                features.add(feature);
+            }
+        }
+        return features;
+    }
+}
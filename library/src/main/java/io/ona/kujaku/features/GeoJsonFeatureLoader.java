@@ -0,0 +1,114 @@
+package io.ona.kujaku.features;
+
+import android.os.AsyncTask;
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+
+import java.io.StringReader;
+import java.util.List;
+
+/**
+ * Parses a GeoJSON FeatureCollection on a background executor with a {@link GeoJsonFeatureReader}
+ * and delivers its features to the main thread in chunks as they are parsed, so that the first
+ * features can be shown before the whole document has been read.
+ * <p>
+ * The load runs on {@link AsyncTask#THREAD_POOL_EXECUTOR} so that it does not hold up tasks on
+ * the serial executor, e.g. the serialization done by {@link FeatureSourceUpdater}.
+ */
+public class GeoJsonFeatureLoader extends AsyncTask<Void, List<Feature>, Integer> {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    public interface Callback {
+
+        /**
+         * Called on the main thread for every chunk of features parsed
+         *
+         * @param features
+         */
+        void onFeaturesLoaded(@NonNull List<Feature> features);
+
+        /**
+         * Called on the main thread once all features have been delivered
+         *
+         * @param featureCount the total number of features
+         */
+        void onLoadFinished(int featureCount);
+
+        /**
+         * Called on the main thread if the GeoJSON could not be parsed.  Chunks delivered before
+         * the error are kept.
+         *
+         * @param e
+         */
+        void onLoadFailed(@NonNull Exception e);
+    }
+
+    private final String geoJson;
+    private final int chunkSize;
+    private final Callback callback;
+
+    private Exception exception;
+
+    public GeoJsonFeatureLoader(@NonNull String geoJson, @NonNull Callback callback) {
+        this(geoJson, DEFAULT_CHUNK_SIZE, callback);
+    }
+
+    public GeoJsonFeatureLoader(@NonNull String geoJson, int chunkSize, @NonNull Callback callback) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size should be at least 1");
+        }
+        this.geoJson = geoJson;
+        this.chunkSize = chunkSize;
+        this.callback = callback;
+    }
+
+    /**
+     * Starts the load on {@link AsyncTask#THREAD_POOL_EXECUTOR}
+     *
+     * @return this loader
+     */
+    public GeoJsonFeatureLoader load() {
+        executeOnExecutor(THREAD_POOL_EXECUTOR);
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected Integer doInBackground(Void... voids) {
+        int featureCount = 0;
+        try (GeoJsonFeatureReader reader = new GeoJsonFeatureReader(new StringReader(geoJson))) {
+            while (!isCancelled()) {
+                List<Feature> features = reader.readChunk(chunkSize);
+                if (features.isEmpty()) {
+                    break;
+                }
+                featureCount += features.size();
+                publishProgress(features);
+            }
+        } catch (Exception e) {
+            exception = e;
+        }
+        return featureCount;
+    }
+
+    @SafeVarargs
+    @Override
+    protected final void onProgressUpdate(List<Feature>... chunks) {
+        for (List<Feature> chunk : chunks) {
+            if (!isCancelled()) {
+                callback.onFeaturesLoaded(chunk);
+            }
+        }
+    }
+
+    @Override
+    protected void onPostExecute(Integer featureCount) {
+        if (exception != null) {
+            callback.onLoadFailed(exception);
+        } else {
+            callback.onLoadFinished(featureCount);
+        }
+    }
+}
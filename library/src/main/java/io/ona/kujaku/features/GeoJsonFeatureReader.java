@@ -0,0 +1,114 @@
+package io.ona.kujaku.features;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.gson.GeoJsonAdapterFactory;
+import com.mapbox.geojson.gson.GeometryAdapterFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the features of a GeoJSON FeatureCollection a chunk at a time with a streaming
+ * {@link JsonReader} so that only the features of the current chunk are held in memory
+ * in addition to the input, rather than the whole parsed document. Each feature is read
+ * straight from the stream by the GeoJSON type adapter without an intermediate JSON tree.
+ */
+public class GeoJsonFeatureReader implements Closeable {
+
+    private static final String FEATURES = "features";
+
+    private final JsonReader jsonReader;
+    private final TypeAdapter<Feature> featureAdapter = Feature.typeAdapter(new GsonBuilder()
+            .registerTypeAdapterFactory(GeoJsonAdapterFactory.create())
+            .registerTypeAdapterFactory(GeometryAdapterFactory.create())
+            .create());
+
+    private boolean started;
+    private boolean finished;
+
+    public GeoJsonFeatureReader(@NonNull Reader reader) {
+        jsonReader = new JsonReader(reader);
+        jsonReader.setLenient(true);
+    }
+
+    /**
+     * Reads the next features
+     *
+     * @param maxFeatures the maximum number of features to read
+     * @return the features read, an empty list once all the features have been read
+     * @throws IOException if the input is not a valid FeatureCollection
+     */
+    @NonNull
+    public List<Feature> readChunk(int maxFeatures) throws IOException {
+        if (!started) {
+            started = true;
+            seekFeatures();
+        }
+
+        List<Feature> features = new ArrayList<>();
+        while (!finished && features.size() < maxFeatures) {
+            if (jsonReader.hasNext()) {
+                features.add(readFeature());
+            } else {
+                jsonReader.endArray();
+                finished = true;
+            }
+        }
+        return features;
+    }
+
+    private Feature readFeature() throws IOException {
+        Feature feature;
+        try {
+            feature = featureAdapter.read(jsonReader);
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException(e);
+        }
+        if (feature == null) {
+            throw new IOException("Expected a feature but was null at " + jsonReader.getPath());
+        }
+
+        // Like Feature.fromJson, give features without properties an empty object so that properties can be added
+        return feature.properties() != null ? feature
+                : Feature.fromGeometry(feature.geometry(), new JsonObject(), feature.id(), feature.bbox());
+    }
+
+    /**
+     * Moves the reader to the first element of the features array, skipping any other members
+     * of the FeatureCollection
+     *
+     * @throws IOException
+     */
+    private void seekFeatures() throws IOException {
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (FEATURES.equals(name) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                jsonReader.beginArray();
+                return;
+            }
+            jsonReader.skipValue();
+        }
+        finished = true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void close() throws IOException {
+        jsonReader.close();
+    }
+}
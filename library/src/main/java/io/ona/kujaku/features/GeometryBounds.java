@@ -0,0 +1,129 @@
+package io.ona.kujaku.features;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mapbox.geojson.BoundingBox;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Geometry;
+import com.mapbox.geojson.GeometryCollection;
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.MultiLineString;
+import com.mapbox.geojson.MultiPoint;
+import com.mapbox.geojson.MultiPolygon;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+
+import java.util.List;
+
+import io.ona.kujaku.location.clients.SphericalUtil;
+
+/**
+ * Computes bounding boxes of features as {@code [west, south, east, north]} arrays, the same
+ * layout used by {@link io.ona.kujaku.utils.CoordinateUtils#getPaddedBbox(double[], double)}
+ */
+public class GeometryBounds {
+
+    private GeometryBounds() {
+    }
+
+    /**
+     * @param feature
+     * @return the bounding box of the feature, taken from its {@code bbox} member if it has one,
+     * or {@code null} if it has no geometry
+     */
+    @Nullable
+    public static double[] getBbox(@NonNull Feature feature) {
+        BoundingBox bbox = feature.bbox();
+        if (bbox != null) {
+            return new double[]{bbox.west(), bbox.south(), bbox.east(), bbox.north()};
+        }
+        return getBbox(feature.geometry());
+    }
+
+    @Nullable
+    public static double[] getBbox(@Nullable Geometry geometry) {
+        if (geometry == null) {
+            return null;
+        }
+        double[] bbox = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        extend(bbox, geometry);
+        return bbox[0] > bbox[2] ? null : bbox;
+    }
+
+    private static void extend(double[] bbox, Geometry geometry) {
+        if (geometry instanceof Point) {
+            extend(bbox, (Point) geometry);
+        } else if (geometry instanceof MultiPoint) {
+            extendPoints(bbox, ((MultiPoint) geometry).coordinates());
+        } else if (geometry instanceof LineString) {
+            extendPoints(bbox, ((LineString) geometry).coordinates());
+        } else if (geometry instanceof MultiLineString) {
+            extendRings(bbox, ((MultiLineString) geometry).coordinates());
+        } else if (geometry instanceof Polygon) {
+            // The outer ring contains the inner ones
+            List<List<Point>> rings = ((Polygon) geometry).coordinates();
+            if (!rings.isEmpty()) {
+                extendPoints(bbox, rings.get(0));
+            }
+        } else if (geometry instanceof MultiPolygon) {
+            for (List<List<Point>> rings : ((MultiPolygon) geometry).coordinates()) {
+                if (!rings.isEmpty()) {
+                    extendPoints(bbox, rings.get(0));
+                }
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            for (Geometry child : ((GeometryCollection) geometry).geometries()) {
+                extend(bbox, child);
+            }
+        }
+    }
+
+    private static void extendRings(double[] bbox, List<List<Point>> rings) {
+        for (List<Point> ring : rings) {
+            extendPoints(bbox, ring);
+        }
+    }
+
+    private static void extendPoints(double[] bbox, List<Point> points) {
+        for (Point point : points) {
+            extend(bbox, point);
+        }
+    }
+
+    private static void extend(double[] bbox, Point point) {
+        bbox[0] = Math.min(bbox[0], point.longitude());
+        bbox[1] = Math.min(bbox[1], point.latitude());
+        bbox[2] = Math.max(bbox[2], point.longitude());
+        bbox[3] = Math.max(bbox[3], point.latitude());
+    }
+
+    public static boolean intersects(@NonNull double[] a, @NonNull double[] b) {
+        return a[0] <= b[2] && b[0] <= a[2] && a[1] <= b[3] && b[1] <= a[3];
+    }
+
+    /**
+     * @param outer
+     * @param inner
+     * @return {@code true} if {@code inner} lies completely within {@code outer}
+     */
+    public static boolean contains(@NonNull double[] outer, @NonNull double[] inner) {
+        return outer[0] <= inner[0] && outer[1] <= inner[1] && outer[2] >= inner[2] && outer[3] >= inner[3];
+    }
+
+    /**
+     * @param point
+     * @param bbox
+     * @return the distance in metres from the point to the closest point of the bounds, 0 if it is inside
+     */
+    public static double getDistance(@NonNull LatLng point, @NonNull double[] bbox) {
+        double longitude = Math.max(bbox[0], Math.min(point.getLongitude(), bbox[2]));
+        double latitude = Math.max(bbox[1], Math.min(point.getLatitude(), bbox[3]));
+        return SphericalUtil.computeDistanceBetween(point, new LatLng(latitude, longitude));
+    }
+
+    public static double getArea(@NonNull double[] bbox) {
+        return (bbox[2] - bbox[0]) * (bbox[3] - bbox[1]);
+    }
+}
@@ -0,0 +1,81 @@
+package io.ona.kujaku.features;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+import io.ona.kujaku.utils.CoordinateUtils;
+
+/**
+ * Tracks the region whose features are loaded into a source when only the features around the
+ * viewport are shown. The loaded region is the visible region padded by a ring of
+ * {@code paddingInMetres} so that small pans do not require a reload: it only changes once the
+ * visible region leaves it, or once the map has zoomed in so far that the loaded region is much
+ * larger than it needs to be.
+ */
+public class ViewportRegion {
+
+    /**
+     * How much larger than the padded visible region the loaded region can get before it is shrunk
+     */
+    private static final double MAX_AREA_RATIO = 4;
+
+    private final double paddingInMetres;
+
+    @Nullable
+    private double[] loadedBbox;
+
+    public ViewportRegion(double paddingInMetres) {
+        if (paddingInMetres < 0) {
+            throw new IllegalArgumentException("The padding cannot be negative");
+        }
+        this.paddingInMetres = paddingInMetres;
+    }
+
+    /**
+     * Updates the loaded region for a new visible region
+     *
+     * @param visibleBbox the visible region as {@code [west, south, east, north]}
+     * @return {@code true} if the loaded region changed and the source should be refreshed
+     */
+    public boolean update(@NonNull double[] visibleBbox) {
+        double[] paddedBbox = CoordinateUtils.getPaddedBbox(visibleBbox, paddingInMetres);
+        if (loadedBbox != null && GeometryBounds.contains(loadedBbox, visibleBbox)
+                && GeometryBounds.getArea(loadedBbox) <= MAX_AREA_RATIO * GeometryBounds.getArea(paddedBbox)) {
+            return false;
+        }
+        loadedBbox = paddedBbox;
+        return true;
+    }
+
+    /**
+     * @return the loaded region as {@code [west, south, east, north]} or {@code null} before the first update
+     */
+    @Nullable
+    public double[] getLoadedBbox() {
+        return loadedBbox;
+    }
+
+    public double getPaddingInMetres() {
+        return paddingInMetres;
+    }
+
+    /**
+     * Converts bounds to a {@code [west, south, east, north]} array. Bounds crossing the
+     * antimeridian are widened to all longitudes.
+     *
+     * @param bounds
+     * @return the array
+     */
+    @NonNull
+    public static double[] toBbox(@NonNull LatLngBounds bounds) {
+        double west = bounds.getLonWest();
+        double east = bounds.getLonEast();
+        if (west > east) {
+            west = -180;
+            east = 180;
+        }
+        return new double[]{west, bounds.getLatSouth(), east, bounds.getLatNorth()};
+    }
+}
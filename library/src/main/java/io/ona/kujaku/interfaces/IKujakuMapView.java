@@ -11,22 +11,27 @@ import android.support.annotation.Nullable;
 
 import com.mapbox.geojson.FeatureCollection;
 import com.mapbox.mapboxsdk.annotations.MarkerOptions;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
 import com.mapbox.mapboxsdk.location.modes.RenderMode;
 import com.mapbox.mapboxsdk.style.expressions.Expression;
 
 import org.json.JSONException;
 
+import java.util.Collection;
 import java.util.List;
 
 import io.ona.kujaku.callbacks.AddPointCallback;
 import io.ona.kujaku.domain.Point;
 import io.ona.kujaku.exceptions.TrackingServiceNotInitializedException;
 import io.ona.kujaku.exceptions.WmtsCapabilitiesException;
+import io.ona.kujaku.features.FeatureBatch;
 import io.ona.kujaku.layers.ArrowLineLayer;
 import io.ona.kujaku.layers.KujakuLayer;
 import io.ona.kujaku.listeners.BoundsChangeListener;
 import io.ona.kujaku.listeners.LocationClientStartedCallback;
 import io.ona.kujaku.listeners.OnFeatureClickListener;
+import io.ona.kujaku.listeners.OnFeatureSourceUpdatedListener;
 import io.ona.kujaku.listeners.TrackingServiceListener;
 import io.ona.kujaku.location.KujakuLocation;
 import io.ona.kujaku.services.configurations.TrackingServiceUIConfiguration;
@@ -137,11 +142,115 @@ public interface IKujakuMapView extends IKujakuMapViewLowLevel {
      * If the {@link com.mapbox.geojson.Feature Feature} point does not already exist, it is added to the map by calling the {@link #addFeaturePoints(FeatureCollection) addFeaturePoints}
      * function and passing the new {@link FeatureCollection FeatureCollection}
      *
+     * <p>
+     * Property values keep their JSON types, so numbers and booleans can still be used in style expressions.
+     * Features whose property values are all unchanged are skipped, and the map is not updated when no feature changed.
+     *
      * @param featureCollection A {@link FeatureCollection FeatureCollection} of {@link com.mapbox.geojson.Feature Feature} points whose properties will be updated on the map
      * @throws JSONException
      */
     void updateFeaturePointProperties(FeatureCollection featureCollection) throws JSONException;
 
+    /**
+     * Same as {@link #updateFeaturePointProperties(FeatureCollection) updateFeaturePointProperties} but also
+     * reports how many {@link com.mapbox.geojson.Feature Feature} points were added or actually changed
+     *
+     * @param featureCollection A {@link FeatureCollection FeatureCollection} of {@link com.mapbox.geojson.Feature Feature} points whose properties will be updated on the map
+     * @return The number of {@link com.mapbox.geojson.Feature Feature} points that were added or actually changed
+     * @throws JSONException
+     */
+    int updateFeaturePointPropertiesAndCount(FeatureCollection featureCollection) throws JSONException;
+
+    /**
+     * Remove {@link com.mapbox.geojson.Feature Feature} points from the {@link io.ona.kujaku.views.KujakuMapView map}
+     * <p>
+     * Ids that do not exist on the map are ignored.
+     *
+     * @param featureIds The ids of the {@link com.mapbox.geojson.Feature Feature} points to remove
+     * @return The number of {@link com.mapbox.geojson.Feature Feature} points that were removed
+     */
+    int removeFeatures(@NonNull Collection<String> featureIds);
+
+    /**
+     * Get the {@link com.mapbox.geojson.Feature Feature} points on the {@link io.ona.kujaku.views.KujakuMapView map}
+     * whose bounding box intersects the given bounds.
+     * <p>
+     * Unlike {@link com.mapbox.mapboxsdk.maps.MapboxMap#queryRenderedFeatures(android.graphics.RectF, String...)}, this
+     * also returns features that are not currently rendered.
+     *
+     * @param bounds The bounds to query
+     * @return The features within the bounds
+     */
+    @NonNull
+    List<com.mapbox.geojson.Feature> queryFeaturesWithinBounds(@NonNull LatLngBounds bounds);
+
+    /**
+     * Get the {@link com.mapbox.geojson.Feature Feature} points on the {@link io.ona.kujaku.views.KujakuMapView map}
+     * within a distance of a point, nearest first. The distance to a feature is measured to the closest point of its
+     * lines and polygon edges, not just to their vertices, and is 0 when the point is inside one of its polygons.
+     *
+     * @param center The point to measure from
+     * @param radiusInMetres The maximum distance in metres
+     * @return The features within the radius
+     */
+    @NonNull
+    List<com.mapbox.geojson.Feature> queryFeaturesWithinRadius(@NonNull LatLng center, double radiusInMetres);
+
+    /**
+     * Get the {@link com.mapbox.geojson.Feature Feature} points on the {@link io.ona.kujaku.views.KujakuMapView map}
+     * nearest to a point, nearest first.
+     *
+     * @param point The point to measure from
+     * @param count The maximum number of features to return
+     * @return The nearest features
+     */
+    @NonNull
+    List<com.mapbox.geojson.Feature> queryNearestFeatures(@NonNull LatLng point, int count);
+
+    /**
+     * Enable/disable loading only the {@link com.mapbox.geojson.Feature Feature} points around the viewport into the map.
+     * <p>
+     * When enabled, all features are still kept by the {@link io.ona.kujaku.views.KujakuMapView map} but only those
+     * intersecting the visible region plus a padding ring are added to the primary source. The source is reloaded once
+     * the camera leaves the padded region, so panning within the padding does not cause a reload.
+     *
+     * @param enabled Whether to only load the features around the viewport
+     * @param paddingInMetres The width of the ring around the visible region whose features are also loaded
+     */
+    void setViewportFeatureLoading(boolean enabled, double paddingInMetres);
+
+    /**
+     * Start a batch of {@link com.mapbox.geojson.Feature Feature} additions, property updates and removals.
+     * <p>
+     * Nothing changes on the {@link io.ona.kujaku.views.KujakuMapView map} until {@link FeatureBatch#commit()} is
+     * called, after which the primary source is updated once for the whole batch. The GeoJSON is serialized
+     * off the main thread.
+     *
+     * @return a new {@link FeatureBatch FeatureBatch}
+     */
+    FeatureBatch beginFeatureBatch();
+
+    /**
+     * Set the window within which changes to the primary source are collected before the {@link io.ona.kujaku.views.KujakuMapView map}
+     * is updated. This is useful when {@link #updateFeaturePointProperties(FeatureCollection)} is called for every sync
+     * result that arrives.
+     * <p>
+     * The default of 0 updates the map on the next frame.
+     *
+     * @param debounceWindow The window in milliseconds
+     */
+    void setFeatureUpdateDebounceWindow(long debounceWindow);
+
+    /**
+     * Set a listener that is notified when changes made through {@link #addFeaturePoints(FeatureCollection)}
+     * and {@link #updateFeaturePointProperties(FeatureCollection)} become visible on the map.
+     * <p>
+     * Changes made within the same frame are coalesced into a single update of the primary source.
+     *
+     * @param onFeatureSourceUpdatedListener
+     */
+    void setOnFeatureSourceUpdatedListener(@Nullable OnFeatureSourceUpdatedListener onFeatureSourceUpdatedListener);
+
 
     /**
      * Update the list of points displayed in KujakuMapView
@@ -188,6 +297,36 @@ public interface IKujakuMapView extends IKujakuMapViewLowLevel {
      */
     void setOnFeatureClickListener(@NonNull OnFeatureClickListener onFeatureClickListener, @Nullable Expression expressionFilter, @Nullable String... layerIds);
 
+    /**
+     * Zoom in on a cluster of the primary source until it breaks up into smaller clusters or points.
+     * <p>
+     * This is done automatically for clusters clicked through the {@link OnFeatureClickListener} unless
+     * disabled with {@link io.ona.kujaku.features.ClusterOptions#setZoomOnClick(boolean)}.
+     *
+     * @param cluster A cluster {@link com.mapbox.geojson.Feature Feature} rendered from the primary source.
+     *                Clusters of other sources cannot be expanded this way since their expansion zoom
+     *                is looked up in the primary source
+     * @return {@code true} if the map zoomed in on the cluster
+     */
+    boolean expandCluster(@NonNull com.mapbox.geojson.Feature cluster);
+
+    /**
+     * Set how far from a tap, in pixels, features are considered tapped. This makes it easier to tap small or
+     * densely packed points. The default of 0 only considers the features exactly under the tap.
+     *
+     * @param toleranceInPixels The half-width of the square around the tap that is queried
+     */
+    void setFeatureClickTolerance(float toleranceInPixels);
+
+    /**
+     * Set which of the features under a tap are delivered to the {@link OnFeatureClickListener}
+     *
+     * @param featureClickResolution One of {@link io.ona.kujaku.views.KujakuMapView#FEATURE_CLICK_RESOLVE_ALL} (default),
+     *                               {@link io.ona.kujaku.views.KujakuMapView#FEATURE_CLICK_RESOLVE_TOP_MOST} or
+     *                               {@link io.ona.kujaku.views.KujakuMapView#FEATURE_CLICK_RESOLVE_NEAREST}
+     */
+    void setFeatureClickResolution(int featureClickResolution);
+
     /**
      * Checks if the map warms GPS(this just means the location service that is going to be used).
      * Warming the GPS in this case means that it starts the location services as soon as you open
@@ -48,6 +48,7 @@ import io.ona.kujaku.exceptions.InvalidArrowLineConfigException;
 import io.ona.kujaku.listeners.OnFinishedListener;
 import io.ona.kujaku.tasks.GenericAsyncTask;
 import io.ona.kujaku.utils.FeatureFilter;
+import io.ona.kujaku.utils.IncrementalFeatureFilter;
 
 import static com.mapbox.mapboxsdk.style.expressions.Expression.get;
 import static com.mapbox.mapboxsdk.style.expressions.Expression.interpolate;
@@ -136,6 +137,9 @@ public class ArrowLineLayer extends KujakuLayer {
     private GeoJsonSource arrowHeadSource;
     private SymbolLayer arrowHeadLayer;
 
+    private IncrementalFeatureFilter incrementalFeatureFilter;
+    private List<FeatureFilter.FilterCondition> incrementalFilterConditions;
+
     public static final int MIN_ARROW_ZOOM = 10;
     public static final int MAX_ARROW_ZOOM = 22;
     public static final float MIN_ZOOM_ARROW_HEAD_SCALE = 0.5f;
@@ -367,28 +371,16 @@ public class ArrowLineLayer extends KujakuLayer {
             GenericAsyncTask genericAsyncTask = new GenericAsyncTask(new AsyncTaskCallable() {
                 @Override
                 public Object[] call() throws Exception {
-                    FeatureCollection filteredFeatureCollection = filterFeatures(builder.featureConfig, builder.sortConfig);
-                    FeatureCollection arrowHeadFeatures;
-
-                    if (builder.sortConfig != null) {
-                        FeatureCollection sortedFeatureCollection = sortFeatures(filteredFeatureCollection, builder.sortConfig);
-                        LineString arrowLine = calculateLineString(sortedFeatureCollection);
-                        arrowHeadFeatures = generateArrowHeadFeatureCollection(arrowLine);
-
-                        return new Object[]{arrowLine, arrowHeadFeatures};
-                    } else if (builder.oneToManyConfig != null) {
-                        MultiLineString arrowLine = calculateMultiLineString(filteredFeatureCollection, builder.oneToManyConfig);
-                        arrowHeadFeatures = generateArrowHeadFeatureCollection(arrowLine);
-
-                        return new Object[]{arrowLine, arrowHeadFeatures};
-                    } else {
-                        throw new IllegalArgumentException("SortConfig & OneToManyConfig not available to draw the line layer");
-                    }
+                    return calculateUpdatedArrows();
                 }
             });
             genericAsyncTask.setOnFinishedListener(new OnFinishedListener() {
                 @Override
                 public void onSuccess(Object[] objects) {
+                    if (objects.length == 0) {
+                        return;
+                    }
+
                     Geometry arrowLine = (Geometry) objects[0];
                     FeatureCollection arrowHeadFeatures = (FeatureCollection) objects[1];
 
@@ -406,6 +398,38 @@ public class ArrowLineLayer extends KujakuLayer {
         }
     }
 
+    /**
+     * Calculates the arrow line and arrow heads for the current features
+     *
+     * @return the arrow line and the arrow head features, or an empty array if the filtered features
+     * and their order did not change since the last time
+     */
+    private Object[] calculateUpdatedArrows() {
+        IncrementalFeatureFilter.Delta delta = filterFeaturesIncrementally(builder.featureConfig, builder.sortConfig);
+        if (delta.isEmpty()) {
+            // None of the features drawn changed, so neither do the arrows
+            return new Object[0];
+        }
+
+        FeatureCollection filteredFeatureCollection = delta.getFeatureCollection();
+        FeatureCollection arrowHeadFeatures;
+
+        if (builder.sortConfig != null) {
+            FeatureCollection sortedFeatureCollection = sortFeatures(filteredFeatureCollection, builder.sortConfig);
+            LineString arrowLine = calculateLineString(sortedFeatureCollection);
+            arrowHeadFeatures = generateArrowHeadFeatureCollection(arrowLine);
+
+            return new Object[]{arrowLine, arrowHeadFeatures};
+        } else if (builder.oneToManyConfig != null) {
+            MultiLineString arrowLine = calculateMultiLineString(filteredFeatureCollection, builder.oneToManyConfig);
+            arrowHeadFeatures = generateArrowHeadFeatureCollection(arrowLine);
+
+            return new Object[]{arrowLine, arrowHeadFeatures};
+        } else {
+            throw new IllegalArgumentException("SortConfig & OneToManyConfig not available to draw the line layer");
+        }
+    }
+
     private Bitmap getBitmapFromDrawable(Drawable drawable) {
         if (drawable instanceof BitmapDrawable) {
             return ((BitmapDrawable) drawable).getBitmap();
@@ -436,17 +460,41 @@ public class ArrowLineLayer extends KujakuLayer {
     }
 
     private FeatureCollection filterFeatures(@NonNull FeatureConfig featureConfig, @Nullable SortConfig sortConfig) {
-        if (featureConfig.getFeatureFilterBuilder() != null) {
-            FeatureFilter.Builder featureFilterBuilder = featureConfig.getFeatureFilterBuilder();
+        return filterFeaturesIncrementally(featureConfig, sortConfig).getFeatureCollection();
+    }
 
+    /**
+     * Filters the features, only re-evaluating those that were added or replaced since the last
+     * time. The filter is rebuilt if its conditions changed.
+     *
+     * @param featureConfig
+     * @param sortConfig
+     * @return the changes to the filtered features since the last time
+     */
+    private synchronized IncrementalFeatureFilter.Delta filterFeaturesIncrementally(@NonNull FeatureConfig featureConfig, @Nullable SortConfig sortConfig) {
+        FeatureFilter.Builder featureFilterBuilder = featureConfig.getFeatureFilterBuilder();
+        FeatureCollection featureCollection;
+
+        if (featureFilterBuilder != null) {
             if (sortConfig != null) {
                 featureFilterBuilder.setSortProperty(sortConfig.getSortProperty());
             }
 
-            return featureFilterBuilder.build().filter();
+            List<FeatureFilter.FilterCondition> filterConditions = featureFilterBuilder.getFilterConditions();
+            if (incrementalFeatureFilter == null || !filterConditions.equals(incrementalFilterConditions)) {
+                incrementalFeatureFilter = new IncrementalFeatureFilter(featureFilterBuilder.build());
+                incrementalFilterConditions = new ArrayList<>(filterConditions);
+            }
+
+            featureCollection = featureFilterBuilder.getFeatureCollection();
         } else {
-            return featureConfig.getFeatureCollection();
+            featureCollection = featureConfig.getFeatureCollection();
+            if (incrementalFeatureFilter == null) {
+                incrementalFeatureFilter = new IncrementalFeatureFilter(new FeatureFilter.Builder(featureCollection).build());
+            }
         }
+
+        return incrementalFeatureFilter.update(featureCollection);
     }
 
     /**
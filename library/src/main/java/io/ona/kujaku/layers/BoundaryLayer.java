@@ -3,6 +3,7 @@ package io.ona.kujaku.layers;
 
 import android.os.AsyncTask;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 
 import com.mapbox.geojson.Feature;
@@ -24,7 +25,9 @@ import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 import com.mapbox.turf.TurfMeasurement;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static com.mapbox.mapboxsdk.style.layers.Property.NONE;
@@ -33,6 +36,8 @@ import static com.mapbox.mapboxsdk.style.layers.Property.VISIBLE;
 import io.ona.kujaku.callables.AsyncTaskCallable;
 import io.ona.kujaku.listeners.OnFinishedListener;
 import io.ona.kujaku.tasks.GenericAsyncTask;
+import io.ona.kujaku.utils.FeatureFilter;
+import io.ona.kujaku.utils.IncrementalFeatureFilter;
 
 /**
  * This layer enables one to add labelled foci boundaries to the {@link io.ona.kujaku.views.KujakuMapView}
@@ -69,6 +74,12 @@ public class BoundaryLayer extends KujakuLayer {
 
     private SymbolLayer boundaryLabelLayer;
 
+    private final IncrementalFeatureFilter incrementalFeatureFilter = new IncrementalFeatureFilter(
+            new FeatureFilter.Builder(FeatureCollection.fromFeatures(new ArrayList<Feature>())).build());
+    private final Map<String, CenterPoint> centerPoints = new HashMap<>();
+    private int calculationCount;
+    private int drawnCalculation;
+
     BoundaryLayer(@NonNull KujakuLayer.Builder builder) {
         this.builder = builder;
     }
@@ -125,7 +136,7 @@ public class BoundaryLayer extends KujakuLayer {
         GenericAsyncTask genericAsyncTask = new GenericAsyncTask(new AsyncTaskCallable() {
             @Override
             public Object[] call() throws Exception {
-                return new Object[]{calculateCenterPoints(builder.featureCollection)};
+                return new Object[]{updateCenterPoints(builder.featureCollection, false)};
             }
         });
 
@@ -197,21 +208,80 @@ public class BoundaryLayer extends KujakuLayer {
         List<Feature> featureList = featureCollection.features();
         if (featureList != null) {
             for (Feature feature : featureList) {
-                Geometry featureGeometry = feature.geometry();
-                if (featureGeometry != null) {
-                    Point featurePoint;
-                    if (featureGeometry instanceof Point) {
-                        featurePoint = (Point) featureGeometry;
-                    } else {
-                        featurePoint = getCenter(featureGeometry);
+                Feature centerPoint = calculateCenterPoint(feature);
+                if (centerPoint != null) {
+                    centerPoints.add(centerPoint);
+                }
+            }
+        }
+
+        return FeatureCollection.fromFeatures(centerPoints);
+    }
+
+    /**
+     * Calculates the center points of the features that were added or replaced since the last time,
+     * reusing the center points of the other features
+     *
+     * @param featureCollection
+     * @param onlyIfChanged     whether to skip the center points if no feature changed
+     * @return the center points of all the features, or {@code null} if no feature changed and
+     * {@code onlyIfChanged} is set
+     */
+    @Nullable
+    private synchronized FeatureCollection updateCenterPoints(@NonNull FeatureCollection featureCollection, boolean onlyIfChanged) {
+        IncrementalFeatureFilter.Delta delta = incrementalFeatureFilter.update(featureCollection);
+        if (onlyIfChanged && delta.isEmpty()) {
+            return null;
+        }
+
+        for (String featureId : delta.getRemovedFeatureIds()) {
+            centerPoints.remove(featureId);
+        }
+        // Features modified in place keep their instance but may have moved
+        for (Feature feature : delta.getUpdatedFeatures()) {
+            centerPoints.remove(feature.id());
+        }
+        for (Feature feature : delta.getAddedFeatures()) {
+            centerPoints.remove(feature.id());
+        }
+
+        ArrayList<Feature> featureCenterPoints = new ArrayList<>();
+        List<Feature> featureList = delta.getFeatureCollection().features();
+        if (featureList != null) {
+            for (Feature feature : featureList) {
+                String featureId = feature.id();
+                CenterPoint centerPoint = featureId == null ? null : centerPoints.get(featureId);
+                if (centerPoint == null || centerPoint.feature != feature) {
+                    centerPoint = new CenterPoint(feature, calculateCenterPoint(feature));
+                    if (featureId != null) {
+                        centerPoints.put(featureId, centerPoint);
                     }
+                }
 
-                    centerPoints.add(Feature.fromGeometry(featurePoint, feature.properties()));
+                if (centerPoint.centerPoint != null) {
+                    featureCenterPoints.add(centerPoint.centerPoint);
                 }
             }
         }
 
-        return FeatureCollection.fromFeatures(centerPoints);
+        return FeatureCollection.fromFeatures(featureCenterPoints);
+    }
+
+    @Nullable
+    private Feature calculateCenterPoint(@NonNull Feature feature) {
+        Geometry featureGeometry = feature.geometry();
+        if (featureGeometry == null) {
+            return null;
+        }
+
+        Point featurePoint;
+        if (featureGeometry instanceof Point) {
+            featurePoint = (Point) featureGeometry;
+        } else {
+            featurePoint = getCenter(featureGeometry);
+        }
+
+        return Feature.fromGeometry(featurePoint, feature.properties());
     }
 
     /**
@@ -296,23 +366,42 @@ public class BoundaryLayer extends KujakuLayer {
 
     @Override
     public void updateFeatures(@NonNull FeatureCollection featureCollection) {
-        this.builder.featureCollection = featureCollection;
+        synchronized (this) {
+            this.builder.featureCollection = featureCollection;
+        }
 
         if (boundaryLabelLayer != null) {
             GenericAsyncTask genericAsyncTask = new GenericAsyncTask(new AsyncTaskCallable() {
                 @Override
                 public Object[] call() throws Exception {
-                    return new Object[]{calculateCenterPoints(builder.featureCollection)};
+                    // Updates run concurrently, so each one draws the latest features rather than
+                    // the ones it was started with
+                    synchronized (BoundaryLayer.this) {
+                        FeatureCollection currentFeatureCollection = builder.featureCollection;
+                        FeatureCollection boundaryCenterFeatures = updateCenterPoints(currentFeatureCollection, true);
+                        if (boundaryCenterFeatures == null) {
+                            // The boundaries are the same, there is nothing to redraw
+                            return new Object[0];
+                        }
+
+                        return new Object[]{boundaryCenterFeatures, currentFeatureCollection, ++calculationCount};
+                    }
                 }
             });
 
             genericAsyncTask.setOnFinishedListener(new OnFinishedListener() {
                 @Override
                 public void onSuccess(Object[] objects) {
+                    // A newer calculation may have finished first
+                    if (objects.length == 0 || (int) objects[2] < drawnCalculation) {
+                        return;
+                    }
+                    drawnCalculation = (int) objects[2];
+
                     FeatureCollection boundaryCenterFeatures = (FeatureCollection) objects[0];
 
                     boundaryLabelsSource.setGeoJson(boundaryCenterFeatures);
-                    boundarySource.setGeoJson(featureCollection);
+                    boundarySource.setGeoJson((FeatureCollection) objects[1]);
                 }
 
                 @Override
@@ -330,6 +419,17 @@ public class BoundaryLayer extends KujakuLayer {
         return this.builder.getFeatureCollection();
     }
 
+    private static class CenterPoint {
+
+        private final Feature feature;
+        private final Feature centerPoint;
+
+        private CenterPoint(@NonNull Feature feature, @Nullable Feature centerPoint) {
+            this.feature = feature;
+            this.centerPoint = centerPoint;
+        }
+    }
+
     public static class Builder extends KujakuLayer.Builder<BoundaryLayer, Builder> {
 
         public Builder(@NonNull FeatureCollection featureCollection) {
@@ -11,7 +11,6 @@ import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.style.expressions.Expression;
 
 import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Created by Ephraim Kigamba - ekigamba@ona.io on 18/02/2019
@@ -54,6 +53,13 @@ public abstract class KujakuLayer {
 
     public abstract boolean removeLayerOnMap(@NonNull MapboxMap mapboxMap);
 
+    /**
+     * Updates the features drawn by this layer. Layers may skip redrawing when the features are the
+     * same, in the same order and with the same properties and geometries, as in the last update,
+     * whether they were replaced or modified in place.
+     *
+     * @param featureCollection
+     */
     public abstract void updateFeatures(@NonNull FeatureCollection featureCollection);
 
     public abstract FeatureCollection getFeatureCollection() ;
@@ -76,7 +82,8 @@ public abstract class KujakuLayer {
     }
 
     /**
-     * Return the clicked KujakuLayer
+     * Return the clicked KujakuLayer. Callers that hit-test repeatedly should keep a
+     * {@link KujakuLayerHitTester} instead so that the layer ids are not collected on every call.
      *
      * @param pixel
      * @param kujakuLayers
@@ -84,23 +91,7 @@ public abstract class KujakuLayer {
      * @return
      */
     public static KujakuLayer getKujakuLayerSelected(PointF pixel, ArrayList<KujakuLayer> kujakuLayers, MapboxMap mapboxMap) {
-        List<String> kujakuLayerListIds = new ArrayList<>();
-
-        for (KujakuLayer layer: kujakuLayers) {
-            for (String layerId : layer.getLayerIds()) {
-                kujakuLayerListIds.add(layerId);
-            }
-
-            String[] kujakuLayerIds = new String[kujakuLayerListIds.size()];
-            kujakuLayerIds = kujakuLayerListIds.toArray(kujakuLayerIds);
-            List<com.mapbox.geojson.Feature> features = mapboxMap.queryRenderedFeatures(pixel, null, kujakuLayerIds);
-
-            if (features.size() > 0) {
-                return layer;
-            }
-        }
-
-        return null;
+        return new KujakuLayerHitTester(kujakuLayers).getKujakuLayerSelected(pixel, mapboxMap);
     }
 
     /**
@@ -0,0 +1,114 @@
+package io.ona.kujaku.layers;
+
+import android.graphics.PointF;
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the {@link KujakuLayer} that was tapped with as few rendered-feature queries as possible.
+ * <p>
+ * The layer ids of all the {@link KujakuLayer}s are cached in one array, in the order of the layers,
+ * and only rebuilt after {@link #invalidate()} is called when a layer is added or removed. A single
+ * query across all the ids answers taps that miss every layer. When something is hit, the first layer
+ * with a feature under the tap is found by querying growing prefixes of the id array in a binary
+ * search, which takes {@code log2(n)} more queries instead of one query per layer.
+ */
+public class KujakuLayerHitTester {
+
+    private final List<KujakuLayer> kujakuLayers;
+
+    @Nullable
+    private String[] layerIds;
+
+    /**
+     * {@code layerIdEnds[i]} is the number of ids of the layers up to and including layer {@code i}
+     */
+    private int[] layerIdEnds;
+
+    public KujakuLayerHitTester(@NonNull List<KujakuLayer> kujakuLayers) {
+        this.kujakuLayers = kujakuLayers;
+    }
+
+    /**
+     * Drops the cached layer ids. This should be called whenever a layer is added or removed.
+     */
+    public void invalidate() {
+        layerIds = null;
+        layerIdEnds = null;
+    }
+
+    /**
+     * @param pixel
+     * @param mapboxMap
+     * @return the first {@link KujakuLayer} with a rendered feature at {@code pixel}, or {@code null}
+     */
+    @Nullable
+    public KujakuLayer getKujakuLayerSelected(@NonNull PointF pixel, @NonNull MapboxMap mapboxMap) {
+        return getKujakuLayerSelected(pixel, null, mapboxMap);
+    }
+
+    /**
+     * @param box
+     * @param mapboxMap
+     * @return the first {@link KujakuLayer} with a rendered feature within {@code box}, or {@code null}
+     */
+    @Nullable
+    public KujakuLayer getKujakuLayerSelected(@NonNull RectF box, @NonNull MapboxMap mapboxMap) {
+        return getKujakuLayerSelected(null, box, mapboxMap);
+    }
+
+    @Nullable
+    private KujakuLayer getKujakuLayerSelected(@Nullable PointF pixel, @Nullable RectF box, @NonNull MapboxMap mapboxMap) {
+        String[] layerIds = getLayerIds();
+        if (layerIds.length == 0 || !hasFeatures(pixel, box, mapboxMap, layerIdEnds.length - 1)) {
+            return null;
+        }
+
+        // Find the first layer whose prefix of ids has features under the tap
+        int low = 0;
+        int high = layerIdEnds.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (hasFeatures(pixel, box, mapboxMap, mid)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return kujakuLayers.get(low);
+    }
+
+    private boolean hasFeatures(@Nullable PointF pixel, @Nullable RectF box, MapboxMap mapboxMap, int lastLayerIndex) {
+        int end = layerIdEnds[lastLayerIndex];
+        if (end == 0) {
+            return false;
+        }
+        String[] ids = end == layerIds.length ? layerIds : Arrays.copyOf(layerIds, end);
+        return (box != null ? mapboxMap.queryRenderedFeatures(box, null, ids) : mapboxMap.queryRenderedFeatures(pixel, null, ids)).size() > 0;
+    }
+
+    /**
+     * @return the cached ids of all the layers, which should not be modified
+     */
+    @NonNull
+    public String[] getLayerIds() {
+        if (layerIds == null) {
+            List<String> ids = new ArrayList<>();
+            int[] ends = new int[kujakuLayers.size()];
+            for (int i = 0; i < kujakuLayers.size(); i++) {
+                ids.addAll(Arrays.asList(kujakuLayers.get(i).getLayerIds()));
+                ends[i] = ids.size();
+            }
+            layerIds = ids.toArray(new String[0]);
+            layerIdEnds = ends;
+        }
+        return layerIds;
+    }
+}
@@ -0,0 +1,17 @@
+package io.ona.kujaku.listeners;
+
+/**
+ * Reports updates of the primary GeoJSON source of a {@link io.ona.kujaku.views.KujakuMapView}
+ */
+
+public interface OnFeatureSourceUpdatedListener {
+
+    /**
+     * Called once the map has fully rendered a frame after the primary source was updated
+     *
+     * @param changedFeatureCount the number of features added, updated or removed in the update
+     * @param timeToVisibleMillis the time from the first of the coalesced changes until the map
+     *                            finished rendering them, in milliseconds
+     */
+    void onFeatureSourceUpdated(int changedFeatureCount, long timeToVisibleMillis);
+}
@@ -0,0 +1,150 @@
+package io.ona.kujaku.mbtiles;
+
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves the tiles of several .mbtiles files under a single key, so that packs split by
+ * zoom range or region are drawn as one map source instead of one source per file.
+ * A tile is served from the first file, in the order given, whose zoom range and bounds
+ * cover it and which actually contains it.
+ */
+public class CompositeTileSource implements TileHttpServer.ValidatedTileSource, Closeable {
+
+    public static final int MIN_ZOOM = 0;
+    public static final int MAX_ZOOM = 22;
+
+    private final List<Member> members = new ArrayList<>();
+
+    public CompositeTileSource(@NonNull List<MbtilesFile> files) {
+        for (MbtilesFile file : files) {
+            members.add(new Member(file));
+        }
+    }
+
+    public List<MbtilesFile> getFiles() {
+        List<MbtilesFile> files = new ArrayList<>();
+        for (Member member : members) {
+            files.add(member.file);
+        }
+        return files;
+    }
+
+    @Override
+    public TileHttpServer.Response getTile(int zoom, int x, int y) {
+        for (Member member : members) {
+            if (member.covers(zoom, x, y)) {
+                TileHttpServer.Response response = member.file.getTile(zoom, x, y);
+                if (response != null) {
+                    return response;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the ETag of the file that {@link #getTile} would serve the tile from.  Until the
+     * coverage index of a file that may hold the tile is loaded, that file cannot be told
+     * apart from a later one, so no ETag is returned and the tile is served in full.
+     */
+    @Override
+    public String getETag(int zoom, int x, int y) {
+        for (Member member : members) {
+            if (member.covers(zoom, x, y)) {
+                // Checked first so that the coverage cannot be loaded in between
+                boolean coverageLoaded = member.file.isCoverageLoaded();
+                if (member.file.mayContainTile(zoom, x, (1 << zoom) - 1 - y)) {
+                    return coverageLoaded ? member.file.getETag(zoom, x, y) : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        for (Member member : members) {
+            member.file.close();
+        }
+    }
+
+    /** Returns the smallest minzoom of the files. */
+    public int getMinZoom() {
+        int minZoom = MAX_ZOOM;
+        for (Member member : members) {
+            minZoom = Math.min(minZoom, member.minZoom);
+        }
+        return minZoom;
+    }
+
+    /** Returns the largest maxzoom of the files. */
+    public int getMaxZoom() {
+        int maxZoom = MIN_ZOOM;
+        for (Member member : members) {
+            maxZoom = Math.max(maxZoom, member.maxZoom);
+        }
+        return maxZoom;
+    }
+
+    /**
+     * Returns the union of the bounds of the files as {left, bottom, right, top},
+     * or null if any file does not declare its bounds.
+     */
+    public float[] getBounds() {
+        float[] union = null;
+        for (Member member : members) {
+            if (member.bounds == null) {
+                return null;
+            } else if (union == null) {
+                union = member.bounds.clone();
+            } else {
+                union[0] = Math.min(union[0], member.bounds[0]);
+                union[1] = Math.min(union[1], member.bounds[1]);
+                union[2] = Math.max(union[2], member.bounds[2]);
+                union[3] = Math.max(union[3], member.bounds[3]);
+            }
+        }
+        return union;
+    }
+
+    /** Converts an XYZ tile column to the longitude of its west edge. */
+    static double tileToLongitude(int x, int zoom) {
+        return x / (double) (1 << zoom) * 360 - 180;
+    }
+
+    /** Converts an XYZ tile row to the latitude of its north edge. */
+    static double tileToLatitude(int y, int zoom) {
+        double n = Math.PI * (1 - 2 * y / (double) (1 << zoom));
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    /** A file with its zoom range and bounds, read once from its metadata. */
+    static class Member {
+        final MbtilesFile file;
+        final int minZoom;
+        final int maxZoom;
+        final float[] bounds;
+
+        Member(MbtilesFile file) {
+            this.file = file;
+            minZoom = file.getMinZoom(MIN_ZOOM);
+            maxZoom = file.getMaxZoom(MAX_ZOOM);
+            bounds = file.getBounds();
+        }
+
+        boolean covers(int zoom, int x, int y) {
+            if (zoom < minZoom || zoom > maxZoom) {
+                return false;
+            }
+            if (bounds == null) {
+                return true;
+            }
+            return tileToLongitude(x, zoom) <= bounds[2] && tileToLongitude(x + 1, zoom) >= bounds[0]
+                    && tileToLatitude(y + 1, zoom) <= bounds[3] && tileToLatitude(y, zoom) >= bounds[1];
+        }
+    }
+}
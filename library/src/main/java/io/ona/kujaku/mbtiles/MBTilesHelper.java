@@ -2,6 +2,7 @@ package io.ona.kujaku.mbtiles;
 
 import android.content.Context;
 import android.graphics.Color;
+import android.os.AsyncTask;
 import android.os.Environment;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
@@ -22,11 +23,15 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+import io.ona.kujaku.callables.AsyncTaskCallable;
+import io.ona.kujaku.listeners.OnFinishedListener;
 import io.ona.kujaku.plugin.switcher.BaseLayerSwitcherPlugin;
 import io.ona.kujaku.plugin.switcher.layer.MBTilesLayer;
+import io.ona.kujaku.tasks.GenericAsyncTask;
 import timber.log.Timber;
 
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.fillColor;
@@ -45,8 +50,16 @@ public class MBTilesHelper {
 
     public static final String MB_TILES_DIRECTORY = "/mbtiles";
 
+    public static final int DEFAULT_TILE_CACHE_SIZE_MB = 16;
+
     protected TileHttpServer tileServer;
 
+    protected TileCache tileCache;
+
+    private int tileCacheSizeMb = DEFAULT_TILE_CACHE_SIZE_MB;
+
+    private boolean decompressVectorTiles;
+
     private File mbtilesDir = new File(Environment.getExternalStorageDirectory().getPath() + MB_TILES_DIRECTORY);
 
     private void init(List<File> offlineFiles) {
@@ -97,22 +110,79 @@ public class MBTilesHelper {
 
     }
 
+    /**
+     * Lists the .mbtiles files and adds them to the base layer switcher like
+     * {@link #setMBTileLayers(Context, BaseLayerSwitcherPlugin)}, but reads their metadata
+     * on a background thread, from an index in the cache directory when the files have
+     * not changed.  The layers only open their databases once they are added to the map.
+     */
+    public void setMBTileLayersAsync(final Context context, final BaseLayerSwitcherPlugin baseLayerSwitcherPlugin) {
+        final File indexFile = new File(context.getCacheDir(), MBTilesIndex.INDEX_FILE_NAME);
+        GenericAsyncTask genericAsyncTask = new GenericAsyncTask(new AsyncTaskCallable() {
+            @Override
+            public Object[] call() {
+                return new Object[]{new MBTilesIndex(indexFile).scan(mbtilesDir)};
+            }
+        });
+        genericAsyncTask.setOnFinishedListener(new OnFinishedListener() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public void onSuccess(Object[] objects) {
+                for (MBTilesIndex.Entry entry : (List<MBTilesIndex.Entry>) objects[0]) {
+                    baseLayerSwitcherPlugin.addBaseLayer(new MBTilesLayer(context, entry, MBTilesHelper.this), false);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Timber.e(e, "Could not list the mbtiles files");
+            }
+        });
+        genericAsyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
     private void initializeMbTilesServer() {
         // Mapbox SDK only knows how to fetch tiles via HTTP.  If we want it to
         // display tiles from a local file, we have to serve them locally over HTTP.
         try {
             tileServer = new TileHttpServer();
             tileServer.start();
+            tileCache = tileCacheSizeMb > 0 ? new TileCache(tileCacheSizeMb) : null;
         } catch (IOException e) {
             Timber.e(e, "Could not start the TileHttpServer");
         }
 
     }
 
+    /**
+     * Sets the memory budget of the cache that sits in front of the .mbtiles files.
+     * Only takes effect before the tile server is started; 0 disables the cache.
+     *
+     * @param megabytes the maximum size of cached tile data, in megabytes
+     */
+    public void setTileCacheSize(int megabytes) {
+        tileCacheSizeMb = megabytes;
+    }
+
+    /**
+     * Serves vector tiles uncompressed, inflating each tile once before it is cached,
+     * instead of having the map inflate it on every load.
+     */
+    public void setDecompressVectorTiles(boolean decompressVectorTiles) {
+        this.decompressVectorTiles = decompressVectorTiles;
+    }
+
+    public TileCache getTileCache() {
+        return tileCache;
+    }
+
     public void onDestroy() {
         if (tileServer != null) {
             tileServer.destroy();
         }
+        if (tileCache != null) {
+            tileCache.evictAll();
+        }
     }
 
     private void addMbtiles(Style style, String id, File file) {
@@ -125,46 +195,157 @@ public class MBTilesHelper {
     }
 
     private Pair<Source, List<Layer>> addMbtiles(String id, File file) {
-        MbtilesFile mbtiles;
-        List<Layer> mapLayers = new ArrayList<>();
-        Source source = null;
+        MbtilesFile mbtiles = openMbtiles(file);
+        if (mbtiles == null) {
+            return null;
+        }
+
+        TileSet tileSet = createTileSet(mbtiles, tileServer.getUrlTemplate(id));
+        addTileSource(id, mbtiles);
+        Pair<Source, List<Layer>> sourceAndLayers = createSourceAndLayers(id, mbtiles.getType(), mbtiles.getVectorLayers(), tileSet);
+        Timber.i("Added %s as a %s layer at /%s", file, mbtiles.getType(), id);
+        return sourceAndLayers;
+    }
+
+    /**
+     * Serves several .mbtiles files, e.g. a district pack split by zoom range or region,
+     * as a single source so the map draws one source and one set of layers instead of
+     * one per file.  Tiles are taken from the first file, in the order given, whose zoom
+     * range and bounds cover them.  Files whose type differs from the first usable
+     * file are skipped.
+     *
+     * @param id the source id and URL key of the combined tiles
+     * @return the source and layers, or null if none of the files could be used
+     */
+    public Pair<Set<Source>, Set<Layer>> initializeCompositeMbTilesLayers(@NonNull String id, @NonNull List<File> offlineFiles) {
+        init(offlineFiles);
+        List<MbtilesFile> files = new ArrayList<>();
+        Set<String> vectorLayerNames = new LinkedHashSet<>();
+        List<MbtilesFile.VectorLayer> vectorLayers = new ArrayList<>();
+        MbtilesFile.Type type = null;
+        for (File file : offlineFiles) {
+            MbtilesFile mbtiles = file.getName().endsWith(MB_TILES_EXTENSION) ? openMbtiles(file) : null;
+            if (mbtiles == null) {
+                continue;
+            } else if (type != null && mbtiles.getType() != type) {
+                Timber.w("Skipping %s: it is not a %s layer like the other files of %s", file, type, id);
+                mbtiles.close();
+                continue;
+            }
+            type = mbtiles.getType();
+            files.add(mbtiles);
+            for (MbtilesFile.VectorLayer layer : mbtiles.getVectorLayers()) {
+                if (vectorLayerNames.add(layer.name)) {
+                    vectorLayers.add(layer);
+                }
+            }
+        }
+        if (files.isEmpty()) {
+            return null;
+        }
+
+        CompositeTileSource compositeSource = new CompositeTileSource(files);
+        TileSet tileSet = new TileSet("2.2.0", tileServer.getUrlTemplate(id));
+        tileSet.setName(id);
+        tileSet.setMinZoom(compositeSource.getMinZoom());
+        tileSet.setMaxZoom(compositeSource.getMaxZoom());
+        float[] bounds = compositeSource.getBounds();
+        if (bounds != null) {
+            tileSet.setBounds(bounds[0], bounds[1], bounds[2], bounds[3]);
+        }
+        addTileSource(id, compositeSource);
+
+        Pair<Source, List<Layer>> sourceAndLayers = createSourceAndLayers(id, type, vectorLayers, tileSet);
+        Timber.i("Added %d files as a %s layer at /%s", files.size(), type, id);
+        Set<Source> sources = new HashSet<>();
+        Set<Layer> layers = new HashSet<>(sourceAndLayers.second);
+        sources.add(sourceAndLayers.first);
+        return new Pair<>(sources, layers);
+    }
+
+    public void initializeCompositeMbTilesLayers(@NonNull Style style, @NonNull String id, @NonNull List<File> offlineFiles) {
+        Pair<Set<Source>, Set<Layer>> sourcesAndLayers = initializeCompositeMbTilesLayers(id, offlineFiles);
+        if (sourcesAndLayers != null) {
+            for (Source source : sourcesAndLayers.first)
+                style.addSource(source);
+            for (Layer layer : sourcesAndLayers.second)
+                style.addLayer(layer);
+        }
+    }
+
+    private MbtilesFile openMbtiles(File file) {
         try {
-            mbtiles = new MbtilesFile(file);
+            MbtilesFile mbtiles = new MbtilesFile(file);
+            mbtiles.setDecompressTiles(decompressVectorTiles);
+            return mbtiles;
         } catch (MbtilesFile.UnsupportedFormatException e) {
             Timber.w(e, "The mbtiles format is not known ");
             return null;
         }
+    }
 
-        TileSet tileSet = createTileSet(mbtiles, tileServer.getUrlTemplate(id));
-        tileServer.addSource(id, mbtiles);
+    private void addTileSource(String id, TileHttpServer.TileSource source) {
+        tileServer.addSource(id, tileCache != null ? tileCache.wrap(id, source) : source);
+    }
 
-        if (mbtiles.getType() == MbtilesFile.Type.VECTOR) {
+    private Pair<Source, List<Layer>> createSourceAndLayers(String id, MbtilesFile.Type type,
+                                                            List<MbtilesFile.VectorLayer> layers, TileSet tileSet) {
+        List<Layer> mapLayers = new ArrayList<>();
+        Source source = null;
+        if (type == MbtilesFile.Type.VECTOR) {
             source = new VectorSource(id, tileSet);
-            List<MbtilesFile.VectorLayer> layers = mbtiles.getVectorLayers();
             for (MbtilesFile.VectorLayer layer : layers) {
                 // Pick a colour that's a function of the filename and layer name.
                 int hue = (((id + "." + layer.name).hashCode()) & 0x7fffffff) % 360;
-                mapLayers.add(new FillLayer(id + "/" + layer.name + ".fill", id).withProperties(
+                mapLayers.add(new FillLayer(getFillLayerId(id, layer.name), id).withProperties(
                         fillColor(Color.HSVToColor(new float[]{hue, 0.3f, 1})),
                         fillOpacity(0.1f)
                 ).withSourceLayer(layer.name));
-                mapLayers.add(new LineLayer(id + "/" + layer.name + ".line", id).withProperties(
+                mapLayers.add(new LineLayer(getLineLayerId(id, layer.name), id).withProperties(
                         lineColor(Color.HSVToColor(new float[]{hue, 0.7f, 1})),
                         lineWidth(1f),
                         lineOpacity(0.7f)
                 ).withSourceLayer(layer.name));
             }
         }
-        if (mbtiles.getType() == MbtilesFile.Type.RASTER) {
+        if (type == MbtilesFile.Type.RASTER) {
             source = new RasterSource(id, tileSet);
-            mapLayers.add(new RasterLayer(id + ".raster", id).withProperties(
+            mapLayers.add(new RasterLayer(getRasterLayerId(id), id).withProperties(
                     rasterOpacity(0.5f)
             ));
         }
-        Timber.i("Added %s as a %s layer at /%s", file, mbtiles.getType(), id);
         return new Pair<>(source, mapLayers);
     }
 
+    /**
+     * Returns the ids of the layers that {@link #initializeMbTileslayers(File)} creates for
+     * an indexed file, without opening it.
+     */
+    public static String[] getLayerIds(@NonNull MBTilesIndex.Entry entry) {
+        List<String> layerIds = new ArrayList<>();
+        if (entry.type == MbtilesFile.Type.VECTOR) {
+            for (String layerName : entry.vectorLayers) {
+                layerIds.add(getFillLayerId(entry.name, layerName));
+                layerIds.add(getLineLayerId(entry.name, layerName));
+            }
+        } else {
+            layerIds.add(getRasterLayerId(entry.name));
+        }
+        return layerIds.toArray(new String[0]);
+    }
+
+    private static String getFillLayerId(String id, String layerName) {
+        return id + "/" + layerName + ".fill";
+    }
+
+    private static String getLineLayerId(String id, String layerName) {
+        return id + "/" + layerName + ".line";
+    }
+
+    private static String getRasterLayerId(String id) {
+        return id + ".raster";
+    }
+
     private TileSet createTileSet(MbtilesFile mbtiles, String urlTemplate) {
         TileSet tileSet = new TileSet("2.2.0", urlTemplate);
 
@@ -0,0 +1,202 @@
+package io.ona.kujaku.mbtiles;
+
+import android.database.sqlite.SQLiteException;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.ona.kujaku.utils.IOUtil;
+import timber.log.Timber;
+
+import static io.ona.kujaku.mbtiles.MBTilesHelper.MB_TILES_EXTENSION;
+
+/**
+ * A small on-disk index of the metadata of .mbtiles files, keyed by path and
+ * modification time, so that listing the available packs does not require opening
+ * every SQLite database each time the map starts.
+ */
+public class MBTilesIndex {
+
+    public static final String INDEX_FILE_NAME = "mbtiles-index.json";
+
+    private final File indexFile;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean modified;
+
+    public MBTilesIndex(@NonNull File indexFile) {
+        this.indexFile = indexFile;
+        load();
+    }
+
+    /**
+     * Returns the metadata of every .mbtiles file in a directory, reading it from the
+     * index when the file has not changed and from the file itself otherwise.  Files
+     * that cannot be read are left out.  This opens databases, so it should not be
+     * called on the main thread.
+     */
+    public List<Entry> scan(@NonNull File directory) {
+        List<Entry> result = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Entry entry = file.getName().endsWith(MB_TILES_EXTENSION) ? getEntry(file) : null;
+                if (entry != null) {
+                    result.add(entry);
+                }
+            }
+        }
+        save();
+        return result;
+    }
+
+    @Nullable
+    public Entry getEntry(@NonNull File file) {
+        String path = file.getAbsolutePath();
+        Entry entry = entries.get(path);
+        if (entry != null && entry.lastModified == file.lastModified()) {
+            return entry;
+        }
+
+        try {
+            MbtilesFile mbtiles = new MbtilesFile(file);
+            try {
+                entry = new Entry(file, mbtiles);
+            } finally {
+                mbtiles.close();
+            }
+        } catch (SQLiteException | IOException e) {
+            Timber.w(e, "Could not read the metadata of %s", file);
+            return null;
+        }
+        entries.put(path, entry);
+        modified = true;
+        return entry;
+    }
+
+    private void load() {
+        if (!indexFile.exists()) {
+            return;
+        }
+        try (InputStream input = new FileInputStream(indexFile)) {
+            JSONArray jsonEntries = new JSONArray(IOUtil.readInputStreamAsString(input));
+            for (int i = 0; i < jsonEntries.length(); i++) {
+                Entry entry = new Entry(jsonEntries.getJSONObject(i));
+                entries.put(entry.path, entry);
+            }
+        } catch (IOException | JSONException e) {
+            Timber.w(e, "Could not read the mbtiles index; it will be rebuilt");
+            entries.clear();
+        }
+    }
+
+    /** Writes the index back to disk if any entry was added or refreshed. */
+    public void save() {
+        if (!modified) {
+            return;
+        }
+        JSONArray jsonEntries = new JSONArray();
+        try {
+            for (Entry entry : entries.values()) {
+                if (new File(entry.path).exists()) {
+                    jsonEntries.put(entry.toJson());
+                }
+            }
+        } catch (JSONException e) {
+            Timber.e(e);
+            return;
+        }
+        try (OutputStream output = new FileOutputStream(indexFile)) {
+            output.write(jsonEntries.toString().getBytes("UTF-8"));
+            modified = false;
+        } catch (IOException e) {
+            Timber.e(e, "Could not write the mbtiles index");
+        }
+    }
+
+    /** The metadata of one .mbtiles file that is needed to list it and create its layers. */
+    public static class Entry {
+        public final String path;
+        public final long lastModified;
+        public final String name;
+        public final MbtilesFile.Type type;
+        public final int minZoom;
+        public final int maxZoom;
+        @Nullable
+        public final float[] bounds;
+        public final List<String> vectorLayers = new ArrayList<>();
+
+        Entry(File file, MbtilesFile mbtiles) {
+            path = file.getAbsolutePath();
+            lastModified = file.lastModified();
+            name = file.getName().substring(0, file.getName().length() - MB_TILES_EXTENSION.length());
+            type = mbtiles.getType();
+            minZoom = mbtiles.getMinZoom(CompositeTileSource.MIN_ZOOM);
+            maxZoom = mbtiles.getMaxZoom(CompositeTileSource.MAX_ZOOM);
+            bounds = mbtiles.getBounds();
+            if (type == MbtilesFile.Type.VECTOR) {
+                for (MbtilesFile.VectorLayer layer : mbtiles.getVectorLayers()) {
+                    vectorLayers.add(layer.name);
+                }
+            }
+        }
+
+        Entry(JSONObject json) throws JSONException {
+            path = json.getString("path");
+            lastModified = json.getLong("lastModified");
+            name = json.getString("name");
+            type = MbtilesFile.Type.valueOf(json.getString("type"));
+            minZoom = json.getInt("minZoom");
+            maxZoom = json.getInt("maxZoom");
+            JSONArray jsonBounds = json.optJSONArray("bounds");
+            if (jsonBounds != null && jsonBounds.length() == 4) {
+                bounds = new float[4];
+                for (int i = 0; i < 4; i++) {
+                    bounds[i] = (float) jsonBounds.getDouble(i);
+                }
+            } else {
+                bounds = null;
+            }
+            JSONArray jsonLayers = json.getJSONArray("vectorLayers");
+            for (int i = 0; i < jsonLayers.length(); i++) {
+                vectorLayers.add(jsonLayers.getString(i));
+            }
+        }
+
+        public File getFile() {
+            return new File(path);
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("path", path);
+            json.put("lastModified", lastModified);
+            json.put("name", name);
+            json.put("type", type.name());
+            json.put("minZoom", minZoom);
+            json.put("maxZoom", maxZoom);
+            if (bounds != null) {
+                JSONArray jsonBounds = new JSONArray();
+                for (float bound : bounds) {
+                    jsonBounds.put((double) bound);
+                }
+                json.put("bounds", jsonBounds);
+            }
+            json.put("vectorLayers", new JSONArray(vectorLayers));
+            return json;
+        }
+    }
+}
@@ -2,8 +2,12 @@ package io.ona.kujaku.mbtiles;
 
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteStatement;
+import android.os.AsyncTask;
 import android.support.annotation.NonNull;
+import android.util.LruCache;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -13,8 +17,14 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import timber.log.Timber;
 
@@ -24,15 +34,51 @@ import timber.log.Timber;
  * columns, including tiles that may contain raster images or vector geometry.
  * See https://github.com/mapbox/mbtiles-spec for the detailed specification.
  */
-public class MbtilesFile implements Closeable, TileHttpServer.TileSource {
+public class MbtilesFile implements Closeable, TileHttpServer.ValidatedTileSource {
     public enum Type { RASTER, VECTOR }
 
+    // Queries for the deduplicated schema, in which "tiles" is a view joining
+    // the "map" table of coordinates to the "images" table of unique tile data.
+    protected static final String TILE_ID_QUERY = "SELECT tile_id FROM map"
+            + " WHERE zoom_level = ? AND tile_column = ? AND tile_row = ?";
+    protected static final String IMAGE_QUERY = "SELECT tile_data FROM images WHERE tile_id = ?";
+
+    // Query for the flat schema, or the "tiles" view of the deduplicated one.  The SQL never
+    // changes, so the connection compiles it once and reuses it from its statement cache.
+    protected static final String TILE_QUERY = "SELECT tile_data FROM tiles"
+            + " WHERE zoom_level = ? AND tile_column = ? AND tile_row = ?";
+
+    public static final int DEFAULT_IMAGE_CACHE_SIZE = 4 * 1024 * 1024;
+
     protected File file;
     protected SQLiteDatabase db;
     protected String format;
     protected Type type;
     protected String contentType = "application/octet-stream";
     protected String contentEncoding = "identity";
+    protected TileHttpServer.ContentHeaders contentHeaders;
+    protected TileHttpServer.ContentHeaders gzipContentHeaders;
+    protected TileHttpServer.ContentHeaders deflateContentHeaders;
+    protected boolean decompressTiles;
+    protected String etagPrefix;
+    protected boolean deduplicated;
+    protected volatile TileCoverage coverage;
+    private final AtomicBoolean coverageRequested = new AtomicBoolean();
+
+    // Tile data shared by several coordinates in a deduplicated file, keyed by tile_id
+    protected LruCache<String, byte[]> imageCache = new LruCache<String, byte[]>(DEFAULT_IMAGE_CACHE_SIZE) {
+        @Override
+        protected int sizeOf(@NonNull String tileId, @NonNull byte[] data) {
+            return data.length;
+        }
+    };
+
+    // SQLiteStatement is not thread-safe, so each tile server worker compiles
+    // its own copy of the tile_id lookup once and reuses it for every request.
+    private final ThreadLocal<SQLiteStatement> tileIdStatement = new ThreadLocal<>();
+    // Held while tiles are read so that the database is not reopened under another worker
+    private final ReadWriteLock databaseLock = new ReentrantReadWriteLock();
+    private final Set<SQLiteStatement> tileStatements = Collections.newSetFromMap(new ConcurrentHashMap<SQLiteStatement, Boolean>());
 
     public MbtilesFile(File file) throws SQLiteException, UnsupportedFormatException {
         this.file = file;
@@ -47,8 +93,8 @@ public class MbtilesFile implements Closeable, TileHttpServer.TileSource {
             format="png";
 
         if (format.equals("pbf") || format.equals("mvt")) {
+            // The actual encoding of vector tiles is detected from each tile's data
             contentType = "application/protobuf";
-            contentEncoding = "gzip";
             type = Type.VECTOR;
         } else if (format.equals("jpg") || format.equals("jpeg")) {
             contentType = "image/jpeg";
@@ -60,14 +106,52 @@ public class MbtilesFile implements Closeable, TileHttpServer.TileSource {
             db.close();
             throw new UnsupportedFormatException(file, format);
         }
+        contentHeaders = new TileHttpServer.ContentHeaders(contentType, contentEncoding);
+        gzipContentHeaders = new TileHttpServer.ContentHeaders(contentType, TileEncoding.GZIP);
+        deflateContentHeaders = new TileHttpServer.ContentHeaders(contentType, TileEncoding.DEFLATE);
+        // Tiles only change when the file is replaced, so its modification time
+        // and the tile coordinates make a stable validator.
+        etagPrefix = "\"" + Long.toHexString(file.lastModified()) + "-";
+        deduplicated = hasTable("map") && hasTable("images");
     }
 
     public Type getType() {
         return type;
     }
 
+    /**
+     * @return whether tiles are stored in the normalized "map" + "images" schema, where
+     * identical tiles share a single row of tile data
+     */
+    public boolean isDeduplicated() {
+        return deduplicated;
+    }
+
+    /**
+     * When enabled, compressed vector tiles are inflated here and served uncompressed,
+     * so that the tile cache in front of this file holds ready-to-parse tiles and the
+     * map does not have to decompress them again on every load.
+     */
+    public void setDecompressTiles(boolean decompressTiles) {
+        this.decompressTiles = decompressTiles;
+    }
+
     public void close() {
-        db.close();
+        databaseLock.writeLock().lock();
+        try {
+            closeTileStatements();
+            imageCache.evictAll();
+            db.close();
+        } finally {
+            databaseLock.writeLock().unlock();
+        }
+    }
+
+    protected boolean hasTable(String name) {
+        try (Cursor results = db.query("sqlite_master", new String[] {"name"},
+                "type = 'table' AND name = ?", new String[] {name}, null, null, null)) {
+            return results.moveToFirst();
+        }
     }
 
     /** Queries the "metadata" table, which has just "name" and "value" columns. */
@@ -78,12 +162,125 @@ public class MbtilesFile implements Closeable, TileHttpServer.TileSource {
         }
     }
 
+    /** Returns the "minzoom" metadata value, or the given default if it is missing. */
+    public int getMinZoom(int defaultZoom) {
+        return getIntMetadata("minzoom", defaultZoom);
+    }
+
+    /** Returns the "maxzoom" metadata value, or the given default if it is missing. */
+    public int getMaxZoom(int defaultZoom) {
+        return getIntMetadata("maxzoom", defaultZoom);
+    }
+
+    /**
+     * Returns the "bounds" metadata value as {left, bottom, right, top} in degrees,
+     * or null if it is missing or malformed.
+     */
+    public float[] getBounds() {
+        String[] parts = getMetadata("bounds").split(",");
+        if (parts.length == 4) {
+            try {
+                return new float[] {
+                        Float.parseFloat(parts[0]), Float.parseFloat(parts[1]),
+                        Float.parseFloat(parts[2]), Float.parseFloat(parts[3])
+                };
+            } catch (NumberFormatException e) { /* ignore */ }
+        }
+        return null;
+    }
+
+    private int getIntMetadata(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(getMetadata(key));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     /** Puts together the HTTP response for a given tile. */
     public TileHttpServer.Response getTile(int zoom, int x, int y) {
         // TMS coordinates are used in .mbtiles files, so Y needs to be flipped.
-        byte[] data = getTileBlob(zoom, x, (1 << zoom) - 1 - y);
-        return data == null ? null :
-                new TileHttpServer.Response(data, contentType, contentEncoding);
+        int row = (1 << zoom) - 1 - y;
+        if (!mayContainTile(zoom, x, row)) {
+            return null;
+        }
+        byte[] data = getTileBlob(zoom, x, row);
+        if (data == null) {
+            return null;
+        }
+
+        TileHttpServer.ContentHeaders headers = contentHeaders;
+        if (type == Type.VECTOR) {
+            String encoding = TileEncoding.sniff(data);
+            if (decompressTiles && !TileEncoding.IDENTITY.equals(encoding)) {
+                try {
+                    data = TileEncoding.decode(data, encoding);
+                    encoding = TileEncoding.IDENTITY;
+                } catch (IOException e) {
+                    Timber.w(e, "Could not decompress tile at zoom %d, x %d, y %d", zoom, x, y);
+                }
+            }
+            headers = getContentHeaders(encoding);
+        }
+        return new TileHttpServer.Response(data, headers, getETag(zoom, x, y));
+    }
+
+    protected TileHttpServer.ContentHeaders getContentHeaders(String encoding) {
+        if (TileEncoding.GZIP.equals(encoding)) {
+            return gzipContentHeaders;
+        } else if (TileEncoding.DEFLATE.equals(encoding)) {
+            return deflateContentHeaders;
+        }
+        return contentHeaders;
+    }
+
+    @Override
+    public String getETag(int zoom, int x, int y) {
+        return etagPrefix + zoom + "-" + x + "-" + y + "\"";
+    }
+
+    /**
+     * Checks the coverage index for a tile.  The index is built in the background the
+     * first time this is called; until it is ready every tile may be present.
+     *
+     * @return false only if the tile is known to be missing from the file
+     */
+    public boolean mayContainTile(int zoom, int column, int row) {
+        TileCoverage coverage = this.coverage;
+        if (coverage == null) {
+            loadCoverageInBackground();
+            return true;
+        }
+        return coverage.contains(zoom, column, row);
+    }
+
+    /**
+     * @return true once the coverage index is built, after which {@link #mayContainTile}
+     * tells for certain whether a tile is in the file
+     */
+    public boolean isCoverageLoaded() {
+        return coverage != null;
+    }
+
+    protected void loadCoverageInBackground() {
+        if (coverageRequested.compareAndSet(false, true)) {
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    databaseLock.readLock().lock();
+                    try {
+                        long start = System.currentTimeMillis();
+                        coverage = TileCoverage.load(db, deduplicated ? "map" : "tiles");
+                        Timber.i("Indexed %d tiles of %s in %d ms", coverage.getTileCount(), file,
+                                System.currentTimeMillis() - start);
+                    } catch (SQLiteException | IllegalStateException e) {
+                        Timber.w(e, "Could not index the tiles of %s", file);
+                    } finally {
+                        databaseLock.readLock().unlock();
+                    }
+                }
+            });
+        }
     }
 
     /** Fetches a tile out of the .mbtiles SQLite database. */
@@ -91,35 +288,116 @@ public class MbtilesFile implements Closeable, TileHttpServer.TileSource {
     // really do want to return null when there is no tile available.
     @SuppressWarnings("PMD.ReturnEmptyArrayRatherThanNull")
     public byte[] getTileBlob(int zoom, int column, int row) {
-        // We have to use String.format because the templating mechanism in
-        // SQLiteDatabase.query is written for a strange alternate universe
-        // in which numbers don't exist -- it only supports strings!
-        String selection = String.format(
-                Locale.US,
-                "zoom_level = %d and tile_column = %d and tile_row = %d",
-                zoom, column, row
-        );
-
-        try (Cursor results = db.query("tiles", new String[] {"tile_data"},
-                selection, null, null, null, null)) {
-            if (results.moveToFirst()) {
+        SQLiteDatabase failedDb;
+        databaseLock.readLock().lock();
+        try {
+            if (deduplicated) {
                 try {
-                    return results.getBlob(0);
-                } catch (IllegalStateException e) {
-                    Timber.w(e, "Could not select tile data at zoom %d, column %d, row %d", zoom, column, row);
-                    // In Android, the SQLite cursor can handle at most 2 MB in one row;
-                    // exceeding 2 MB in an .mbtiles file is rare, but it can happen.
-                    // When an attempt to fetch a large row fails, the database ends up
-                    // in an unusable state, so we need to close it and reopen it.
-                    // See https://stackoverflow.com/questions/20094421/cursor-window-window-is-full
-                    db.close();
-                    db = SQLiteDatabase.openOrCreateDatabase(file, null);
+                    return queryDeduplicatedTileBlob(zoom, column, row);
+                } catch (SQLiteException e) {
+                    Timber.w(e, "Falling back to a cursor query for tile at zoom %d, column %d, row %d", zoom, column, row);
                 }
             }
+            return queryTileBlobWithCursor(zoom, column, row);
+        } catch (IllegalStateException e) {
+            Timber.w(e, "Could not select tile data at zoom %d, column %d, row %d", zoom, column, row);
+            failedDb = db;
+        } finally {
+            databaseLock.readLock().unlock();
         }
+
+        // In Android, the SQLite cursor can handle at most 2 MB in one row;
+        // exceeding 2 MB in an .mbtiles file is rare, but it can happen.
+        // When an attempt to fetch a large row fails, the database ends up
+        // in an unusable state, so we need to close it and reopen it.
+        // See https://stackoverflow.com/questions/20094421/cursor-window-window-is-full
+        reopenDatabase(failedDb);
         return null;
     }
 
+    /**
+     * Waits for the other workers to finish their queries, then reopens the database
+     * unless another worker already replaced the one that failed.
+     */
+    protected void reopenDatabase(SQLiteDatabase failedDb) {
+        databaseLock.writeLock().lock();
+        try {
+            if (db == failedDb && db.isOpen()) {
+                closeTileStatements();
+                db.close();
+                db = SQLiteDatabase.openOrCreateDatabase(file, null);
+            }
+        } finally {
+            databaseLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Looks up the tile_id in the "map" table and then reads the tile data from the
+     * "images" table, unless the same tile_id was read recently.  Empty and ocean
+     * tiles typically share one tile_id, so they are only read from disk once.
+     */
+    @SuppressWarnings("PMD.ReturnEmptyArrayRatherThanNull")
+    protected byte[] queryDeduplicatedTileBlob(int zoom, int column, int row) {
+        String tileId;
+        SQLiteStatement statement = getStatement(tileIdStatement, TILE_ID_QUERY);
+        try {
+            statement.bindLong(1, zoom);
+            statement.bindLong(2, column);
+            statement.bindLong(3, row);
+            tileId = statement.simpleQueryForString();
+        } catch (SQLiteDoneException e) {
+            return null;  // no such tile
+        } finally {
+            statement.clearBindings();
+        }
+        if (tileId == null) {
+            return null;
+        }
+
+        byte[] data = imageCache.get(tileId);
+        if (data != null) {
+            return data;
+        }
+
+        try (Cursor results = db.rawQuery(IMAGE_QUERY, new String[] {tileId})) {
+            if (!results.moveToFirst()) {
+                return null;  // the map refers to a missing image
+            }
+            data = results.getBlob(0);
+        }
+        imageCache.put(tileId, data);
+        return data;
+    }
+
+    protected SQLiteStatement getStatement(ThreadLocal<SQLiteStatement> threadStatement, String sql) {
+        SQLiteStatement statement = threadStatement.get();
+        // Statements are discarded whenever the database is closed or reopened
+        if (statement == null || !tileStatements.contains(statement)) {
+            statement = db.compileStatement(sql);
+            tileStatements.add(statement);
+            threadStatement.set(statement);
+        }
+        return statement;
+    }
+
+    private void closeTileStatements() {
+        for (SQLiteStatement statement : tileStatements) {
+            statement.close();
+        }
+        tileStatements.clear();
+    }
+
+    @SuppressWarnings("PMD.ReturnEmptyArrayRatherThanNull")
+    protected byte[] queryTileBlobWithCursor(int zoom, int column, int row) {
+        // Arguments are bound as strings, which the integer affinity of the
+        // columns converts back to numbers, so the coordinate index is still used
+        String[] selectionArgs = {Integer.toString(zoom), Integer.toString(column), Integer.toString(row)};
+        try (Cursor results = db.rawQuery(TILE_QUERY, selectionArgs)) {
+            return results.moveToFirst() ? results.getBlob(0) : null;
+        }
+    }
+
     /** Returns information about the vector layers available in the tiles. */
     public List<VectorLayer> getVectorLayers() {
         List<VectorLayer> layers = new ArrayList<>();
@@ -0,0 +1,81 @@
+package io.ona.kujaku.mbtiles;
+
+import android.support.annotation.NonNull;
+import android.util.LruCache;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * An in-memory LRU cache of tile responses, limited by the total number of bytes
+ * held rather than the number of tiles.  A single cache can be shared between
+ * several TileSources; entries are keyed by the source key and the tile coordinates.
+ * Hit and miss counts are available through {@link #hitCount()} and {@link #missCount()}.
+ */
+public class TileCache extends LruCache<String, TileHttpServer.Response> {
+
+    public static final int BYTES_PER_MB = 1024 * 1024;
+
+    /**
+     * @param maxSizeMb the maximum size of the tile data held in memory, in megabytes
+     */
+    public TileCache(int maxSizeMb) {
+        super(maxSizeMb * BYTES_PER_MB);
+    }
+
+    @Override
+    protected int sizeOf(@NonNull String key, @NonNull TileHttpServer.Response response) {
+        return response.data.length;
+    }
+
+    /**
+     * Wraps a TileSource so that its tiles are served from this cache when available.
+     */
+    public TileHttpServer.TileSource wrap(@NonNull String key, @NonNull TileHttpServer.TileSource source) {
+        return new CachingTileSource(key, source);
+    }
+
+    protected static String getKey(String sourceKey, int zoom, int x, int y) {
+        return sourceKey + "/" + zoom + "/" + x + "/" + y;
+    }
+
+    /**
+     * A TileSource that checks the cache before asking the source it wraps.  Closing it
+     * closes the wrapped source if that is Closeable.
+     */
+    class CachingTileSource implements TileHttpServer.ValidatedTileSource, Closeable {
+        final String key;
+        final TileHttpServer.TileSource source;
+
+        CachingTileSource(String key, TileHttpServer.TileSource source) {
+            this.key = key;
+            this.source = source;
+        }
+
+        @Override
+        public TileHttpServer.Response getTile(int zoom, int x, int y) {
+            String tileKey = getKey(key, zoom, x, y);
+            TileHttpServer.Response response = get(tileKey);
+            if (response == null) {
+                response = source.getTile(zoom, x, y);
+                if (response != null) {
+                    put(tileKey, response);
+                }
+            }
+            return response;
+        }
+
+        @Override
+        public String getETag(int zoom, int x, int y) {
+            return source instanceof TileHttpServer.ValidatedTileSource ?
+                    ((TileHttpServer.ValidatedTileSource) source).getETag(zoom, x, y) : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (source instanceof Closeable) {
+                ((Closeable) source).close();
+            }
+        }
+    }
+}
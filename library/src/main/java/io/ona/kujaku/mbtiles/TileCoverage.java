@@ -0,0 +1,96 @@
+package io.ona.kujaku.mbtiles;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.SparseArray;
+
+import java.util.Arrays;
+
+/**
+ * A compact index of the tiles present in an .mbtiles file, used to answer
+ * requests for tiles outside the file's coverage without querying SQLite.
+ * For every zoom level and column, the rows present are stored as sorted
+ * runs of consecutive rows: [first0, last0, first1, last1, ...].
+ * Coordinates use the TMS row numbering of the .mbtiles file.
+ */
+public class TileCoverage {
+
+    private final SparseArray<SparseArray<int[]>> zooms = new SparseArray<>();
+    private int tileCount;
+
+    /**
+     * Reads the coordinates of every tile in the given table, which is expected to
+     * have an index on (zoom_level, tile_column, tile_row) so that they arrive sorted.
+     */
+    public static TileCoverage load(SQLiteDatabase db, String table) {
+        TileCoverage coverage = new TileCoverage();
+        try (Cursor results = db.rawQuery("SELECT zoom_level, tile_column, tile_row FROM " + table
+                + " ORDER BY zoom_level, tile_column, tile_row", null)) {
+            int zoom = -1;
+            int column = -1;
+            int[] runs = new int[16];
+            int length = 0;
+            while (results.moveToNext()) {
+                int tileZoom = results.getInt(0);
+                int tileColumn = results.getInt(1);
+                int tileRow = results.getInt(2);
+                if (tileZoom != zoom || tileColumn != column) {
+                    coverage.addColumn(zoom, column, runs, length);
+                    zoom = tileZoom;
+                    column = tileColumn;
+                    length = 0;
+                }
+
+                if (length > 0 && runs[length - 1] >= tileRow - 1) {
+                    runs[length - 1] = Math.max(runs[length - 1], tileRow);
+                } else {
+                    if (length + 2 > runs.length) {
+                        runs = Arrays.copyOf(runs, runs.length * 2);
+                    }
+                    runs[length++] = tileRow;
+                    runs[length++] = tileRow;
+                }
+                coverage.tileCount++;
+            }
+            coverage.addColumn(zoom, column, runs, length);
+        }
+        return coverage;
+    }
+
+    private void addColumn(int zoom, int column, int[] runs, int length) {
+        if (length == 0) {
+            return;
+        }
+        SparseArray<int[]> columns = zooms.get(zoom);
+        if (columns == null) {
+            columns = new SparseArray<>();
+            zooms.put(zoom, columns);
+        }
+        columns.put(column, Arrays.copyOf(runs, length));
+    }
+
+    public boolean contains(int zoom, int column, int row) {
+        SparseArray<int[]> columns = zooms.get(zoom);
+        int[] runs = columns == null ? null : columns.get(column);
+        if (runs == null) {
+            return false;
+        }
+
+        // Binary search for the last run starting at or before the row
+        int low = 0;
+        int high = runs.length / 2 - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (runs[middle * 2] <= row) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high >= 0 && row <= runs[high * 2 + 1];
+    }
+
+    public int getTileCount() {
+        return tileCount;
+    }
+}
@@ -0,0 +1,73 @@
+package io.ona.kujaku.mbtiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import io.ona.kujaku.utils.IOUtil;
+
+/**
+ * Works out how tile data is compressed and decompresses it.  Vector tiles in
+ * .mbtiles files are usually gzipped, but some tools store them as raw protobuf
+ * or zlib streams, and the metadata does not say which.
+ */
+public class TileEncoding {
+
+    public static final String IDENTITY = "identity";
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private TileEncoding() {}
+
+    /** Detects the encoding from the magic bytes at the start of the data. */
+    public static String sniff(byte[] data) {
+        if (data.length >= 2) {
+            int first = data[0] & 0xff;
+            int second = data[1] & 0xff;
+            if (first == 0x1f && second == 0x8b) {
+                return GZIP;
+            }
+            // A zlib header is 0x78 followed by a byte that makes the pair a multiple of 31
+            if (first == 0x78 && ((first << 8) | second) % 31 == 0) {
+                return DEFLATE;
+            }
+        }
+        return IDENTITY;
+    }
+
+    /** Decompresses data that is in the given encoding. */
+    public static byte[] decode(byte[] data, String encoding) throws IOException {
+        InputStream input;
+        if (GZIP.equals(encoding)) {
+            input = new GZIPInputStream(new ByteArrayInputStream(data));
+        } else if (DEFLATE.equals(encoding)) {
+            input = new InflaterInputStream(new ByteArrayInputStream(data));
+        } else {
+            return data;
+        }
+        try (InputStream decoded = input) {
+            return IOUtil.readInputStreamAsBytes(decoded);
+        }
+    }
+
+    /**
+     * Checks whether an Accept-Encoding header value allows the given encoding.  A
+     * missing header allows any encoding; an encoding with q=0 is not acceptable.
+     */
+    public static boolean isAccepted(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null || IDENTITY.equals(encoding)) {
+            return true;
+        }
+        for (String part : acceptEncoding.toLowerCase(Locale.US).split(",")) {
+            String[] coding = part.split(";");
+            String name = coding[0].trim();
+            if (name.equals(encoding) || name.equals("*")) {
+                return coding.length < 2 || !coding[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
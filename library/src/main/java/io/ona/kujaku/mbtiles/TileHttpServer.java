@@ -6,34 +6,101 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.BindException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import timber.log.Timber;
 
 /**
  * A minimal HTTP server that serves tiles from a set of TileSources.
+ * Connections are handled by a bounded pool of workers and kept alive
+ * between requests (HTTP/1.1 persistent connections), so that a burst of
+ * tile requests does not pay for a new thread and TCP handshake per tile.
+ * A worker only holds a connection while a request is being served; between
+ * requests the connection waits on a selector and is handed back to the pool
+ * once the client sends more data, so idle clients never starve busy ones.
  */
 public class TileHttpServer {
     public static final int PORT_MIN = 8000;
     public static final int PORT_MAX = 8999;
 
+    /** Default number of requests that are served concurrently. */
+    public static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+    /**
+     * How long an idle persistent connection is kept open, in milliseconds.
+     * Idle connections do not hold a worker while they wait.
+     */
+    public static final int KEEP_ALIVE_TIMEOUT = 5000;
+
+    /** Default number of seconds clients may reuse a tile before revalidating it. */
+    public static final int DEFAULT_CACHE_MAX_AGE = 3600;
+
+    public static final int HTTP_OK = 200;
+    public static final int HTTP_NO_CONTENT = 204;
+    public static final int HTTP_NOT_MODIFIED = 304;
+    public static final int HTTP_NOT_FOUND = 404;
+
+    static final Charset ASCII = Charset.forName("US-ASCII");
+    static final byte[] NO_DATA = new byte[0];
+    static final byte[] CRLF = "\r\n".getBytes(ASCII);
+    static final byte[] STATUS_NO_CONTENT = "HTTP/1.1 204 No Content\r\n".getBytes(ASCII);
+    static final byte[] STATUS_NOT_MODIFIED = "HTTP/1.1 304 Not Modified\r\n".getBytes(ASCII);
+    static final byte[] STATUS_NOT_FOUND = "HTTP/1.1 404 Not Found\r\n".getBytes(ASCII);
+    static final byte[] ETAG = "ETag: ".getBytes(ASCII);
+    static final byte[] CONTENT_LENGTH = "Content-Length: ".getBytes(ASCII);
+    static final byte[] CONNECTION_KEEP_ALIVE = "Connection: keep-alive\r\n\r\n".getBytes(ASCII);
+    static final byte[] CONNECTION_CLOSE = "Connection: close\r\n\r\n".getBytes(ASCII);
+
     final Map<String, TileSource> sources = new HashMap<>();
     final ServerThread server;
     final ServerSocket socket;
+    final ExecutorService workers;
+    final IdleConnectionWatcher idleConnections;
+    volatile byte[] cacheControl = getCacheControl(DEFAULT_CACHE_MAX_AGE);
 
     public TileHttpServer() throws IOException {
+        this(DEFAULT_MAX_CONCURRENCY);
+    }
+
+    /**
+     * @param maxConcurrency the maximum number of requests served at the same time;
+     *                       further requests wait until a worker becomes available
+     */
+    public TileHttpServer(int maxConcurrency) throws IOException {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency should be at least 1");
+        }
         socket = createBoundSocket(PORT_MIN, PORT_MAX);
         if (socket == null) {
             throw new IOException("Could not find an available port");
         }
+        workers = Executors.newFixedThreadPool(maxConcurrency);
+        idleConnections = new IdleConnectionWatcher(Selector.open());
         server = new ServerThread(socket);
     }
 
     public void start() {
+        idleConnections.start();
         server.start();
     }
 
@@ -42,13 +109,18 @@ public class TileHttpServer {
     }
 
     /**
-     * Finds an available port and binds a ServerSocket to it.
+     * Finds an available port and binds a ServerSocket to it.  The socket is backed
+     * by a ServerSocketChannel so that accepted connections have a SocketChannel
+     * that responses can be written to with a single gathering write.
      */
     protected static ServerSocket createBoundSocket(int portMin, int portMax) throws IOException {
         for (int port = portMin; port <= portMax; port++) {
+            ServerSocketChannel channel = ServerSocketChannel.open();
             try {
-                return new ServerSocket(port);
+                channel.socket().bind(new InetSocketAddress(port));
+                return channel.socket();
             } catch (BindException e) {
+                channel.close();
                 continue;  // this port is in use; try another one
             }
         }
@@ -65,6 +137,19 @@ public class TileHttpServer {
                 Locale.US, "http://localhost:%d/%s/{z}/{x}/{y}", socket.getLocalPort(), key);
     }
 
+    /**
+     * Sets how long clients may keep using a tile without asking the server again.
+     * Once this expires, sources that implement {@link ValidatedTileSource} let the
+     * client revalidate its copy with a cheap 304 Not Modified response.
+     */
+    public void setCacheMaxAge(int seconds) {
+        cacheControl = getCacheControl(seconds);
+    }
+
+    static byte[] getCacheControl(int maxAge) {
+        return String.format(Locale.US, "Cache-Control: max-age=%d\r\n", maxAge).getBytes(ASCII);
+    }
+
     /**
      * Adds a TileSource with a given key.  Tiles from this source will be served
      * under the URL path /{key}/{zoom}/{x}/{y}.  If this TileSource implements
@@ -84,6 +169,8 @@ public class TileHttpServer {
             Timber.w(e);
         }
         server.interrupt();
+        idleConnections.interrupt();
+        workers.shutdownNow();
         for (TileSource source : sources.values()) {
             if (source instanceof Closeable) {
                 try {
@@ -109,7 +196,12 @@ public class TileHttpServer {
                 while (!isInterrupted()) {
                     Socket connection = socket.accept();
                     Timber.i("Accepted a client connection");
-                    new ResponseThread(connection).start();
+                    try {
+                        workers.execute(new ConnectionHandler(connection));
+                    } catch (RejectedExecutionException e) {
+                        Timber.w(e, "Server is shutting down; dropping connection");
+                        connection.close();
+                    }
                 }
                 Timber.i("Server thread interrupted");
             } catch (IOException e) {
@@ -118,38 +210,210 @@ public class TileHttpServer {
         }
     }
 
-    class ResponseThread extends Thread {
+    /**
+     * Waits for data on persistent connections that are between requests and hands
+     * each of them back to the workers once the client sends its next request.
+     * Connections that stay idle for {@link #KEEP_ALIVE_TIMEOUT} are closed.
+     */
+    class IdleConnectionWatcher extends Thread {
+        final Selector selector;
+        final Queue<ConnectionHandler> parked = new ConcurrentLinkedQueue<>();
+
+        IdleConnectionWatcher(Selector selector) {
+            this.selector = selector;
+        }
+
+        /**
+         * Watches the connection of a handler until its next request arrives.
+         * @return false if the server is shutting down and the connection should be closed
+         */
+        boolean park(ConnectionHandler handler) {
+            if (isInterrupted() || !selector.isOpen()) {
+                return false;
+            }
+            parked.add(handler);
+            selector.wakeup();
+            return true;
+        }
+
+        public void run() {
+            List<ConnectionHandler> ready = new ArrayList<>();
+            try {
+                while (!isInterrupted()) {
+                    selector.select(KEEP_ALIVE_TIMEOUT / 4);
+                    long now = System.currentTimeMillis();
+
+                    ConnectionHandler handler;
+                    while ((handler = parked.poll()) != null) {
+                        try {
+                            handler.channel.configureBlocking(false);
+                            handler.channel.register(selector, SelectionKey.OP_READ, handler);
+                            handler.idleSince = now;
+                        } catch (IOException e) {
+                            handler.close();
+                        }
+                    }
+
+                    for (SelectionKey key : selector.keys()) {
+                        handler = (ConnectionHandler) key.attachment();
+                        if (key.isValid() && key.isReadable()) {
+                            key.cancel();
+                            ready.add(handler);
+                        } else if (now - handler.idleSince >= KEEP_ALIVE_TIMEOUT) {
+                            Timber.i("Closing idle connection");
+                            key.cancel();
+                            handler.close();
+                        }
+                    }
+                    selector.selectedKeys().clear();
+
+                    if (!ready.isEmpty()) {
+                        // Deregisters the cancelled keys so the channels can block again
+                        selector.selectNow();
+                        for (ConnectionHandler readyHandler : ready) {
+                            resume(readyHandler);
+                        }
+                        ready.clear();
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                Timber.i("Idle connection watcher stopped: %s", e.getMessage());
+            } finally {
+                closeAll();
+            }
+        }
+
+        void resume(ConnectionHandler handler) {
+            try {
+                handler.channel.configureBlocking(true);
+                workers.execute(handler);
+            } catch (IOException | RejectedExecutionException e) {
+                Timber.w(e, "Unable to resume connection");
+                handler.close();
+            }
+        }
+
+        void closeAll() {
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    ((ConnectionHandler) key.attachment()).close();
+                }
+                selector.close();
+            } catch (IOException | ClosedSelectorException e) {
+                Timber.w(e);
+            }
+            ConnectionHandler handler;
+            while ((handler = parked.poll()) != null) {
+                handler.close();
+            }
+        }
+    }
+
+    /**
+     * Serves the requests that arrive on a single connection.  Once no more data is
+     * buffered, a persistent connection is parked on the {@link IdleConnectionWatcher}
+     * and this handler runs again when the client sends its next request, until the
+     * client asks for the connection to be closed or it stays idle for {@link #KEEP_ALIVE_TIMEOUT}.
+     */
+    class ConnectionHandler implements Runnable {
         final Socket connection;
+        final SocketChannel channel;
+        // Reused for the headers of every response sent on this connection
+        ByteBuffer headerBuffer = ByteBuffer.allocate(256);
+        OutputStream output;
+        BufferedReader reader;
+        long idleSince;
 
-        ResponseThread(Socket connection) {
+        ConnectionHandler(Socket connection) {
             this.connection = connection;
+            this.channel = connection.getChannel();
         }
 
         public void run() {
-            try (Socket connection = this.connection) {
-                InputStreamReader reader = new InputStreamReader(connection.getInputStream());
-                String request = new BufferedReader(reader).readLine();
-                Timber.i("Received request: %s", request);
-                if (request == null) {
-                    return;
-                }
-                long start = System.currentTimeMillis();
-                Response response = getResponse(request);
-                if (response == null) {
-                    Timber.i("%s: No tile at these coordinates", request);
-                    return;
+            boolean parked = false;
+            try {
+                if (reader == null) {
+                    connection.setSoTimeout(KEEP_ALIVE_TIMEOUT);
+                    connection.setTcpNoDelay(true);
+                    reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
                 }
-                sendResponse(connection, response);
-                long finish = System.currentTimeMillis();
-                Timber.i("%s: Served %d bytes in %d ms", request, response.data.length, finish - start);
+                Request request;
+                do {
+                    request = readRequest(reader);
+                    if (request == null) {
+                        return;
+                    }
+                    long start = System.currentTimeMillis();
+                    Response response = getResponse(request);
+                    sendResponse(response, request.keepAlive);
+                    long finish = System.currentTimeMillis();
+                    Timber.i("%s: Served %d bytes in %d ms", request.line, response.data.length, finish - start);
+                    if (request.keepAlive && channel != null && !reader.ready()) {
+                        // Nothing pipelined; free this worker until the client sends more
+                        parked = idleConnections.park(this);
+                        return;
+                    }
+                } while (request.keepAlive && !Thread.currentThread().isInterrupted());
+            } catch (SocketTimeoutException e) {
+                Timber.i("Closing idle connection");
             } catch (IOException e) {
                 Timber.e(e, "Unable to read request from socket");
+            } finally {
+                if (!parked) {
+                    close();
+                }
+            }
+        }
+
+        void close() {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                Timber.w(e);
+            }
+        }
+
+        /**
+         * Reads the request line and consumes the headers that follow it.  HTTP/1.1
+         * connections are persistent unless the client sends "Connection: close";
+         * HTTP/1.0 ones only on "Connection: keep-alive".
+         */
+        protected Request readRequest(BufferedReader reader) throws IOException {
+            String line = reader.readLine();
+            Timber.i("Received request: %s", line);
+            if (line == null) {
+                return null;
+            }
+
+            Request request = new Request(line);
+            request.keepAlive = line.endsWith("HTTP/1.1");
+            String header;
+            while ((header = reader.readLine()) != null && !header.isEmpty()) {
+                int colon = header.indexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String name = header.substring(0, colon).trim();
+                String value = header.substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Connection")) {
+                    if (value.equalsIgnoreCase("close")) {
+                        request.keepAlive = false;
+                    } else if (value.equalsIgnoreCase("keep-alive")) {
+                        request.keepAlive = true;
+                    }
+                } else if (name.equalsIgnoreCase("If-None-Match")) {
+                    request.ifNoneMatch = value;
+                } else if (name.equalsIgnoreCase("Accept-Encoding")) {
+                    request.acceptEncoding = value;
+                }
             }
+            request.keepAlive &= header != null;
+            return request;
         }
 
-        protected Response getResponse(String request) {
-            if (request.startsWith("GET /")) {
-                String path = request.substring(5).split("[. ]", 2)[0];
+        protected Response getResponse(Request request) {
+            if (request.line.startsWith("GET /")) {
+                String path = request.line.substring(5).split("[. ]", 2)[0];
                 String[] parts = path.split("/");
                 if (parts.length == 4) {
                     try {
@@ -159,51 +423,242 @@ public class TileHttpServer {
                         int y = Integer.parseInt(parts[3]);
                         TileSource source = sources.get(key);
                         if (source != null) {
-                            return source.getTile(zoom, x, y);
+                            if (request.ifNoneMatch != null && source instanceof ValidatedTileSource) {
+                                String etag = ((ValidatedTileSource) source).getETag(zoom, x, y);
+                                if (matchesETag(request.ifNoneMatch, etag)) {
+                                    return Response.notModified(etag);
+                                }
+                            }
+                            Response response = source.getTile(zoom, x, y);
+                            if (response == null) {
+                                // An empty tile lets the map draw nothing here rather than retry
+                                Timber.i("%s: No tile at these coordinates", request.line);
+                                return Response.NO_CONTENT;
+                            }
+                            if (!TileEncoding.isAccepted(request.acceptEncoding, response.contentEncoding)) {
+                                return decode(response);
+                            }
+                            return response;
                         }
                     } catch (NumberFormatException e) { /* ignore */ }
                 }
             }
-            Timber.w("Ignoring request: %s", request);
-            return null;
-        }
-
-        protected void sendResponse(Socket connection, Response response) {
-            String headers = String.format(
-                    Locale.US,
-                    "HTTP/1.0 200\r\n" +
-                            "Content-Type: %s\r\n" +
-                            "Content-Encoding: %s\r\n" +
-                            "Content-Length: %d\r\n" +
-                            "\r\n",
-                    response.contentType,
-                    response.contentEncoding,
-                    response.data.length
-            );
-
-            try (OutputStream output = connection.getOutputStream()) {
-                output.write(headers.getBytes());
+            Timber.w("Ignoring request: %s", request.line);
+            return Response.NOT_FOUND;
+        }
+
+        /**
+         * Writes the status line, headers and tile data.  The headers that only depend on
+         * the source are serialized once per {@link ContentHeaders}; when the connection
+         * has a channel, headers and tile data go out in one gathering write without
+         * copying the tile data.
+         */
+        protected void sendResponse(Response response, boolean keepAlive) throws IOException {
+            byte[] cacheControl = response.status == HTTP_NOT_FOUND ? NO_DATA : TileHttpServer.this.cacheControl;
+            byte[] statusAndContent = response.status == HTTP_OK ? response.headers.getPrefix() : getStatusLine(response.status);
+            int etagLength = response.etag == null ? 0 : ETAG.length + response.etag.length() + CRLF.length;
+            int headerLength = statusAndContent.length + etagLength + cacheControl.length
+                    + CONTENT_LENGTH.length + 10 + CRLF.length + CONNECTION_KEEP_ALIVE.length;
+            if (headerBuffer.capacity() < headerLength) {
+                headerBuffer = ByteBuffer.allocate(headerLength);
+            }
+
+            headerBuffer.clear();
+            headerBuffer.put(statusAndContent);
+            if (response.etag != null) {
+                headerBuffer.put(ETAG);
+                putAscii(headerBuffer, response.etag);
+                headerBuffer.put(CRLF);
+            }
+            headerBuffer.put(cacheControl);
+            // 204 and 304 responses never have a body, so they need no length
+            if (response.status == HTTP_OK || response.status == HTTP_NOT_FOUND) {
+                headerBuffer.put(CONTENT_LENGTH);
+                putDecimal(headerBuffer, response.data.length);
+                headerBuffer.put(CRLF);
+            }
+            headerBuffer.put(keepAlive ? CONNECTION_KEEP_ALIVE : CONNECTION_CLOSE);
+            headerBuffer.flip();
+
+            SocketChannel channel = connection.getChannel();
+            if (channel != null) {
+                ByteBuffer body = ByteBuffer.wrap(response.data);
+                ByteBuffer[] buffers = {headerBuffer, body};
+                while (headerBuffer.hasRemaining() || body.hasRemaining()) {
+                    channel.write(buffers);
+                }
+            } else {
+                if (output == null) {
+                    output = connection.getOutputStream();
+                }
+                output.write(headerBuffer.array(), 0, headerBuffer.limit());
                 output.write(response.data);
                 output.flush();
-            } catch (IOException e) {
-                Timber.e(e, "Unable to write response to socket");
             }
         }
     }
 
+    /**
+     * Decompresses a tile for a client that does not accept its encoding.  The entity
+     * tag of the compressed tile does not apply to the result, so it is dropped.
+     */
+    static Response decode(Response response) {
+        try {
+            byte[] data = TileEncoding.decode(response.data, response.contentEncoding);
+            return new Response(data, new ContentHeaders(response.contentType, TileEncoding.IDENTITY));
+        } catch (IOException e) {
+            Timber.w(e, "Could not decompress %s tile", response.contentEncoding);
+            return response;
+        }
+    }
+
+    static byte[] getStatusLine(int status) {
+        switch (status) {
+            case HTTP_NO_CONTENT:
+                return STATUS_NO_CONTENT;
+            case HTTP_NOT_MODIFIED:
+                return STATUS_NOT_MODIFIED;
+            default:
+                return STATUS_NOT_FOUND;
+        }
+    }
+
+    /** A parsed request line and the request headers the server cares about. */
+    static class Request {
+        final String line;
+        boolean keepAlive;
+        String ifNoneMatch;
+        String acceptEncoding;
+
+        Request(String line) {
+            this.line = line;
+        }
+    }
+
+    /**
+     * Checks an If-None-Match header value, which may be "*" or a comma-separated
+     * list of (possibly weak) entity tags, against the current entity tag of a tile.
+     */
+    static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (etag == null) {
+            return false;
+        }
+        if (ifNoneMatch.equals("*") || ifNoneMatch.equals(etag)) {
+            return true;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Writes a header value that is known to be ASCII. */
+    static void putAscii(ByteBuffer buffer, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    /** Writes a non-negative integer as ASCII decimal digits. */
+    static void putDecimal(ByteBuffer buffer, int value) {
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    /**
+     * The part of a tile response that is the same for every tile of a source.  Sources
+     * should share one instance across their responses so that it is serialized only once.
+     */
+    public static class ContentHeaders {
+        final String contentType;
+        final String contentEncoding;
+        private byte[] prefix;
+
+        public ContentHeaders(String contentType, String contentEncoding) {
+            this.contentType = contentType;
+            this.contentEncoding = contentEncoding;
+        }
+
+        byte[] getPrefix() {
+            if (prefix == null) {
+                prefix = String.format(
+                        Locale.US,
+                        "HTTP/1.1 200 OK\r\n" +
+                                "Content-Type: %s\r\n" +
+                                "Content-Encoding: %s\r\n",
+                        contentType,
+                        contentEncoding
+                ).getBytes(ASCII);
+            }
+            return prefix;
+        }
+    }
+
     public static class Response {
+        static final Response NO_CONTENT = new Response(HTTP_NO_CONTENT, NO_DATA, null, null);
+        static final Response NOT_FOUND = new Response(HTTP_NOT_FOUND, NO_DATA, null, null);
+
+        int status;
         byte[] data;
         String contentType;
         String contentEncoding;
+        ContentHeaders headers;
+        String etag;
 
         public Response(byte[] data, String contentType, String contentEncoding) {
+            this(data, new ContentHeaders(contentType, contentEncoding));
+        }
+
+        public Response(byte[] data, ContentHeaders headers) {
+            this(data, headers, null);
+        }
+
+        /**
+         * @param etag a quoted entity tag that changes whenever the tile data changes
+         */
+        public Response(byte[] data, ContentHeaders headers, String etag) {
+            this(HTTP_OK, data, headers, etag);
+        }
+
+        Response(int status, byte[] data, ContentHeaders headers, String etag) {
+            this.status = status;
             this.data = data;
-            this.contentType = contentType;
-            this.contentEncoding = contentEncoding;
+            this.headers = headers;
+            this.etag = etag;
+            if (headers != null) {
+                this.contentType = headers.contentType;
+                this.contentEncoding = headers.contentEncoding;
+            }
+        }
+
+        static Response notModified(String etag) {
+            return new Response(HTTP_NOT_MODIFIED, NO_DATA, null, etag);
         }
     }
 
     public interface TileSource {
         Response getTile(int zoom, int x, int y);
     }
+
+    /**
+     * A TileSource that can tell the entity tag of a tile without reading it, which
+     * lets the server answer conditional requests with 304 Not Modified.
+     */
+    public interface ValidatedTileSource extends TileSource {
+        /**
+         * @return the quoted entity tag of the tile, or null if it is not known
+         */
+        String getETag(int zoom, int x, int y);
+    }
 }
\ No newline at end of file
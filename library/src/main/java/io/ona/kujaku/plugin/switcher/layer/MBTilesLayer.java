@@ -14,6 +14,7 @@ import java.util.List;
 import java.util.Set;
 
 import io.ona.kujaku.mbtiles.MBTilesHelper;
+import io.ona.kujaku.mbtiles.MBTilesIndex;
 
 import static io.ona.kujaku.mbtiles.MBTilesHelper.MB_TILES_EXTENSION;
 
@@ -33,12 +34,37 @@ public class MBTilesLayer extends BaseLayer {
 
     private String name;
 
+    // Set when the layer was created from indexed metadata and its file has not been opened yet
+    private File pendingFile;
+
     public MBTilesLayer(Context context, File offlineFile, MBTilesHelper mbTilesHelper) {
         this.context = context;
         this.mbTilesHelper = mbTilesHelper;
         createLayersAndSources(offlineFile);
     }
 
+    /**
+     * Creates the layer from indexed metadata.  The .mbtiles file is only opened and
+     * served once the layers or sources are first requested, i.e. when the layer is
+     * added to the map.
+     */
+    public MBTilesLayer(Context context, MBTilesIndex.Entry entry, MBTilesHelper mbTilesHelper) {
+        this.context = context;
+        this.mbTilesHelper = mbTilesHelper;
+        this.name = entry.name;
+        this.sourceIds = new String[]{entry.name};
+        this.layerIds = MBTilesHelper.getLayerIds(entry);
+        this.pendingFile = entry.getFile();
+    }
+
+    private void openPendingFile() {
+        if (pendingFile != null) {
+            File offlineFile = pendingFile;
+            pendingFile = null;
+            createLayersAndSources(offlineFile);
+        }
+    }
+
 
     private void createLayersAndSources(File offlineFile) {
         Pair<Set<Source>, Set<Layer>> sourcesAndLayers = mbTilesHelper.initializeMbTileslayers(offlineFile);
@@ -75,11 +101,13 @@ public class MBTilesLayer extends BaseLayer {
 
     @Override
     public LinkedHashSet<Layer> getLayers() {
+        openPendingFile();
         return layers;
     }
 
     @Override
     public List<Source> getSources() {
+        openPendingFile();
         return sources;
     }
 
@@ -6,19 +6,40 @@ import android.support.annotation.Nullable;
 import com.mapbox.geojson.Feature;
 import com.mapbox.geojson.FeatureCollection;
 
+import org.threeten.bp.LocalDateTime;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import io.ona.kujaku.comparisons.AndPredicate;
 import io.ona.kujaku.comparisons.Comparison;
 import io.ona.kujaku.comparisons.EqualToComparison;
+import io.ona.kujaku.comparisons.ExistsComparison;
+import io.ona.kujaku.comparisons.ExistsPredicate;
+import io.ona.kujaku.comparisons.FeaturePredicate;
+import io.ona.kujaku.comparisons.InComparison;
+import io.ona.kujaku.comparisons.NotPredicate;
+import io.ona.kujaku.comparisons.OrPredicate;
+import io.ona.kujaku.comparisons.RangeComparison;
 import io.ona.kujaku.comparisons.RegexComparison;
 
 /**
  * Provides the ability to filter locations or features before displaying them on the map. This filter
  * can only perform filter operations on {@link Feature} properties. The operations that can be performed
- * are {@code equalTo} and {@code regex} on {@code {@link String}}. Several conditions can be enforced
- * but only using the {@code and} operator.
+ * are {@code equalTo} and {@code regex} on {@code {@link String}}, {@code in} set membership, {@code exists}
+ * and ranges on numbers, ISO-8601 dates or date-times or strings. Conditions added to the builder are combined
+ * using the {@code and} operator, while {@link FilterCondition#any(FilterCondition...)} and
+ * {@link FilterCondition#not(FilterCondition)} allow {@code or} groups and negation. All the conditions
+ * are evaluated in a single pass over the features.
+ * <p>
+ * The conditions are compiled once when the filter is built: regular expressions are compiled up front
+ * and cheaper conditions are evaluated first, stopping at the first condition a feature fails. A built
+ * filter can therefore be reused for many calls to {@link #filter()} or {@link #matches(Feature)}.
  *
  * Example usage:
  * <code>
@@ -26,7 +47,11 @@ import io.ona.kujaku.comparisons.RegexComparison;
  *     FeatureFilter.Builder builder = new FeatureFilter.Builder(myFeatureCollection)
  *                                          .whereEq("propertyName", "expectedPropertyValue")
  *                                          .whereEq("building-type", "commercial")
- *                                          .whereRegex("district", "(Rungwe|Kilombero|Kyela|Magu|Sikonge|Kasulu)");
+ *                                          .whereRegex("district", "(Rungwe|Kilombero|Kyela|Magu|Sikonge|Kasulu)")
+ *                                          .whereDateBetween("test-date", LocalDateTime.now().minusDays(14), null)
+ *                                          .whereAny(FeatureFilter.FilterCondition.in("village", villageIds, Comparison.TYPE_STRING)
+ *                                                  , FeatureFilter.FilterCondition.equalTo("priority", "high"))
+ *                                          .whereNot(FeatureFilter.FilterCondition.exists("closed-date"));
  *     FeatureFilter featureFilter = builder.build();
  *     FeatureCollection filteredFeatureCollection = featureFilter.filter();
  * </code>
@@ -35,52 +60,98 @@ import io.ona.kujaku.comparisons.RegexComparison;
  */
 public class FeatureFilter {
 
+    private static final Map<String, Comparison> COMPARISONS = new HashMap<>();
+
+    static {
+        registerComparison(new EqualToComparison());
+        registerComparison(new RegexComparison());
+        registerComparison(new InComparison());
+        registerComparison(new ExistsComparison());
+        registerComparison(new RangeComparison(RangeComparison.GREATER_THAN));
+        registerComparison(new RangeComparison(RangeComparison.GREATER_THAN_OR_EQUAL_TO));
+        registerComparison(new RangeComparison(RangeComparison.LESS_THAN));
+        registerComparison(new RangeComparison(RangeComparison.LESS_THAN_OR_EQUAL_TO));
+    }
+
     private Builder builder;
 
+    @Nullable
+    private FeaturePredicate predicate;
+
     private FeatureFilter(@NonNull Builder builder) {
         this.builder = builder;
+        this.predicate = compile(builder);
     }
 
-    public FeatureCollection filter() {
-        List<Feature> featuresList = builder.getFeatureCollection().features();
-        ArrayList<Feature> filteredFeatures = new ArrayList<>();
+    private static void registerComparison(@NonNull Comparison comparison) {
+        COMPARISONS.put(comparison.getFunctionName(), comparison);
+    }
 
-        HashMap<String, Comparison> comparisons = new HashMap<>();
+    /**
+     * Compiles the conditions of the builder into a single predicate.  Conditions added to the
+     * builder afterwards are only taken into account by a new {@link FeatureFilter}.
+     *
+     * @param builder
+     * @return the predicate or {@code null} if there are no conditions and all features pass
+     */
+    @Nullable
+    private static FeaturePredicate compile(@NonNull Builder builder) {
+        ArrayList<FilterCondition> filterConditions = builder.getFilterConditions();
+        if (filterConditions.isEmpty()) {
+            return null;
+        }
 
-        EqualToComparison equalToComparison = new EqualToComparison();
-        RegexComparison regexComparison = new RegexComparison();
+        List<FeaturePredicate> predicates = new ArrayList<>();
+        if (builder.getSortProperty() != null) {
+            predicates.add(new ExistsPredicate(builder.getSortProperty()));
+        }
 
-        comparisons.put(equalToComparison.getFunctionName(), equalToComparison);
-        comparisons.put(regexComparison.getFunctionName(), regexComparison);
+        for (FilterCondition filterCondition : filterConditions) {
+            predicates.add(compile(filterCondition));
+        }
 
-        if (featuresList != null) {
-            ArrayList<FilterCondition> filterConditions = builder.getFilterConditions();
+        return predicates.size() == 1 ? predicates.get(0) : new AndPredicate(predicates);
+    }
 
-            if (filterConditions.size() > 0) {
-                for (Feature feature : featuresList) {
-                    boolean skipFeature = false;
-                    if (builder.getSortProperty() != null
-                            && !feature.hasProperty(builder.getSortProperty())) {
-                        continue;
-                    }
+    @NonNull
+    private static FeaturePredicate compile(@NonNull FilterCondition filterCondition) {
+        if (filterCondition.isGroup()) {
+            List<FeaturePredicate> predicates = new ArrayList<>();
+            for (FilterCondition condition : filterCondition.getConditions()) {
+                predicates.add(compile(condition));
+            }
 
-                    for (FilterCondition filterCondition : filterConditions) {
-                        String propertyName = filterCondition.getPropertyName();
-                        if (feature.hasProperty(propertyName)) {
-                            Comparison comparison = comparisons.get(filterCondition.getComparisionType());
-                            if (comparison != null && !comparison.compare(
-                                    feature.getStringProperty(propertyName),
-                                    filterCondition.getValueType(),
-                                    (String) filterCondition.getValue())) {
-                                skipFeature = true;
-                                break;
-                            }
-                        } else {
-                            skipFeature = true;
-                        }
-                    }
+            switch (filterCondition.getComparisionType()) {
+                case FilterCondition.ANY:
+                    return new OrPredicate(predicates);
+                case FilterCondition.NOT:
+                    return new NotPredicate(predicates.get(0));
+                default:
+                    return new AndPredicate(predicates);
+            }
+        }
 
-                    if (!skipFeature) {
+        Comparison comparison = COMPARISONS.get(filterCondition.getComparisionType());
+        if (comparison != null) {
+            return comparison.compile(filterCondition.getPropertyName(),
+                    filterCondition.getValueType(), filterCondition.getValue());
+        } else {
+            // Unknown comparisons only require the property to be present
+            return new ExistsPredicate(filterCondition.getPropertyName());
+        }
+    }
+
+    public FeatureCollection filter() {
+        List<Feature> featuresList = builder.getFeatureCollection().features();
+        ArrayList<Feature> filteredFeatures = new ArrayList<>();
+
+        if (featuresList != null) {
+            if (predicate != null && builder.isParallel()
+                    && featuresList.size() >= builder.getParallelThreshold()) {
+                filteredFeatures = ParallelFeatureFilter.filter(featuresList, predicate);
+            } else if (predicate != null) {
+                for (Feature feature : featuresList) {
+                    if (predicate.test(feature)) {
                         filteredFeatures.add(feature);
                     }
                 }
@@ -92,15 +163,29 @@ public class FeatureFilter {
         return FeatureCollection.fromFeatures(filteredFeatures);
     }
 
+    /**
+     * Checks a single feature against the conditions, e.g. to filter features as they are added
+     *
+     * @param feature
+     * @return {@code true} if the feature passes the filter
+     */
+    public boolean matches(@NonNull Feature feature) {
+        return predicate == null || predicate.test(feature);
+    }
+
     public FeatureCollection getFeatureCollection() {
         return builder.getFeatureCollection();
     }
 
     public static class Builder {
 
+        public static final int DEFAULT_PARALLEL_THRESHOLD = 20000;
+
         private FeatureCollection featureCollection;
         private String sortProperty;
         private ArrayList<FilterCondition> filterConditions = new ArrayList<>();
+        private boolean parallel;
+        private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
 
         public Builder(@NonNull FeatureCollection featureCollection) {
             this.featureCollection = featureCollection;
@@ -121,6 +206,53 @@ public class FeatureFilter {
             return this;
         }
 
+        public Builder whereIn(@NonNull String property, @NonNull Collection<String> values) {
+            return where(FilterCondition.in(property, values, Comparison.TYPE_STRING));
+        }
+
+        public Builder whereExists(@NonNull String property) {
+            return where(FilterCondition.exists(property));
+        }
+
+        /**
+         * Adds an inclusive range on a numeric property
+         *
+         * @param property
+         * @param min      the lower bound or {@code null} if there is none
+         * @param max      the upper bound or {@code null} if there is none
+         * @return this builder
+         */
+        public Builder whereBetween(@NonNull String property, @Nullable Number min, @Nullable Number max) {
+            return where(FilterCondition.between(property, min, max, Comparison.TYPE_NUMBER));
+        }
+
+        /**
+         * Adds an inclusive range on a property holding ISO-8601 dates or date-times.  Values with
+         * an offset are compared as instants, while the bounds, values without an offset and dates,
+         * at the start of the day, are read as UTC.
+         *
+         * @param property
+         * @param from     the lower bound or {@code null} if there is none
+         * @param to       the upper bound or {@code null} if there is none
+         * @return this builder
+         */
+        public Builder whereDateBetween(@NonNull String property, @Nullable LocalDateTime from, @Nullable LocalDateTime to) {
+            return where(FilterCondition.between(property, from, to, Comparison.TYPE_DATE));
+        }
+
+        public Builder whereAny(@NonNull FilterCondition... conditions) {
+            return where(FilterCondition.any(conditions));
+        }
+
+        public Builder whereNot(@NonNull FilterCondition condition) {
+            return where(FilterCondition.not(condition));
+        }
+
+        public Builder where(@NonNull FilterCondition condition) {
+            filterConditions.add(condition);
+            return this;
+        }
+
         public FeatureCollection getFeatureCollection() {
             return featureCollection;
         }
@@ -134,6 +266,40 @@ public class FeatureFilter {
             return sortProperty;
         }
 
+        /**
+         * Splits filtering across a few background threads, capped at 4, when the collection has
+         * at least {@link #getParallelThreshold()} features. Smaller collections are filtered on the
+         * calling thread since the overhead is not worth it. The order of the features is preserved.
+         *
+         * @param parallel
+         * @return this builder
+         */
+        public Builder setParallel(boolean parallel) {
+            this.parallel = parallel;
+            return this;
+        }
+
+        public boolean isParallel() {
+            return parallel;
+        }
+
+        /**
+         * @param parallelThreshold the minimum number of features filtered in parallel, see {@link #setParallel(boolean)}
+         * @return this builder
+         */
+        public Builder setParallelThreshold(int parallelThreshold) {
+            if (parallelThreshold < 0) {
+                throw new IllegalArgumentException("The parallel threshold cannot be negative");
+            }
+
+            this.parallelThreshold = parallelThreshold;
+            return this;
+        }
+
+        public int getParallelThreshold() {
+            return parallelThreshold;
+        }
+
         public ArrayList<FilterCondition> getFilterConditions() {
             return filterConditions;
         }
@@ -144,16 +310,104 @@ public class FeatureFilter {
     }
 
     public static class FilterCondition {
+
+        public static final String ALL = "all";
+        public static final String ANY = "any";
+        public static final String NOT = "not";
+
         private String comparisionType;
         private String propertyName;
         private Object value;
         private String valueType;
+        private List<FilterCondition> conditions;
 
         public FilterCondition(@NonNull String comparisionType, @NonNull String propertyName, @NonNull Object value, @NonNull String valueType) {
             this.comparisionType = comparisionType;
             this.propertyName = propertyName;
             this.value = value;
             this.valueType = valueType;
+            this.conditions = Collections.emptyList();
+        }
+
+        private FilterCondition(@NonNull String comparisionType, @NonNull List<FilterCondition> conditions) {
+            this.comparisionType = comparisionType;
+            this.conditions = Collections.unmodifiableList(conditions);
+        }
+
+        public static FilterCondition equalTo(@NonNull String property, @NonNull String value) {
+            return new FilterCondition(EqualToComparison.COMPARISON_NAME, property, value, Comparison.TYPE_STRING);
+        }
+
+        public static FilterCondition regex(@NonNull String property, @NonNull String regexPattern) {
+            return new FilterCondition(RegexComparison.COMPARISON_NAME, property, regexPattern, Comparison.TYPE_STRING);
+        }
+
+        /**
+         * @param property
+         * @param values
+         * @param type     {@link Comparison#TYPE_NUMBER} to compare the values as numbers, otherwise
+         *                 they are compared as strings
+         * @return the condition
+         */
+        public static FilterCondition in(@NonNull String property, @NonNull Collection<?> values, @NonNull String type) {
+            return new FilterCondition(InComparison.COMPARISON_NAME, property, new ArrayList<>(values), type);
+        }
+
+        public static FilterCondition exists(@NonNull String property) {
+            return new FilterCondition(ExistsComparison.COMPARISON_NAME, property, true, Comparison.TYPE_STRING);
+        }
+
+        /**
+         * @param property
+         * @param comparisonName one of the {@link RangeComparison} comparison names
+         * @param bound
+         * @param type           {@link Comparison#TYPE_NUMBER}, {@link Comparison#TYPE_DATE} or
+         *                       {@link Comparison#TYPE_STRING}
+         * @return the condition
+         */
+        public static FilterCondition range(@NonNull String property, @NonNull String comparisonName, @NonNull Object bound, @NonNull String type) {
+            return new FilterCondition(comparisonName, property, bound, type);
+        }
+
+        /**
+         * @param property
+         * @param min      the inclusive lower bound or {@code null} if there is none
+         * @param max      the inclusive upper bound or {@code null} if there is none
+         * @param type     {@link Comparison#TYPE_NUMBER}, {@link Comparison#TYPE_DATE} or
+         *                 {@link Comparison#TYPE_STRING}
+         * @return the condition
+         */
+        public static FilterCondition between(@NonNull String property, @Nullable Object min, @Nullable Object max, @NonNull String type) {
+            if (min == null && max == null) {
+                throw new IllegalArgumentException("A range needs at least one bound");
+            }
+
+            List<FilterCondition> conditions = new ArrayList<>();
+            if (min != null) {
+                conditions.add(range(property, RangeComparison.GREATER_THAN_OR_EQUAL_TO, min, type));
+            }
+            if (max != null) {
+                conditions.add(range(property, RangeComparison.LESS_THAN_OR_EQUAL_TO, max, type));
+            }
+
+            return conditions.size() == 1 ? conditions.get(0) : new FilterCondition(ALL, conditions);
+        }
+
+        public static FilterCondition all(@NonNull FilterCondition... conditions) {
+            return new FilterCondition(ALL, Arrays.asList(conditions));
+        }
+
+        /**
+         * @param conditions
+         * @return a condition which passes if any of the conditions passes, and never passes if
+         * there are no conditions
+         */
+        public static FilterCondition any(@NonNull FilterCondition... conditions) {
+            return new FilterCondition(ANY, Arrays.asList(conditions));
+        }
+
+        public static FilterCondition not(@NonNull FilterCondition condition) {
+            return new FilterCondition(NOT, Collections.singletonList(condition));
         }
 
         public String getComparisionType() {
@@ -171,5 +425,20 @@ public class FeatureFilter {
         public String getValueType() {
             return valueType;
         }
+
+        /**
+         * @return {@code true} if this condition combines other conditions using {@link #ALL},
+         * {@link #ANY} or {@link #NOT}, in which case it has no property, value or value type
+         */
+        public boolean isGroup() {
+            return ALL.equals(comparisionType) || ANY.equals(comparisionType) || NOT.equals(comparisionType);
+        }
+
+        /**
+         * @return the combined conditions, or an empty list if this is not a group
+         */
+        public List<FilterCondition> getConditions() {
+            return conditions;
+        }
     }
 }
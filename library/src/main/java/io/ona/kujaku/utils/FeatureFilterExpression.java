@@ -0,0 +1,254 @@
+package io.ona.kujaku.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.mapboxsdk.style.expressions.Expression;
+import com.mapbox.mapboxsdk.style.layers.CircleLayer;
+import com.mapbox.mapboxsdk.style.layers.FillExtrusionLayer;
+import com.mapbox.mapboxsdk.style.layers.FillLayer;
+import com.mapbox.mapboxsdk.style.layers.HeatmapLayer;
+import com.mapbox.mapboxsdk.style.layers.Layer;
+import com.mapbox.mapboxsdk.style.layers.LineLayer;
+import com.mapbox.mapboxsdk.style.layers.SymbolLayer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import io.ona.kujaku.comparisons.Comparison;
+import io.ona.kujaku.comparisons.EqualToComparison;
+import io.ona.kujaku.comparisons.ExistsComparison;
+import io.ona.kujaku.comparisons.InComparison;
+import io.ona.kujaku.comparisons.RangeComparison;
+
+import static com.mapbox.mapboxsdk.style.expressions.Expression.all;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.any;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.eq;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.get;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.gt;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.gte;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.has;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.literal;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.lt;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.lte;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.not;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.toNumber;
+
+/**
+ * Translates the conditions of a {@link FeatureFilter.Builder} into a Mapbox filter {@link Expression}
+ * so that the filter can be applied to a layer's {@code filter} property. Changing the filter then
+ * only changes a style property instead of re-uploading the filtered features to the source.
+ * <p>
+ * Regular expressions and date-time ranges cannot be evaluated by Mapbox. Conditions using them, and
+ * {@code any}/{@code not} groups containing them, are left out of the expression and have to be
+ * evaluated in Java using {@link #filterUnsupported()}. The remaining conditions are still applied
+ * natively since all the conditions of the builder are combined using {@code and}.
+ *
+ * Example usage:
+ * <code>
+ *
+ *     FeatureFilterExpression filterExpression = FeatureFilterExpression.from(builder);
+ *     if (!filterExpression.isFullyNative()) {
+ *         geoJsonSource.setGeoJson(filterExpression.filterUnsupported());
+ *     }
+ *     filterExpression.applyTo(fillLayer);
+ * </code>
+ */
+public class FeatureFilterExpression {
+
+    private final FeatureFilter.Builder builder;
+
+    @Nullable
+    private final Expression expression;
+    private final List<FeatureFilter.FilterCondition> unsupportedConditions;
+
+    private FeatureFilterExpression(@NonNull FeatureFilter.Builder builder, @Nullable Expression expression
+            , @NonNull List<FeatureFilter.FilterCondition> unsupportedConditions) {
+        this.builder = builder;
+        this.expression = expression;
+        this.unsupportedConditions = Collections.unmodifiableList(unsupportedConditions);
+    }
+
+    @NonNull
+    public static FeatureFilterExpression from(@NonNull FeatureFilter.Builder builder) {
+        List<FeatureFilter.FilterCondition> filterConditions = builder.getFilterConditions();
+        List<Expression> expressions = new ArrayList<>();
+        List<FeatureFilter.FilterCondition> unsupportedConditions = new ArrayList<>();
+
+        // Same as FeatureFilter, the sort property is only required when there are conditions
+        if (!filterConditions.isEmpty() && builder.getSortProperty() != null) {
+            expressions.add(has(builder.getSortProperty()));
+        }
+
+        for (FeatureFilter.FilterCondition filterCondition : filterConditions) {
+            Expression expression = translate(filterCondition);
+            if (expression != null) {
+                expressions.add(expression);
+            } else {
+                unsupportedConditions.add(filterCondition);
+            }
+        }
+
+        Expression expression = null;
+        if (expressions.size() == 1) {
+            expression = expressions.get(0);
+        } else if (expressions.size() > 1) {
+            expression = all(expressions.toArray(new Expression[0]));
+        }
+
+        return new FeatureFilterExpression(builder, expression, unsupportedConditions);
+    }
+
+    /**
+     * @param filterCondition
+     * @return the equivalent expression or {@code null} if Mapbox cannot evaluate the condition
+     */
+    @Nullable
+    private static Expression translate(@NonNull FeatureFilter.FilterCondition filterCondition) {
+        if (filterCondition.isGroup()) {
+            List<FeatureFilter.FilterCondition> conditions = filterCondition.getConditions();
+            Expression[] expressions = new Expression[conditions.size()];
+            for (int i = 0; i < expressions.length; i++) {
+                expressions[i] = translate(conditions.get(i));
+                if (expressions[i] == null) {
+                    return null;
+                }
+            }
+
+            switch (filterCondition.getComparisionType()) {
+                case FeatureFilter.FilterCondition.ANY:
+                    return any(expressions);
+                case FeatureFilter.FilterCondition.NOT:
+                    return not(expressions[0]);
+                default:
+                    return all(expressions);
+            }
+        }
+
+        String property = filterCondition.getPropertyName();
+        String type = filterCondition.getValueType();
+        Object value = filterCondition.getValue();
+
+        // Missing properties are read as null, which would otherwise convert to 0 or ""
+        switch (filterCondition.getComparisionType()) {
+            case ExistsComparison.COMPARISON_NAME:
+                return has(property);
+            case EqualToComparison.COMPARISON_NAME:
+                return all(has(property), eq(Expression.toString(get(property)), literal(String.valueOf(value))));
+            case InComparison.COMPARISON_NAME:
+                Collection<?> values = value instanceof Collection ? (Collection<?>) value : Collections.singleton(value);
+                List<Expression> expressions = new ArrayList<>();
+                for (Object inValue : values) {
+                    expressions.add(eq(getTyped(property, type), literalTyped(inValue, type)));
+                }
+                return all(has(property), any(expressions.toArray(new Expression[0])));
+            case RangeComparison.GREATER_THAN:
+            case RangeComparison.GREATER_THAN_OR_EQUAL_TO:
+            case RangeComparison.LESS_THAN:
+            case RangeComparison.LESS_THAN_OR_EQUAL_TO:
+                if (Comparison.TYPE_DATE.equals(type)) {
+                    return null;
+                }
+                return all(has(property), compare(filterCondition.getComparisionType()
+                        , getTyped(property, type), literalTyped(value, type)));
+            default:
+                return null;
+        }
+    }
+
+    @NonNull
+    private static Expression getTyped(@NonNull String property, @NonNull String type) {
+        return Comparison.TYPE_NUMBER.equals(type) ? toNumber(get(property)) : Expression.toString(get(property));
+    }
+
+    @NonNull
+    private static Expression literalTyped(@NonNull Object value, @NonNull String type) {
+        if (Comparison.TYPE_NUMBER.equals(type)) {
+            return literal(value instanceof Number ? (Number) value : Double.parseDouble(String.valueOf(value)));
+        }
+
+        return literal(String.valueOf(value));
+    }
+
+    @NonNull
+    private static Expression compare(@NonNull String comparisonName, @NonNull Expression a, @NonNull Expression b) {
+        switch (comparisonName) {
+            case RangeComparison.GREATER_THAN:
+                return gt(a, b);
+            case RangeComparison.GREATER_THAN_OR_EQUAL_TO:
+                return gte(a, b);
+            case RangeComparison.LESS_THAN:
+                return lt(a, b);
+            default:
+                return lte(a, b);
+        }
+    }
+
+    /**
+     * @return the expression for the conditions Mapbox can evaluate or {@code null} if there are none
+     */
+    @Nullable
+    public Expression getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return the conditions that have to be evaluated in Java
+     */
+    @NonNull
+    public List<FeatureFilter.FilterCondition> getUnsupportedConditions() {
+        return unsupportedConditions;
+    }
+
+    public boolean isFullyNative() {
+        return unsupportedConditions.isEmpty();
+    }
+
+    /**
+     * Filters the features of the builder using only the conditions that Mapbox cannot evaluate.
+     * The result only needs to be set on the source again when these conditions change.
+     *
+     * @return the features passing the unsupported conditions, or all the features if there are none
+     */
+    @NonNull
+    public FeatureCollection filterUnsupported() {
+        FeatureFilter.Builder unsupportedBuilder = new FeatureFilter.Builder(builder.getFeatureCollection());
+        for (FeatureFilter.FilterCondition filterCondition : unsupportedConditions) {
+            unsupportedBuilder.where(filterCondition);
+        }
+
+        return unsupportedBuilder.build().filter();
+    }
+
+    /**
+     * Sets the expression as the filter of the layer.  If there is no expression, the layer is set
+     * to show all its features so that a previous filter does not linger.
+     *
+     * @param layer
+     * @return {@code true} if the filter was set, {@code false} if the layer type has no filter
+     */
+    public boolean applyTo(@NonNull Layer layer) {
+        Expression expression = this.expression != null ? this.expression : literal(true);
+
+        if (layer instanceof FillLayer) {
+            ((FillLayer) layer).setFilter(expression);
+        } else if (layer instanceof LineLayer) {
+            ((LineLayer) layer).setFilter(expression);
+        } else if (layer instanceof SymbolLayer) {
+            ((SymbolLayer) layer).setFilter(expression);
+        } else if (layer instanceof CircleLayer) {
+            ((CircleLayer) layer).setFilter(expression);
+        } else if (layer instanceof HeatmapLayer) {
+            ((HeatmapLayer) layer).setFilter(expression);
+        } else if (layer instanceof FillExtrusionLayer) {
+            ((FillExtrusionLayer) layer).setFilter(expression);
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+}
@@ -25,4 +25,14 @@ public class IOUtil {
         }
         return buf.toString();
     }
+
+    public static byte[] readInputStreamAsBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            buf.write(chunk, 0, read);
+        }
+        return buf.toByteArray();
+    }
 }
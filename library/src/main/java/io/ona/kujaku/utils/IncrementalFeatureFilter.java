@@ -0,0 +1,225 @@
+package io.ona.kujaku.utils;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a {@link FeatureFilter} to successive versions of a {@link FeatureCollection}, only
+ * evaluating the features that were added or changed since the previous pass, and reports which
+ * features entered, changed within or left the filtered set.
+ * <p>
+ * Features are matched across passes by id, and a feature is considered changed when a different
+ * {@link Feature} instance has the same id, or when the same instance hashes differently, i.e. its
+ * properties or geometry were modified in place. The delta is also non-empty when the same filtered
+ * features come in a different order.
+ * Features without an id, or whose id appears more than once, cannot be tracked. They are
+ * evaluated on every pass and always make the delta non-empty.
+ * <p>
+ * The filter is thread-safe so that passes can run on background threads.
+ */
+public class IncrementalFeatureFilter {
+
+    private final FeatureFilter featureFilter;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private int pass;
+    private int previousUntrackedCount;
+    private Feature[] previousFilteredFeatures = new Feature[0];
+
+    public IncrementalFeatureFilter(@NonNull FeatureFilter featureFilter) {
+        this.featureFilter = featureFilter;
+    }
+
+    /**
+     * Filters the features, re-evaluating only the ones that were added or changed since the last pass
+     *
+     * @param featureCollection
+     * @return the delta since the last pass, which also holds the filtered features
+     */
+    @NonNull
+    public synchronized Delta update(@NonNull FeatureCollection featureCollection) {
+        pass++;
+
+        List<Feature> features = featureCollection.features();
+        ArrayList<Feature> filteredFeatures = new ArrayList<>();
+        List<Feature> addedFeatures = new ArrayList<>();
+        List<Feature> updatedFeatures = new ArrayList<>();
+        List<String> removedFeatureIds = new ArrayList<>();
+        int evaluatedCount = 0;
+        int untrackedCount = 0;
+
+        if (features != null) {
+            for (Feature feature : features) {
+                String featureId = feature.id();
+                Entry entry = featureId == null ? null : entries.get(featureId);
+
+                if (featureId == null || (entry != null && entry.pass == pass)) {
+                    untrackedCount++;
+                    evaluatedCount++;
+                    if (featureFilter.matches(feature)) {
+                        filteredFeatures.add(feature);
+                    }
+                    continue;
+                }
+
+                if (entry == null) {
+                    entry = new Entry();
+                    entries.put(featureId, entry);
+                }
+
+                // The hash covers the properties and geometry, so edits made in place are detected too
+                int hash = feature.hashCode();
+                if (entry.feature != feature || entry.hash != hash) {
+                    boolean wasMember = entry.member;
+                    entry.feature = feature;
+                    entry.hash = hash;
+                    entry.member = featureFilter.matches(feature);
+                    evaluatedCount++;
+
+                    if (entry.member) {
+                        (wasMember ? updatedFeatures : addedFeatures).add(feature);
+                    } else if (wasMember) {
+                        removedFeatureIds.add(featureId);
+                    }
+                }
+
+                entry.pass = pass;
+                if (entry.member) {
+                    filteredFeatures.add(feature);
+                }
+            }
+        }
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> mapEntry = iterator.next();
+            if (mapEntry.getValue().pass != pass) {
+                if (mapEntry.getValue().member) {
+                    removedFeatureIds.add(mapEntry.getKey());
+                }
+                iterator.remove();
+            }
+        }
+
+        boolean untracked = untrackedCount > 0 || previousUntrackedCount > 0;
+        previousUntrackedCount = untrackedCount;
+
+        boolean reordered = !isSameOrder(filteredFeatures);
+        // Copied since the caller may sort the returned features in place
+        previousFilteredFeatures = filteredFeatures.toArray(new Feature[0]);
+
+        return new Delta(FeatureCollection.fromFeatures(filteredFeatures), addedFeatures, updatedFeatures
+                , removedFeatureIds, evaluatedCount, untracked || reordered);
+    }
+
+    private boolean isSameOrder(@NonNull List<Feature> filteredFeatures) {
+        if (filteredFeatures.size() != previousFilteredFeatures.length) {
+            return false;
+        }
+        for (int i = 0; i < previousFilteredFeatures.length; i++) {
+            if (filteredFeatures.get(i) != previousFilteredFeatures[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the previous pass so that the next one evaluates all the features and reports them
+     * as added, e.g. after the filter's conditions changed
+     */
+    public synchronized void reset() {
+        entries.clear();
+        previousUntrackedCount = 0;
+        previousFilteredFeatures = new Feature[0];
+    }
+
+    @NonNull
+    public FeatureFilter getFeatureFilter() {
+        return featureFilter;
+    }
+
+    private static class Entry {
+        private Feature feature;
+        private int hash;
+        private boolean member;
+        private int pass;
+    }
+
+    public static class Delta {
+
+        private final FeatureCollection featureCollection;
+        private final List<Feature> addedFeatures;
+        private final List<Feature> updatedFeatures;
+        private final List<String> removedFeatureIds;
+        private final int evaluatedCount;
+        private final boolean untrackedOrReordered;
+
+        private Delta(@NonNull FeatureCollection featureCollection, @NonNull List<Feature> addedFeatures
+                , @NonNull List<Feature> updatedFeatures, @NonNull List<String> removedFeatureIds
+                , int evaluatedCount, boolean untrackedOrReordered) {
+            this.featureCollection = featureCollection;
+            this.addedFeatures = Collections.unmodifiableList(addedFeatures);
+            this.updatedFeatures = Collections.unmodifiableList(updatedFeatures);
+            this.removedFeatureIds = Collections.unmodifiableList(removedFeatureIds);
+            this.evaluatedCount = evaluatedCount;
+            this.untrackedOrReordered = untrackedOrReordered;
+        }
+
+        /**
+         * @return all the features passing the filter, in their original order
+         */
+        @NonNull
+        public FeatureCollection getFeatureCollection() {
+            return featureCollection;
+        }
+
+        /**
+         * @return the features that pass the filter and did not in the previous pass
+         */
+        @NonNull
+        public List<Feature> getAddedFeatures() {
+            return addedFeatures;
+        }
+
+        /**
+         * @return the features that were replaced or modified in place and still pass the filter
+         */
+        @NonNull
+        public List<Feature> getUpdatedFeatures() {
+            return updatedFeatures;
+        }
+
+        /**
+         * @return the ids of the features that passed the filter in the previous pass but were
+         * removed or do not pass anymore
+         */
+        @NonNull
+        public List<String> getRemovedFeatureIds() {
+            return removedFeatureIds;
+        }
+
+        /**
+         * @return the number of features the filter was evaluated on in this pass
+         */
+        public int getEvaluatedCount() {
+            return evaluatedCount;
+        }
+
+        /**
+         * @return {@code true} if the filtered features are the same, and in the same order, as in the previous pass
+         */
+        public boolean isEmpty() {
+            return !untrackedOrReordered && addedFeatures.isEmpty() && updatedFeatures.isEmpty() && removedFeatureIds.isEmpty();
+        }
+    }
+}
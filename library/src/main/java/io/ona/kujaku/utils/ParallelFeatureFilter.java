@@ -0,0 +1,141 @@
+package io.ona.kujaku.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import com.mapbox.geojson.Feature;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.ona.kujaku.comparisons.FeaturePredicate;
+
+/**
+ * Evaluates a {@link FeaturePredicate} over contiguous chunks of a feature list on a small shared
+ * pool of threads and concatenates the chunk results so that the original order is preserved.
+ * The calling thread evaluates the first chunk itself. The pool is capped at {@link #MAX_THREADS}
+ * to spare the battery, and its threads time out when idle.
+ */
+final class ParallelFeatureFilter {
+
+    static final int MAX_THREADS = 4;
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    private static ThreadPoolExecutor executor;
+
+    /**
+     * Used instead of the number of processors when greater than 0, so that tests can force the
+     * list to be split on single-core machines
+     */
+    @VisibleForTesting
+    static int parallelismOverride;
+
+    private ParallelFeatureFilter() {}
+
+    /**
+     * @return the number of threads, including the calling thread, a list is split across
+     */
+    static int getParallelism() {
+        if (parallelismOverride > 0) {
+            return parallelismOverride;
+        }
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS));
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor(int poolSize) {
+        if (executor == null) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            executor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS
+                    , new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "kujaku-feature-filter-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        return executor;
+    }
+
+    @NonNull
+    static ArrayList<Feature> filter(@NonNull List<Feature> features, @NonNull final FeaturePredicate predicate) {
+        final List<Feature> randomAccessFeatures = features instanceof RandomAccess ? features : new ArrayList<>(features);
+        int size = randomAccessFeatures.size();
+
+        int parallelism = getParallelism();
+        if (parallelism < 2 || size < parallelism) {
+            return filter(randomAccessFeatures, 0, size, predicate);
+        }
+
+        int chunkSize = (size + parallelism - 1) / parallelism;
+
+        ThreadPoolExecutor executor = getExecutor(parallelism - 1);
+        List<Future<ArrayList<Feature>>> chunkResults = new ArrayList<>();
+        for (int from = chunkSize; from < size; from += chunkSize) {
+            final int chunkFrom = from;
+            final int chunkTo = Math.min(from + chunkSize, size);
+            chunkResults.add(executor.submit(new Callable<ArrayList<Feature>>() {
+                @Override
+                public ArrayList<Feature> call() {
+                    return filter(randomAccessFeatures, chunkFrom, chunkTo, predicate);
+                }
+            }));
+        }
+
+        ArrayList<Feature> filteredFeatures = filter(randomAccessFeatures, 0, Math.min(chunkSize, size), predicate);
+        int chunkFrom = chunkSize;
+        for (Future<ArrayList<Feature>> chunkResult : chunkResults) {
+            int chunkTo = Math.min(chunkFrom + chunkSize, size);
+            filteredFeatures.addAll(getChunkResult(chunkResult, randomAccessFeatures, chunkFrom, chunkTo, predicate));
+            chunkFrom = chunkTo;
+        }
+
+        return filteredFeatures;
+    }
+
+    @NonNull
+    private static ArrayList<Feature> getChunkResult(@NonNull Future<ArrayList<Feature>> chunkResult
+            , @NonNull List<Feature> features, int from, int to, @NonNull FeaturePredicate predicate) {
+        try {
+            return chunkResult.get();
+        } catch (InterruptedException e) {
+            // Do not leave the caller with a partial result, finish the chunk on this thread instead
+            Thread.currentThread().interrupt();
+            chunkResult.cancel(true);
+            return filter(features, from, to, predicate);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    @NonNull
+    static ArrayList<Feature> filter(@NonNull List<Feature> features, int from, int to, @NonNull FeaturePredicate predicate) {
+        ArrayList<Feature> filteredFeatures = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Feature feature = features.get(i);
+            if (predicate.test(feature)) {
+                filteredFeatures.add(feature);
+            }
+        }
+
+        return filteredFeatures;
+    }
+}
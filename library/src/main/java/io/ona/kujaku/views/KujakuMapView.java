@@ -8,6 +8,7 @@ import android.content.IntentSender;
 import android.content.ServiceConnection;
 import android.content.res.TypedArray;
 import android.graphics.PointF;
+import android.graphics.RectF;
 import android.location.Location;
 import android.location.LocationListener;
 import android.os.IBinder;
@@ -32,6 +33,8 @@ import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationSettingsResult;
 import com.google.android.gms.location.LocationSettingsStatusCodes;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
 import com.mapbox.android.gestures.MoveGestureDetector;
 import com.mapbox.geojson.FeatureCollection;
 import com.mapbox.mapboxsdk.annotations.IconFactory;
@@ -39,6 +42,7 @@ import com.mapbox.mapboxsdk.annotations.MarkerOptions;
 import com.mapbox.mapboxsdk.camera.CameraPosition;
 import com.mapbox.mapboxsdk.camera.CameraUpdateFactory;
 import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
 import com.mapbox.mapboxsdk.geometry.VisibleRegion;
 import com.mapbox.mapboxsdk.location.modes.RenderMode;
 import com.mapbox.mapboxsdk.maps.MapView;
@@ -47,13 +51,17 @@ import com.mapbox.mapboxsdk.maps.MapboxMapOptions;
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 import com.mapbox.mapboxsdk.maps.Style;
 import com.mapbox.mapboxsdk.style.expressions.Expression;
+import com.mapbox.mapboxsdk.style.layers.CircleLayer;
 import com.mapbox.mapboxsdk.style.layers.Layer;
+import com.mapbox.mapboxsdk.style.layers.SymbolLayer;
 import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -65,16 +73,26 @@ import io.ona.kujaku.callbacks.AddPointCallback;
 import io.ona.kujaku.callbacks.OnLocationServicesEnabledCallBack;
 import io.ona.kujaku.exceptions.TrackingServiceNotInitializedException;
 import io.ona.kujaku.exceptions.WmtsCapabilitiesException;
+import io.ona.kujaku.features.ClusterOptions;
+import io.ona.kujaku.features.FeatureBatch;
+import io.ona.kujaku.features.FeatureSourceUpdater;
+import io.ona.kujaku.features.FeatureSpatialIndex;
+import io.ona.kujaku.features.FeatureStore;
+import io.ona.kujaku.features.GeometryBounds;
+import io.ona.kujaku.features.GeoJsonFeatureLoader;
+import io.ona.kujaku.features.ViewportRegion;
 import io.ona.kujaku.helpers.MapboxLocationComponentWrapper;
 import io.ona.kujaku.helpers.PermissionsHelper;
 import io.ona.kujaku.helpers.wmts.WmtsHelper;
 import io.ona.kujaku.interfaces.IKujakuMapView;
 import io.ona.kujaku.interfaces.ILocationClient;
 import io.ona.kujaku.layers.KujakuLayer;
+import io.ona.kujaku.layers.KujakuLayerHitTester;
 import io.ona.kujaku.listeners.BaseLocationListener;
 import io.ona.kujaku.listeners.BoundsChangeListener;
 import io.ona.kujaku.listeners.LocationClientStartedCallback;
 import io.ona.kujaku.listeners.OnFeatureClickListener;
+import io.ona.kujaku.listeners.OnFeatureSourceUpdatedListener;
 import io.ona.kujaku.listeners.OnKujakuLayerClickListener;
 import io.ona.kujaku.listeners.OnKujakuLayerLongClickListener;
 import io.ona.kujaku.listeners.OnLocationChanged;
@@ -107,6 +125,21 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
     private static final String TAG = KujakuMapView.class.getName();
     public static final double LOCATION_FOCUS_ZOOM = 20d;
 
+    /**
+     * Deliver all the features under a tap to the {@link OnFeatureClickListener}
+     */
+    public static final int FEATURE_CLICK_RESOLVE_ALL = 0;
+
+    /**
+     * Deliver only the top-most feature under a tap to the {@link OnFeatureClickListener}
+     */
+    public static final int FEATURE_CLICK_RESOLVE_TOP_MOST = 1;
+
+    /**
+     * Deliver only the feature nearest to a tap to the {@link OnFeatureClickListener}
+     */
+    public static final int FEATURE_CLICK_RESOLVE_NEAREST = 2;
+
     private boolean canAddPoint = false;
 
     private ImageView markerLayout;
@@ -146,9 +179,30 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
      */
     private Set<WmtsLayer> wmtsLayers;
 
-    private FeatureCollection featureCollection;
+    private final FeatureStore featureStore = new FeatureStore();
+
+    private final FeatureSpatialIndex featureIndex = new FeatureSpatialIndex(featureStore);
+
+    private static final int FEATURE_MISSING = -1;
+    private static final int FEATURE_UNCHANGED = 0;
+    private static final int FEATURE_CHANGED = 1;
 
-    private Map<String, Integer> featureMap;
+    private FeatureSourceUpdater primarySourceUpdater;
+
+    private GeoJsonFeatureLoader geoJsonFeatureLoader;
+
+    @Nullable
+    private ClusterOptions primaryClusterOptions;
+
+    @Nullable
+    private ViewportRegion viewportRegion;
+
+    private final MapboxMap.OnCameraIdleListener viewportCameraIdleListener = new MapboxMap.OnCameraIdleListener() {
+        @Override
+        public void onCameraIdle() {
+            updateViewportFeatures();
+        }
+    };
 
     private Layer primaryLayer;
 
@@ -167,6 +221,8 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
     private OnFeatureClickListener onFeatureClickListener;
     private String[] featureClickLayerIdFilters;
     private Expression featureClickExpressionFilter;
+    private float featureClickTolerance;
+    private int featureClickResolution = FEATURE_CLICK_RESOLVE_ALL;
 
     private OnKujakuLayerClickListener onKujakuLayerClickListener;
     private OnKujakuLayerLongClickListener onKujakuLayerLongClickListener;
@@ -180,6 +236,8 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
     private OnLocationServicesEnabledCallBack onLocationServicesEnabledCallBack;
 
     private ArrayList<KujakuLayer> kujakuLayers = new ArrayList<>();
+
+    private KujakuLayerHitTester kujakuLayerHitTester = new KujakuLayerHitTester(kujakuLayers);
     private ArrayList<LocationClientStartedCallback> locationClientCallbacks = new ArrayList<>();
 
     /**
@@ -286,7 +344,23 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
             useGoogleLocationClientInsteadOfAndroidGpsClient = ((int) attributes.get(locationClientKey)) == 0;
         }
 
-        featureMap = new HashMap<>();
+        primarySourceUpdater = new FeatureSourceUpdater(this, new FeatureSourceUpdater.Target() {
+            @Nullable
+            @Override
+            public com.mapbox.geojson.Feature[] snapshotFeatures(@Nullable double[] bbox) {
+                return snapshotPrimaryFeatures(bbox);
+            }
+
+            @Override
+            public boolean setGeoJson(@NonNull String geoJson) {
+                GeoJsonSource source = getPrimaryGeoJsonSourceOnMap();
+                if (source == null) {
+                    return false;
+                }
+                source.setGeoJson(geoJson);
+                return true;
+            }
+        });
         mapboxLocationComponentWrapper = new MapboxLocationComponentWrapper();
     }
 
@@ -609,6 +683,9 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
         // add bounds change listener
         addMapScrollListenerAndBoundsChangeEmitterToMap(mapboxMap);
         callBoundsChangedListeners();
+        mapboxMap.removeOnCameraIdleListener(viewportCameraIdleListener);
+        mapboxMap.addOnCameraIdleListener(viewportCameraIdleListener);
+        updateViewportFeatures();
         enableFeatureClickListenerEmitter(mapboxMap);
 
         WmtsHelper.addWmtsLayers(wmtsLayers, style);
@@ -629,6 +706,9 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
             initializeSourceAndFeatureCollectionFromStyle(style);
             isFetchSourceFromStyle = false;
         }
+
+        // Features added before the style was loaded have not reached the source yet
+        primarySourceUpdater.flush();
     }
 
     public Set<WmtsLayer> getWmtsLayers() {
@@ -718,6 +798,49 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
         }
     }
 
+    @NonNull
+    @Override
+    public List<com.mapbox.geojson.Feature> queryFeaturesWithinBounds(@NonNull LatLngBounds bounds) {
+        return featureIndex.queryWithinBounds(ViewportRegion.toBbox(bounds));
+    }
+
+    @NonNull
+    @Override
+    public List<com.mapbox.geojson.Feature> queryFeaturesWithinRadius(@NonNull LatLng center, double radiusInMetres) {
+        return featureIndex.queryWithinRadius(center, radiusInMetres);
+    }
+
+    @NonNull
+    @Override
+    public List<com.mapbox.geojson.Feature> queryNearestFeatures(@NonNull LatLng point, int count) {
+        return featureIndex.queryNearest(point, count);
+    }
+
+    @Override
+    public void setViewportFeatureLoading(boolean enabled, double paddingInMetres) {
+        if (enabled) {
+            viewportRegion = new ViewportRegion(paddingInMetres);
+            updateViewportFeatures();
+        } else {
+            viewportRegion = null;
+            primarySourceUpdater.setBoundsFilter(null);
+        }
+    }
+
+    /**
+     * Reloads the features around the viewport into the primary source if the visible region left
+     * the region that is currently loaded
+     */
+    private void updateViewportFeatures() {
+        if (viewportRegion == null) {
+            return;
+        }
+        VisibleRegion visibleRegion = getCurrentBounds();
+        if (visibleRegion != null && viewportRegion.update(ViewportRegion.toBbox(visibleRegion.latLngBounds))) {
+            primarySourceUpdater.setBoundsFilter(viewportRegion.getLoadedBbox());
+        }
+    }
+
     @VisibleForTesting
     @Nullable
     protected VisibleRegion getCurrentBounds() {
@@ -897,72 +1020,241 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
 
     @Override
     public void addFeaturePoints(FeatureCollection featureCollection) {
-        List<com.mapbox.geojson.Feature> features = this.featureCollection.features();
+        int addedFeatureCount = 0;
         for (com.mapbox.geojson.Feature feature : featureCollection.features()) {
-            String featureId = feature.id();
-            if (featureId != null && !featureMap.containsKey(featureId)) {
-                featureMap.put(featureId, features.size());
-                features.add(feature);
+            if (addFeature(feature)) {
+                addedFeatureCount++;
             }
         }
-        if (mapboxMap != null) {
-            mapboxMap.getStyle(new Style.OnStyleLoaded() {
-                @Override
-                public void onStyleLoaded(@NonNull Style style) {
-                    ((GeoJsonSource) style.getSource(primaryGeoJsonSource.getId())).setGeoJson(KujakuMapView.this.featureCollection);
-                }
-            });
-        }
+        primarySourceUpdater.markDirty(addedFeatureCount);
     }
 
     @Override
     public void updateFeaturePointProperties(FeatureCollection featureCollection) throws JSONException {
-        List<com.mapbox.geojson.Feature> currFeatures = this.featureCollection.features();
-        List<com.mapbox.geojson.Feature> newFeatures = new ArrayList<>();
+        updateFeaturePointPropertiesAndCount(featureCollection);
+    }
+
+    @Override
+    public int updateFeaturePointPropertiesAndCount(FeatureCollection featureCollection) throws JSONException {
+        int changedFeatureCount = 0;
         for (com.mapbox.geojson.Feature feature : featureCollection.features()) {
-            String featureId = feature.id();
-            if (featureMap.containsKey(featureId)) {
-                int featureIndex = featureMap.get(featureId);
-                com.mapbox.geojson.Feature currFeature = currFeatures.get(featureIndex);
-                for (Map.Entry<String, JsonElement> entry : feature.properties().entrySet()) {
-                    currFeature.removeProperty(entry.getKey());
-                    currFeature.addStringProperty(entry.getKey(), entry.getValue().getAsString());
-                }
-            } else {
-                newFeatures.add(feature);
+            int result = updateFeatureProperties(feature);
+            // add the feature if it is new
+            if (result == FEATURE_CHANGED || (result == FEATURE_MISSING && addFeature(feature))) {
+                changedFeatureCount++;
             }
         }
-        // add new features if any
-        FeatureCollection newFeatureCollection = FeatureCollection.fromFeatures(newFeatures);
-        addFeaturePoints(newFeatureCollection);
-        if (mapboxMap != null) {
-            ((GeoJsonSource) mapboxMap.getStyle().getSource(primaryGeoJsonSource.getId())).setGeoJson(this.featureCollection);
+        primarySourceUpdater.markDirty(changedFeatureCount);
+        return changedFeatureCount;
+    }
+
+    @Override
+    public FeatureBatch beginFeatureBatch() {
+        return new FeatureBatch(new FeatureBatch.Committer() {
+            @Override
+            public int commit(@NonNull List<FeatureBatch.Operation> operations) {
+                return commitFeatureBatch(operations);
+            }
+        });
+    }
+
+    private int commitFeatureBatch(@NonNull List<FeatureBatch.Operation> operations) {
+        int changedFeatureCount = 0;
+        for (FeatureBatch.Operation operation : operations) {
+            boolean changed;
+            switch (operation.getType()) {
+                case FeatureBatch.ADD:
+                    changed = addFeature(operation.getFeature());
+                    break;
+                case FeatureBatch.UPDATE:
+                    int result = updateFeatureProperties(operation.getFeature());
+                    changed = result == FEATURE_CHANGED || (result == FEATURE_MISSING && addFeature(operation.getFeature()));
+                    break;
+                default:
+                    changed = featureStore.remove(operation.getFeatureId());
+                    break;
+            }
+            if (changed) {
+                changedFeatureCount++;
+            }
+        }
+        primarySourceUpdater.markDirty(changedFeatureCount);
+        return changedFeatureCount;
+    }
+
+    @Override
+    public int removeFeatures(@NonNull Collection<String> featureIds) {
+        int removedFeatureCount = 0;
+        for (String featureId : featureIds) {
+            if (featureStore.remove(featureId)) {
+                removedFeatureCount++;
+            }
+        }
+        primarySourceUpdater.markDirty(removedFeatureCount);
+        return removedFeatureCount;
+    }
+
+    private boolean addFeature(@NonNull com.mapbox.geojson.Feature feature) {
+        return featureStore.add(feature);
+    }
+
+    /**
+     * Merges the properties of the given feature into the existing feature with the same id,
+     * keeping their JSON types. The existing feature is replaced by a copy rather than modified
+     * since it might be part of a snapshot that is being serialized in the background, and it is
+     * left as is when none of the property values differ.
+     *
+     * @param feature
+     * @return {@link #FEATURE_CHANGED}, {@link #FEATURE_UNCHANGED} or {@link #FEATURE_MISSING} if
+     * there is no feature with the same id
+     */
+    private int updateFeatureProperties(@NonNull com.mapbox.geojson.Feature feature) {
+        com.mapbox.geojson.Feature currFeature = featureStore.get(feature.id());
+        if (currFeature == null) {
+            return FEATURE_MISSING;
+        }
+        JsonObject newProperties = feature.properties();
+        if (newProperties == null || newProperties.size() == 0) {
+            return FEATURE_UNCHANGED;
+        }
+
+        JsonObject currProperties = currFeature.properties();
+
+        JsonObject properties = null;
+        for (Map.Entry<String, JsonElement> entry : newProperties.entrySet()) {
+            JsonElement value = entry.getValue() == null ? JsonNull.INSTANCE : entry.getValue();
+            if (currProperties != null && value.equals(currProperties.get(entry.getKey()))) {
+                continue;
+            }
+            if (properties == null) {
+                properties = copyProperties(currProperties);
+            }
+            properties.add(entry.getKey(), value);
+        }
+
+        if (properties == null) {
+            return FEATURE_UNCHANGED;
+        }
+        featureStore.replace(com.mapbox.geojson.Feature.fromGeometry(currFeature.geometry(), properties, currFeature.id(), currFeature.bbox()));
+        return FEATURE_CHANGED;
+    }
+
+    private static JsonObject copyProperties(@Nullable JsonObject properties) {
+        JsonObject copy = new JsonObject();
+        if (properties != null) {
+            for (Map.Entry<String, JsonElement> entry : properties.entrySet()) {
+                copy.add(entry.getKey(), entry.getValue());
+            }
+        }
+        return copy;
+    }
+
+    @Override
+    public void setFeatureUpdateDebounceWindow(long debounceWindow) {
+        primarySourceUpdater.setDebounceWindow(debounceWindow);
+    }
+
+    /**
+     * Takes a snapshot of the features of the primary source for {@link #primarySourceUpdater}.
+     * Features are never modified once they are in the store, so copying its slots is enough.
+     * When only the features around the viewport are shown, they are looked up in {@link #featureIndex}
+     * instead of scanning the whole store, unless geometries changed since it was built. Rebuilding it
+     * here would cost a full rebuild on the main thread for every chunk of a progressive load, so the
+     * whole store is snapshot instead and the updater drops the features outside the bounds off the
+     * main thread.
+     *
+     * @param bbox the loaded region or {@code null} for all the features
+     * @return the snapshot or {@code null} if the map, style or source is not ready
+     */
+    @Nullable
+    private com.mapbox.geojson.Feature[] snapshotPrimaryFeatures(@Nullable double[] bbox) {
+        if (getPrimaryGeoJsonSourceOnMap() == null) {
+            return null;
+        }
+        return bbox == null || featureIndex.isStale() ? featureStore.snapshot()
+                : featureIndex.queryWithinBounds(bbox).toArray(new com.mapbox.geojson.Feature[0]);
+    }
+
+    @Nullable
+    private GeoJsonSource getPrimaryGeoJsonSourceOnMap() {
+        if (mapboxMap == null || primaryGeoJsonSource == null) {
+            return null;
         }
+        Style style = mapboxMap.getStyle();
+        return style != null && style.isFullyLoaded() ? (GeoJsonSource) style.getSource(primaryGeoJsonSource.getId()) : null;
+    }
+
+    @Override
+    public void setOnFeatureSourceUpdatedListener(@Nullable OnFeatureSourceUpdatedListener onFeatureSourceUpdatedListener) {
+        primarySourceUpdater.setOnFeatureSourceUpdatedListener(onFeatureSourceUpdatedListener);
     }
 
     public void initializePrimaryGeoJsonSource(String sourceId, boolean isFetchSourceFromStyle, String geoJsonSource) {
+        initializePrimaryGeoJsonSource(sourceId, isFetchSourceFromStyle, geoJsonSource, null);
+    }
+
+    /**
+     * Initializes the primary source with clustering. Clustering of a source that is fetched from the
+     * style has to be configured in the style itself, so {@code clusterOptions} then only controls
+     * whether clicked clusters are expanded.
+     *
+     * @param sourceId
+     * @param isFetchSourceFromStyle
+     * @param geoJsonSource
+     * @param clusterOptions the clustering options or {@code null} to disable clustering
+     */
+    public void initializePrimaryGeoJsonSource(String sourceId, boolean isFetchSourceFromStyle, String geoJsonSource, @Nullable ClusterOptions clusterOptions) {
         if (sourceId == null || (isFetchSourceFromStyle && geoJsonSource == null)) {
             Timber.e(new Exception("GeoJson source initialization failed! Ensure that the source id is not null or that the GeoJson source is not null."));
             return;
         }
-        featureCollection = FeatureCollection.fromFeatures(new ArrayList<>());
+        cancelGeoJsonFeatureLoader();
+        featureStore.clear();
+        primaryClusterOptions = clusterOptions;
 
         if (isFetchSourceFromStyle) {
             this.isFetchSourceFromStyle = true;
             setPrimaryGeoJsonSourceId(sourceId);
             setGeoJsonSourceString(geoJsonSource);
+        } else if (clusterOptions != null) {
+            primaryGeoJsonSource = new GeoJsonSource(sourceId, FeatureCollection.fromFeatures(new ArrayList<>()), clusterOptions.toGeoJsonOptions());
         } else {
-            primaryGeoJsonSource = new GeoJsonSource(sourceId, featureCollection);
+            primaryGeoJsonSource = new GeoJsonSource(sourceId, FeatureCollection.fromFeatures(new ArrayList<>()));
         }
     }
 
+    /**
+     * Parses {@link #geoJsonSourceString} off the main thread and adds its features to the primary
+     * source in chunks as they are parsed
+     *
+     * @param style
+     */
     private void initializeSourceAndFeatureCollectionFromStyle(@NonNull Style style) {
-        try {
-            FeatureCollection featureCollection = FeatureCollection.fromJson(getGeoJsonSourceString());
-            primaryGeoJsonSource = style.getSourceAs(getPrimaryGeoJsonSourceId());
-            addFeaturePoints(featureCollection);
-        } catch (Exception e) {
-            Timber.e(e);
+        primaryGeoJsonSource = style.getSourceAs(getPrimaryGeoJsonSourceId());
+        cancelGeoJsonFeatureLoader();
+        geoJsonFeatureLoader = new GeoJsonFeatureLoader(getGeoJsonSourceString(), new GeoJsonFeatureLoader.Callback() {
+            @Override
+            public void onFeaturesLoaded(@NonNull List<com.mapbox.geojson.Feature> features) {
+                addFeaturePoints(FeatureCollection.fromFeatures(features));
+            }
+
+            @Override
+            public void onLoadFinished(int featureCount) {
+                geoJsonFeatureLoader = null;
+            }
+
+            @Override
+            public void onLoadFailed(@NonNull Exception e) {
+                geoJsonFeatureLoader = null;
+                Timber.e(e);
+            }
+        }).load();
+    }
+
+    private void cancelGeoJsonFeatureLoader() {
+        if (geoJsonFeatureLoader != null) {
+            geoJsonFeatureLoader.cancel(true);
+            geoJsonFeatureLoader = null;
         }
     }
 
@@ -1102,17 +1394,22 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
     @Override
     public boolean onMapClick(@NonNull LatLng point) {
         PointF pixel = mapboxMap.getProjection().toScreenLocation(point);
+        RectF box = featureClickTolerance > 0 ? new RectF(pixel.x - featureClickTolerance, pixel.y - featureClickTolerance
+                , pixel.x + featureClickTolerance, pixel.y + featureClickTolerance) : null;
 
+        // Each listener needs a single query to tell that the tap missed its layers: rendered features
+        // do not carry the id of their layer, so one query cannot be split between the listeners
         if (onFeatureClickListener != null) {
-            List<com.mapbox.geojson.Feature> features = mapboxMap.queryRenderedFeatures(pixel, featureClickExpressionFilter, featureClickLayerIdFilters);
+            List<com.mapbox.geojson.Feature> features = queryRenderedFeatures(pixel, box, featureClickExpressionFilter, featureClickLayerIdFilters);
 
-            if (features.size() > 0) {
-                onFeatureClickListener.onFeatureClick(features);
+            if (features.size() > 0 && !expandClickedCluster(pixel, box, features)) {
+                onFeatureClickListener.onFeatureClick(resolveClickedFeatures(point, features));
             }
         }
 
         if (onKujakuLayerClickListener != null) {
-            KujakuLayer layer = KujakuLayer.getKujakuLayerSelected(pixel, kujakuLayers, mapboxMap);
+            KujakuLayer layer = box != null ? kujakuLayerHitTester.getKujakuLayerSelected(box, mapboxMap)
+                    : kujakuLayerHitTester.getKujakuLayerSelected(pixel, mapboxMap);
             if (layer != null) {
                 onKujakuLayerClickListener.onKujakuLayerClick(layer);
             }
@@ -1121,12 +1418,121 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
         return false;
     }
 
+    /**
+     * Expands the top-most cluster of the primary source under the tap if the primary source is
+     * clustered and expanding clusters on click is enabled. Clusters of other sources look the same,
+     * so the clusters are queried again from the layers rendering the primary source.
+     *
+     * @param pixel
+     * @param box
+     * @param features the clicked features
+     * @return {@code true} if a cluster was expanded
+     */
+    private boolean expandClickedCluster(@NonNull PointF pixel, @Nullable RectF box, @NonNull List<com.mapbox.geojson.Feature> features) {
+        if (primaryClusterOptions == null || !primaryClusterOptions.isZoomOnClick()) {
+            return false;
+        }
+        boolean hasCluster = false;
+        for (com.mapbox.geojson.Feature feature : features) {
+            if (ClusterOptions.isCluster(feature)) {
+                hasCluster = true;
+                break;
+            }
+        }
+
+        String[] primaryLayerIds = hasCluster ? getPrimarySourceLayerIds() : null;
+        if (primaryLayerIds == null || primaryLayerIds.length == 0) {
+            return false;
+        }
+        for (com.mapbox.geojson.Feature feature : queryRenderedFeatures(pixel, box, Expression.has(ClusterOptions.CLUSTER), primaryLayerIds)) {
+            if (ClusterOptions.isCluster(feature)) {
+                return expandCluster(feature);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the ids of the circle and symbol layers, which can render clusters, of the primary source
+     */
+    @NonNull
+    private String[] getPrimarySourceLayerIds() {
+        GeoJsonSource source = getPrimaryGeoJsonSourceOnMap();
+        if (source == null) {
+            return new String[0];
+        }
+        List<String> layerIds = new ArrayList<>();
+        for (Layer layer : mapboxMap.getStyle().getLayers()) {
+            String sourceId = layer instanceof CircleLayer ? ((CircleLayer) layer).getSourceId()
+                    : layer instanceof SymbolLayer ? ((SymbolLayer) layer).getSourceId() : null;
+            if (source.getId().equals(sourceId)) {
+                layerIds.add(layer.getId());
+            }
+        }
+        return layerIds.toArray(new String[0]);
+    }
+
+    @Override
+    public boolean expandCluster(@NonNull com.mapbox.geojson.Feature cluster) {
+        GeoJsonSource source = getPrimaryGeoJsonSourceOnMap();
+        if (source == null || !ClusterOptions.isCluster(cluster) || !(cluster.geometry() instanceof com.mapbox.geojson.Point)) {
+            return false;
+        }
+        com.mapbox.geojson.Point center = (com.mapbox.geojson.Point) cluster.geometry();
+        int zoom = source.getClusterExpansionZoom(cluster);
+        mapboxMap.animateCamera(CameraUpdateFactory.newLatLngZoom(new LatLng(center.latitude(), center.longitude()), zoom));
+        return true;
+    }
+
+    private List<com.mapbox.geojson.Feature> queryRenderedFeatures(@NonNull PointF pixel, @Nullable RectF box
+            , @Nullable Expression filter, @Nullable String... layerIds) {
+        return box != null ? mapboxMap.queryRenderedFeatures(box, filter, layerIds)
+                : mapboxMap.queryRenderedFeatures(pixel, filter, layerIds);
+    }
+
+    /**
+     * Applies the {@link #featureClickResolution} to the features under a tap. Rendered features are
+     * ordered top-most first, and the nearest feature is found from the bounding boxes of the features.
+     *
+     * @param point
+     * @param features
+     * @return the features to deliver to the {@link OnFeatureClickListener}
+     */
+    private List<com.mapbox.geojson.Feature> resolveClickedFeatures(@NonNull LatLng point, @NonNull List<com.mapbox.geojson.Feature> features) {
+        if (featureClickResolution == FEATURE_CLICK_RESOLVE_TOP_MOST) {
+            return features.subList(0, 1);
+        } else if (featureClickResolution == FEATURE_CLICK_RESOLVE_NEAREST) {
+            com.mapbox.geojson.Feature nearestFeature = features.get(0);
+            double nearestDistance = Double.POSITIVE_INFINITY;
+            for (com.mapbox.geojson.Feature feature : features) {
+                double[] bbox = GeometryBounds.getBbox(feature);
+                double distance = bbox == null ? Double.POSITIVE_INFINITY : GeometryBounds.getDistance(point, bbox);
+                if (distance < nearestDistance) {
+                    nearestFeature = feature;
+                    nearestDistance = distance;
+                }
+            }
+            return Collections.singletonList(nearestFeature);
+        }
+        return features;
+    }
+
+    @Override
+    public void setFeatureClickTolerance(float toleranceInPixels) {
+        featureClickTolerance = Math.max(toleranceInPixels, 0);
+    }
+
+    @Override
+    public void setFeatureClickResolution(int featureClickResolution) {
+        this.featureClickResolution = featureClickResolution;
+    }
+
     @Override
     public boolean onMapLongClick(@NonNull LatLng point) {
         PointF pixel = mapboxMap.getProjection().toScreenLocation(point);
 
         if (onKujakuLayerLongClickListener != null) {
-            KujakuLayer layer = KujakuLayer.getKujakuLayerSelected(pixel, kujakuLayers, mapboxMap);
+            KujakuLayer layer = kujakuLayerHitTester.getKujakuLayerSelected(pixel, mapboxMap);
             if (layer != null) {
                 onKujakuLayerLongClickListener.onKujakuLayerLongClick(layer);
             }
@@ -1189,6 +1595,7 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
         kujakuLayer.setRemoved(false);
         if (!kujakuLayers.contains(kujakuLayer)) {
             kujakuLayers.add(kujakuLayer);
+            kujakuLayerHitTester.invalidate();
             getMapAsync(new OnMapReadyCallback() {
                 @Override
                 public void onMapReady(@NonNull MapboxMap mapboxMap) {
@@ -1284,7 +1691,9 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
             kujakuLayer.setRemoved(true);
         }
 
-        kujakuLayers.remove(kujakuLayer);
+        if (kujakuLayers.remove(kujakuLayer)) {
+            kujakuLayerHitTester.invalidate();
+        }
     }
 
     private void resetRejectionDialogContent() {
@@ -1521,6 +1930,8 @@ public class KujakuMapView extends MapView implements IKujakuMapView, MapboxMap.
 
     @Override
     public void onDestroy() {
+        cancelGeoJsonFeatureLoader();
+        primarySourceUpdater.destroy();
         if (mbTilesHelper != null) {
             mbTilesHelper.onDestroy();
         }
@@ -0,0 +1,82 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.ona.kujaku.BaseTest;
+import io.ona.kujaku.utils.helpers.converters.GeoJSONFeature;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AndPredicateTest extends BaseTest {
+
+    @Test
+    public void constructorShouldOrderPredicatesByCost() {
+        FeaturePredicate regex = new RegexComparison().compile("name", Comparison.TYPE_STRING, "a.*");
+        FeaturePredicate exists = new ExistsPredicate("name");
+        FeaturePredicate equalTo = new EqualToComparison().compile("name", Comparison.TYPE_STRING, "abc");
+
+        FeaturePredicate[] predicates = new AndPredicate(Arrays.asList(regex, exists, equalTo)).getPredicates();
+
+        assertSame(exists, predicates[0]);
+        assertSame(equalTo, predicates[1]);
+        assertSame(regex, predicates[2]);
+    }
+
+    @Test
+    public void testShouldStopAtFirstFailingPredicate() {
+        List<String> evaluated = new ArrayList<>();
+        AndPredicate andPredicate = new AndPredicate(Arrays.<FeaturePredicate>asList(
+                new RecordingPredicate("expensive", 5, true, evaluated),
+                new RecordingPredicate("cheap", 1, false, evaluated)));
+
+        assertFalse(andPredicate.test(generateRandomFeatureWithProperties()));
+        assertEquals(Arrays.asList("cheap"), evaluated);
+    }
+
+    @Test
+    public void testShouldReturnTrueWhenAllPredicatesMatch() {
+        AndPredicate andPredicate = new AndPredicate(Arrays.asList(
+                new ExistsPredicate("name"),
+                new RegexComparison().compile("name", Comparison.TYPE_STRING, "a.*")));
+
+        assertTrue(andPredicate.test(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("name", "abc"))));
+        assertFalse(andPredicate.test(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("name", "bcd"))));
+    }
+
+    private static class RecordingPredicate implements FeaturePredicate {
+
+        private final String name;
+        private final int cost;
+        private final boolean result;
+        private final List<String> evaluated;
+
+        RecordingPredicate(String name, int cost, boolean result, List<String> evaluated) {
+            this.name = name;
+            this.cost = cost;
+            this.result = result;
+            this.evaluated = evaluated;
+        }
+
+        @Override
+        public boolean test(@NonNull Feature feature) {
+            evaluated.add(name);
+            return result;
+        }
+
+        @Override
+        public int getCost() {
+            return cost;
+        }
+    }
+}
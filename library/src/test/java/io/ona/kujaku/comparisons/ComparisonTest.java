@@ -0,0 +1,44 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.JsonObject;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ComparisonTest {
+
+    @Test
+    public void compileShouldDelegateToCompareForLegacyComparisons() {
+        Comparison startsWith = new Comparison() {
+            @Override
+            public String getFunctionName() {
+                return "startsWith";
+            }
+
+            @Override
+            public boolean compare(String a, String type, String b) {
+                return a.startsWith(b);
+            }
+        };
+
+        FeaturePredicate predicate = startsWith.compile("name", Comparison.TYPE_STRING, "Kuj");
+
+        assertTrue(predicate.test(createFeature("Kujaku")));
+        assertFalse(predicate.test(createFeature("Mapbox")));
+        assertFalse(predicate.test(Feature.fromGeometry(Point.fromLngLat(36.8, -1.3))));
+        assertEquals(FeaturePredicate.COST_CUSTOM, predicate.getCost());
+    }
+
+    private Feature createFeature(@NonNull String name) {
+        JsonObject properties = new JsonObject();
+        properties.addProperty("name", name);
+        return Feature.fromGeometry(Point.fromLngLat(36.8, -1.3), properties);
+    }
+}
@@ -0,0 +1,84 @@
+package io.ona.kujaku.comparisons;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.JsonObject;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDateTime;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RangeComparisonTest {
+
+    @Test
+    public void compareShouldCompareNumbersNumerically() {
+        RangeComparison greaterThan = new RangeComparison(RangeComparison.GREATER_THAN);
+
+        assertTrue(greaterThan.compare("10", Comparison.TYPE_NUMBER, "9"));
+        assertFalse(greaterThan.compare("10", Comparison.TYPE_STRING, "9"));
+        assertFalse(greaterThan.compare("ten", Comparison.TYPE_NUMBER, "9"));
+    }
+
+    @Test
+    public void compareShouldCompareDates() {
+        RangeComparison lessThanOrEqualTo = new RangeComparison(RangeComparison.LESS_THAN_OR_EQUAL_TO);
+
+        assertTrue(lessThanOrEqualTo.compare("2019-02-14T10:15:30", Comparison.TYPE_DATE, "2019-02-14T10:15:30"));
+        assertTrue(lessThanOrEqualTo.compare("2019-02-14T10:15:30", Comparison.TYPE_DATE, "2019-03-01T00:00:00"));
+        assertFalse(lessThanOrEqualTo.compare("2019-03-14T10:15:30", Comparison.TYPE_DATE, "2019-03-01T00:00:00"));
+        assertFalse(lessThanOrEqualTo.compare("yesterday", Comparison.TYPE_DATE, "2019-03-01T00:00:00"));
+    }
+
+    @Test
+    public void compareShouldCompareDatesWithDifferentOffsetsAsInstants() {
+        RangeComparison lessThan = new RangeComparison(RangeComparison.LESS_THAN);
+
+        // 10:00 in Nairobi is 07:00 UTC, before 08:00 UTC
+        assertTrue(lessThan.compare("2019-02-14T10:00:00+03:00", Comparison.TYPE_DATE, "2019-02-14T08:00:00Z"));
+        assertFalse(lessThan.compare("2019-02-14T08:00:00Z", Comparison.TYPE_DATE, "2019-02-14T10:00:00+03:00"));
+        assertFalse(lessThan.compare("2019-02-14T10:00:00+03:00", Comparison.TYPE_DATE, "2019-02-14T07:00:00Z"));
+        assertTrue(lessThan.compare("2019-02-14T10:00:00+03:00", Comparison.TYPE_DATE, "2019-02-14T07:30:00"));
+    }
+
+    @Test
+    public void compareShouldCompareDatesWithoutTimeAtTheStartOfTheDay() {
+        RangeComparison greaterThanOrEqualTo = new RangeComparison(RangeComparison.GREATER_THAN_OR_EQUAL_TO);
+
+        assertTrue(greaterThanOrEqualTo.compare("2019-02-14", Comparison.TYPE_DATE, "2019-02-14T00:00:00"));
+        assertTrue(greaterThanOrEqualTo.compare("2019-02-14T00:00:01", Comparison.TYPE_DATE, "2019-02-14"));
+        assertFalse(greaterThanOrEqualTo.compare("2019-02-14", Comparison.TYPE_DATE, "2019-02-14T00:00:01"));
+        assertTrue(greaterThanOrEqualTo.compare("2019-02-15", Comparison.TYPE_DATE, "2019-02-14"));
+    }
+
+    @Test
+    public void compileShouldMatchDatesAndDateTimesWithOffsetsAgainstBound() {
+        FeaturePredicate predicate = new RangeComparison(RangeComparison.GREATER_THAN_OR_EQUAL_TO)
+                .compile("visit-date", Comparison.TYPE_DATE, LocalDateTime.of(2019, 2, 14, 0, 0));
+
+        assertTrue(predicate.test(createFeature("2019-02-14")));
+        assertFalse(predicate.test(createFeature("2019-02-13")));
+        assertTrue(predicate.test(createFeature("2019-02-14T01:00:00+01:00")));
+        assertFalse(predicate.test(createFeature("2019-02-14T00:30:00+01:00")));
+        assertFalse(predicate.test(createFeature("not a date")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorShouldThrowExceptionForUnknownComparison() {
+        new RangeComparison("between");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compileShouldThrowExceptionWhenBoundIsNotANumber() {
+        new RangeComparison(RangeComparison.LESS_THAN).compile("cases", Comparison.TYPE_NUMBER, "many");
+    }
+
+    private Feature createFeature(@NonNull String visitDate) {
+        JsonObject properties = new JsonObject();
+        properties.addProperty("visit-date", visitDate);
+        return Feature.fromGeometry(Point.fromLngLat(36.8, -1.3), properties);
+    }
+}
@@ -0,0 +1,57 @@
+package io.ona.kujaku.features;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonOptions;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClusterOptionsTest extends BaseTest {
+
+    @Test
+    public void addCountPropertyShouldAddSumOfMatchingPoints() {
+        ClusterOptions clusterOptions = new ClusterOptions()
+                .setRadius(40)
+                .setMaxZoom(12)
+                .addCountProperty("visited_count", "status", "visited");
+
+        assertEquals(40, clusterOptions.getRadius());
+        assertEquals(12, clusterOptions.getMaxZoom());
+        assertEquals(1, clusterOptions.getProperties().size());
+        assertEquals(2, clusterOptions.getProperties().get("visited_count").length);
+    }
+
+    @Test
+    public void toGeoJsonOptionsShouldCarryRadiusMaxZoomAndProperties() {
+        GeoJsonOptions geoJsonOptions = new ClusterOptions()
+                .setRadius(40)
+                .setMaxZoom(12)
+                .addCountProperty("visited_count", "status", "visited")
+                .toGeoJsonOptions();
+
+        assertEquals(true, geoJsonOptions.get("cluster"));
+        assertEquals(40, geoJsonOptions.get("clusterRadius"));
+        assertEquals(12, geoJsonOptions.get("clusterMaxZoom"));
+        Map<?, ?> clusterProperties = (Map<?, ?>) geoJsonOptions.get("clusterProperties");
+        assertEquals(1, clusterProperties.size());
+        assertTrue(clusterProperties.containsKey("visited_count"));
+    }
+
+    @Test
+    public void isClusterShouldReturnTrueOnlyForClusterFeatures() {
+        Feature cluster = Feature.fromGeometry(Point.fromLngLat(36.8, -1.3));
+        cluster.addBooleanProperty(ClusterOptions.CLUSTER, true);
+        cluster.addNumberProperty(ClusterOptions.POINT_COUNT, 12);
+
+        assertTrue(ClusterOptions.isCluster(cluster));
+        assertFalse(ClusterOptions.isCluster(Feature.fromGeometry(Point.fromLngLat(36.8, -1.3))));
+    }
+}
@@ -0,0 +1,55 @@
+package io.ona.kujaku.features;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertEquals;
+
+public class FeatureBatchTest extends BaseTest {
+
+    @Test
+    public void commitShouldPassOperationsInOrder() {
+        final List<FeatureBatch.Operation> committed = new ArrayList<>();
+        FeatureBatch featureBatch = new FeatureBatch(new FeatureBatch.Committer() {
+            @Override
+            public int commit(@NonNull List<FeatureBatch.Operation> operations) {
+                committed.addAll(operations);
+                return operations.size();
+            }
+        });
+
+        Feature feature = Feature.fromGeometry(Point.fromLngLat(36.8, -1.3), null, "feature-1");
+        int changed = featureBatch.add(feature)
+                .update(feature)
+                .remove("feature-1")
+                .commit();
+
+        assertEquals(3, changed);
+        assertEquals(FeatureBatch.ADD, committed.get(0).getType());
+        assertEquals(FeatureBatch.UPDATE, committed.get(1).getType());
+        assertEquals(FeatureBatch.REMOVE, committed.get(2).getType());
+        assertEquals("feature-1", committed.get(2).getFeatureId());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void commitShouldThrowExceptionWhenBatchIsCommittedTwice() {
+        FeatureBatch featureBatch = new FeatureBatch(new FeatureBatch.Committer() {
+            @Override
+            public int commit(@NonNull List<FeatureBatch.Operation> operations) {
+                return 0;
+            }
+        });
+
+        featureBatch.commit();
+        featureBatch.commit();
+    }
+}
@@ -0,0 +1,138 @@
+package io.ona.kujaku.features;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+import com.mapbox.mapboxsdk.maps.MapView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.ona.kujaku.BaseTest;
+import io.ona.kujaku.listeners.OnFeatureSourceUpdatedListener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FeatureSourceUpdaterTest extends BaseTest {
+
+    private MapView mapView;
+    private List<String> pushedGeoJson;
+    private boolean sourceAvailable;
+    private List<double[]> snapshotBboxes;
+    private FeatureSourceUpdater featureSourceUpdater;
+
+    @Before
+    public void setUp() {
+        mapView = Mockito.mock(MapView.class);
+        pushedGeoJson = new ArrayList<>();
+        sourceAvailable = true;
+        snapshotBboxes = new ArrayList<>();
+        featureSourceUpdater = new FeatureSourceUpdater(mapView, new FeatureSourceUpdater.Target() {
+            @Nullable
+            @Override
+            public Feature[] snapshotFeatures(@Nullable double[] bbox) {
+                snapshotBboxes.add(bbox);
+                if (!sourceAvailable) {
+                    return null;
+                }
+                return new Feature[]{Feature.fromGeometry(Point.fromLngLat(36.8, -1.3), null, "feature-1"), null};
+            }
+
+            @Override
+            public boolean setGeoJson(@NonNull String geoJson) {
+                pushedGeoJson.add(geoJson);
+                return true;
+            }
+        });
+    }
+
+    @Test
+    public void flushShouldPushChangesOnceWhenMarkedDirtySeveralTimes() {
+        featureSourceUpdater.markDirty(2);
+        featureSourceUpdater.markDirty(3);
+        featureSourceUpdater.flush();
+        featureSourceUpdater.flush();
+
+        assertEquals(1, pushedGeoJson.size());
+        assertTrue(pushedGeoJson.get(0).contains("feature-1"));
+        assertFalse(featureSourceUpdater.isDirty());
+    }
+
+    @Test
+    public void flushShouldNotPushWhenNothingChanged() {
+        featureSourceUpdater.markDirty(0);
+        featureSourceUpdater.flush();
+
+        assertEquals(0, pushedGeoJson.size());
+    }
+
+    @Test
+    public void flushShouldKeepChangesWhenSourceIsNotAvailable() {
+        sourceAvailable = false;
+        featureSourceUpdater.markDirty(1);
+        featureSourceUpdater.flush();
+        assertTrue(featureSourceUpdater.isDirty());
+
+        sourceAvailable = true;
+        featureSourceUpdater.flush();
+        assertEquals(1, pushedGeoJson.size());
+        assertFalse(featureSourceUpdater.isDirty());
+    }
+
+    @Test
+    public void flushShouldRegisterFrameListenerWhenUpdateListenerIsSet() {
+        featureSourceUpdater.setOnFeatureSourceUpdatedListener(Mockito.mock(OnFeatureSourceUpdatedListener.class));
+        featureSourceUpdater.markDirty(1);
+        featureSourceUpdater.flush();
+
+        Mockito.verify(mapView).addOnDidFinishRenderingFrameListener(Mockito.any(MapView.OnDidFinishRenderingFrameListener.class));
+    }
+
+    @Test
+    public void markDirtyShouldPostDelayedFlushWhenDebounceWindowIsSet() {
+        featureSourceUpdater.setDebounceWindow(500);
+        featureSourceUpdater.markDirty(1);
+        featureSourceUpdater.markDirty(1);
+
+        Mockito.verify(mapView, Mockito.times(1)).postDelayed(Mockito.any(Runnable.class), Mockito.anyLong());
+    }
+
+    @Test
+    public void flushShouldPassBoundsFilterToTarget() {
+        double[] bbox = new double[]{36.7, -1.4, 36.9, -1.2};
+        featureSourceUpdater.setBoundsFilter(bbox);
+        featureSourceUpdater.flush();
+
+        assertEquals(1, snapshotBboxes.size());
+        assertSame(bbox, snapshotBboxes.get(0));
+        assertEquals(1, pushedGeoJson.size());
+    }
+
+    @Test
+    public void flushShouldDropSnapshotFeaturesOutsideBoundsFilter() {
+        featureSourceUpdater.setBoundsFilter(new double[]{37.0, -1.1, 37.2, -0.9});
+        featureSourceUpdater.flush();
+
+        assertEquals(1, pushedGeoJson.size());
+        assertFalse(pushedGeoJson.get(0).contains("feature-1"));
+    }
+
+    @Test
+    public void destroyShouldDropPendingChanges() {
+        featureSourceUpdater.markDirty(1);
+        featureSourceUpdater.destroy();
+        featureSourceUpdater.flush();
+
+        assertFalse(featureSourceUpdater.isDirty());
+        assertEquals(0, pushedGeoJson.size());
+    }
+}
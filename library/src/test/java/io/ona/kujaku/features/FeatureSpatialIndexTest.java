@@ -0,0 +1,125 @@
+package io.ona.kujaku.features;
+
+import com.google.gson.JsonObject;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FeatureSpatialIndexTest extends BaseTest {
+
+    private FeatureStore featureStore;
+    private FeatureSpatialIndex featureSpatialIndex;
+
+    @Before
+    public void setUp() {
+        featureStore = new FeatureStore();
+        featureSpatialIndex = new FeatureSpatialIndex(featureStore);
+
+        // A 20 x 20 grid of points ~111m apart
+        for (int x = 0; x < 20; x++) {
+            for (int y = 0; y < 20; y++) {
+                featureStore.add(Feature.fromGeometry(Point.fromLngLat(36.8 + x * 0.001, -1.3 + y * 0.001), null, x + "-" + y));
+            }
+        }
+    }
+
+    @Test
+    public void queryWithinBoundsShouldReturnFeaturesInsideBounds() {
+        List<Feature> features = featureSpatialIndex.queryWithinBounds(new double[]{36.8005, -1.2995, 36.8025, -1.2985});
+
+        assertEquals(2, features.size());
+        // Features are returned in the order in which they were added
+        assertEquals(Arrays.asList("1-1", "2-1"), getIds(features));
+    }
+
+    @Test
+    public void queryWithinRadiusShouldReturnFeaturesNearestFirst() {
+        List<Feature> features = featureSpatialIndex.queryWithinRadius(new LatLng(-1.295, 36.805), 120);
+
+        assertEquals(5, features.size());
+        assertEquals("5-5", features.get(0).id());
+    }
+
+    @Test
+    public void queryNearestShouldReturnKNearestFeatures() {
+        List<Feature> features = featureSpatialIndex.queryNearest(new LatLng(-1.2900, 36.8101), 3);
+
+        assertEquals(3, features.size());
+        assertEquals("10-10", features.get(0).id());
+    }
+
+    @Test
+    public void queryShouldReflectChangesToTheStore() {
+        featureStore.remove("5-5");
+        List<Point> ring = Arrays.asList(Point.fromLngLat(37.0, -1.0), Point.fromLngLat(37.01, -1.0),
+                Point.fromLngLat(37.01, -0.99), Point.fromLngLat(37.0, -0.99), Point.fromLngLat(37.0, -1.0));
+        featureStore.add(Feature.fromGeometry(Polygon.fromLngLats(Arrays.asList(ring)), null, "structure"));
+
+        assertEquals("4-5", featureSpatialIndex.queryNearest(new LatLng(-1.295, 36.8049), 1).get(0).id());
+        assertEquals("structure", featureSpatialIndex.queryWithinRadius(new LatLng(-0.995, 37.005), 10).get(0).id());
+    }
+
+    @Test
+    public void queryWithinRadiusShouldFindLinesPassingNearbyWithoutVerticesInRadius() {
+        // ~1.1km long road whose vertices are both far from the query point
+        featureStore.add(Feature.fromGeometry(LineString.fromLngLats(Arrays.asList(Point.fromLngLat(37.0, -1.0),
+                Point.fromLngLat(37.01, -1.0))), null, "road"));
+
+        List<Feature> features = featureSpatialIndex.queryWithinRadius(new LatLng(-1.0002, 37.005), 50);
+
+        assertEquals(1, features.size());
+        assertEquals("road", features.get(0).id());
+        assertEquals("road", featureSpatialIndex.queryNearest(new LatLng(-1.0002, 37.005), 1).get(0).id());
+    }
+
+    @Test
+    public void queryShouldReturnReplacedFeatureWithoutRebuildingWhenOnlyPropertiesChanged() {
+        // Builds the index before the replacement
+        featureSpatialIndex.queryNearest(new LatLng(-1.295, 36.805), 1);
+        int geometryModificationCount = featureStore.getGeometryModificationCount();
+        JsonObject properties = new JsonObject();
+        properties.addProperty("status", "visited");
+        Feature replacement = Feature.fromGeometry(featureStore.get("5-5").geometry(), properties, "5-5");
+
+        featureStore.replace(replacement);
+
+        assertEquals(geometryModificationCount, featureStore.getGeometryModificationCount());
+        assertSame(replacement, featureSpatialIndex.queryNearest(new LatLng(-1.295, 36.805), 1).get(0));
+        assertSame(replacement, featureSpatialIndex.queryWithinRadius(new LatLng(-1.295, 36.805), 50).get(0));
+        assertSame(replacement, featureSpatialIndex.queryWithinBounds(new double[]{36.8049, -1.2951, 36.8051, -1.2949}).get(0));
+    }
+
+    @Test
+    public void isStaleShouldReturnTrueUntilTheNextQueryAfterAGeometryChanged() {
+        assertTrue(featureSpatialIndex.isStale());
+        featureSpatialIndex.queryNearest(new LatLng(-1.295, 36.805), 1);
+        assertFalse(featureSpatialIndex.isStale());
+
+        featureStore.remove("5-5");
+        assertTrue(featureSpatialIndex.isStale());
+    }
+
+    private List<String> getIds(List<Feature> features) {
+        List<String> ids = new ArrayList<>();
+        for (Feature feature : features) {
+            ids.add(feature.id());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,116 @@
+package io.ona.kujaku.features;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.List;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FeatureStoreTest extends BaseTest {
+
+    private FeatureStore featureStore;
+
+    @Before
+    public void setUp() {
+        featureStore = new FeatureStore();
+    }
+
+    @Test
+    public void addShouldIgnoreFeaturesWithoutIdOrWithExistingId() {
+        assertTrue(featureStore.add(createFeature("feature-1")));
+        assertFalse(featureStore.add(createFeature("feature-1")));
+        assertFalse(featureStore.add(Feature.fromGeometry(Point.fromLngLat(36.8, -1.3))));
+        assertEquals(1, featureStore.size());
+    }
+
+    @Test
+    public void replaceShouldKeepPosition() {
+        featureStore.add(createFeature("feature-1"));
+        featureStore.add(createFeature("feature-2"));
+        Feature replacement = createFeature("feature-1");
+
+        assertTrue(featureStore.replace(replacement));
+        assertFalse(featureStore.replace(createFeature("feature-3")));
+        assertEquals(replacement, featureStore.getFeatures().get(0));
+    }
+
+    @Test
+    public void removeShouldLeaveEmptySlotThatIsDroppedFromFeatures() {
+        featureStore.add(createFeature("feature-1"));
+        featureStore.add(createFeature("feature-2"));
+
+        assertTrue(featureStore.remove("feature-1"));
+        assertFalse(featureStore.remove("feature-1"));
+
+        assertNull(featureStore.snapshot()[0]);
+        List<Feature> features = featureStore.getFeatures();
+        assertEquals(1, features.size());
+        assertEquals("feature-2", features.get(0).id());
+    }
+
+    @Test
+    public void snapshotShouldCompactSlotsWhenMostFeaturesAreRemoved() {
+        for (int i = 0; i < 100; i++) {
+            featureStore.add(createFeature("feature-" + i));
+        }
+        for (int i = 0; i < 60; i++) {
+            featureStore.remove("feature-" + i);
+        }
+
+        // Removing does not compact, the removed features only leave empty slots behind
+        assertEquals(99, featureStore.getPosition("feature-99"));
+
+        assertEquals(40, featureStore.size());
+        assertEquals(40, featureStore.snapshot().length);
+        assertEquals(39, featureStore.getPosition("feature-99"));
+        assertEquals("feature-99", featureStore.get("feature-99").id());
+        assertEquals("feature-60", featureStore.getFeatures().get(0).id());
+    }
+
+    @Test
+    public void compactionShouldShrinkSlots() {
+        for (int i = 0; i < 1000; i++) {
+            featureStore.add(createFeature("feature-" + i));
+        }
+        for (int i = 0; i < 990; i++) {
+            featureStore.remove("feature-" + i);
+        }
+
+        featureStore.snapshot();
+
+        Feature[] slots = ReflectionHelpers.getField(featureStore, "slots");
+        assertTrue(slots.length < 100);
+        assertEquals(10, featureStore.getFeatures().size());
+    }
+
+    @Test
+    public void addShouldCompactSlotsInsteadOfGrowingThem() {
+        for (int i = 0; i < 128; i++) {
+            featureStore.add(createFeature("feature-" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            featureStore.remove("feature-" + i);
+        }
+
+        featureStore.add(createFeature("feature-128"));
+
+        Feature[] slots = ReflectionHelpers.getField(featureStore, "slots");
+        assertTrue(slots.length < 128);
+        assertEquals(29, featureStore.size());
+        assertEquals(28, featureStore.getPosition("feature-128"));
+    }
+
+    private Feature createFeature(String id) {
+        return Feature.fromGeometry(Point.fromLngLat(36.8, -1.3), null, id);
+    }
+}
@@ -0,0 +1,70 @@
+package io.ona.kujaku.features;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class GeoJsonFeatureReaderTest extends BaseTest {
+
+    private static final String FEATURE_COLLECTION = "{\"type\":\"FeatureCollection\",\"name\":\"catchment\",\"crs\":{\"type\":\"name\"},\"features\":["
+            + "{\"type\":\"Feature\",\"id\":\"1\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[36.8,-1.3]},\"properties\":{\"count\":1}},"
+            + "{\"type\":\"Feature\",\"id\":\"2\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[36.9,-1.4]},\"properties\":{}},"
+            + "{\"type\":\"Feature\",\"id\":\"3\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[37.0,-1.5]},\"properties\":{}}"
+            + "]}";
+
+    @Test
+    public void readChunkShouldReturnFeaturesInChunksUntilEmpty() throws IOException {
+        GeoJsonFeatureReader reader = new GeoJsonFeatureReader(new StringReader(FEATURE_COLLECTION));
+
+        List<Feature> features = reader.readChunk(2);
+        assertEquals(2, features.size());
+        assertEquals("1", features.get(0).id());
+        assertEquals(1, features.get(0).getNumberProperty("count").intValue());
+
+        features = reader.readChunk(2);
+        assertEquals(1, features.size());
+        assertEquals("3", features.get(0).id());
+
+        assertTrue(reader.readChunk(2).isEmpty());
+        assertTrue(reader.isFinished());
+        reader.close();
+    }
+
+    @Test
+    public void readChunkShouldReturnEmptyListWhenThereAreNoFeatures() throws IOException {
+        GeoJsonFeatureReader reader = new GeoJsonFeatureReader(new StringReader("{\"type\":\"FeatureCollection\"}"));
+
+        assertTrue(reader.readChunk(10).isEmpty());
+        assertTrue(reader.isFinished());
+    }
+
+    @Test(expected = IOException.class)
+    public void readChunkShouldThrowExceptionWhenGeoJsonIsTruncated() throws IOException {
+        GeoJsonFeatureReader reader = new GeoJsonFeatureReader(new StringReader(FEATURE_COLLECTION.substring(0, 150)));
+
+        reader.readChunk(10);
+    }
+
+    @Test
+    public void readChunkShouldReadGeometryAndGiveFeaturesWithoutPropertiesAnEmptyObject() throws IOException {
+        GeoJsonFeatureReader reader = new GeoJsonFeatureReader(new StringReader("{\"type\":\"FeatureCollection\",\"features\":["
+                + "{\"type\":\"Feature\",\"id\":\"1\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[36.8,-1.3]}}]}"));
+
+        Feature feature = reader.readChunk(10).get(0);
+        assertEquals(Point.fromLngLat(36.8, -1.3), feature.geometry());
+        assertNotNull(feature.properties());
+        feature.addStringProperty("status", "visited");
+        assertEquals("visited", feature.getStringProperty("status"));
+    }
+}
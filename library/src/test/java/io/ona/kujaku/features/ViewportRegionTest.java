@@ -0,0 +1,47 @@
+package io.ona.kujaku.features;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+import org.junit.Test;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ViewportRegionTest extends BaseTest {
+
+    @Test
+    public void updateShouldNotReloadWhenVisibleRegionMovesWithinPadding() {
+        ViewportRegion viewportRegion = new ViewportRegion(1000);
+
+        assertTrue(viewportRegion.update(new double[]{36.80, -1.30, 36.81, -1.29}));
+        double[] loadedBbox = viewportRegion.getLoadedBbox();
+        assertTrue(loadedBbox[0] < 36.80 && loadedBbox[3] > -1.29);
+
+        // ~300m to the east
+        assertFalse(viewportRegion.update(new double[]{36.803, -1.30, 36.813, -1.29}));
+        assertArrayEquals(loadedBbox, viewportRegion.getLoadedBbox(), 0);
+
+        // ~2km to the east
+        assertTrue(viewportRegion.update(new double[]{36.82, -1.30, 36.83, -1.29}));
+    }
+
+    @Test
+    public void updateShouldReloadWhenZoomedInFarWithinLoadedRegion() {
+        ViewportRegion viewportRegion = new ViewportRegion(100);
+
+        assertTrue(viewportRegion.update(new double[]{36.70, -1.40, 36.90, -1.20}));
+        assertTrue(viewportRegion.update(new double[]{36.800, -1.300, 36.801, -1.299}));
+    }
+
+    @Test
+    public void toBboxShouldReturnWestSouthEastNorth() {
+        assertArrayEquals(new double[]{36.8, -1.3, 36.9, -1.2}, ViewportRegion.toBbox(new LatLngBounds.Builder()
+                .include(new LatLng(-1.3, 36.8))
+                .include(new LatLng(-1.2, 36.9))
+                .build()), 1e-9);
+    }
+}
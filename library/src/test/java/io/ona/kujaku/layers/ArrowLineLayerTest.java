@@ -24,11 +24,14 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
+import org.robolectric.Robolectric;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
@@ -1015,4 +1018,86 @@ public class ArrowLineLayerTest extends BaseKujakuLayerTest {
         ReflectionHelpers.callInstanceMethod(arrowLineLayer, "createArrowHeadSource");
         assertNotNull((GeoJsonSource) ReflectionHelpers.getField(arrowLineLayer, "arrowHeadSource"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void updateFeaturesShouldOnlyRedrawArrowsWhenFeaturesChangeOrAreModifiedInPlace() throws InvalidArrowLineConfigException {
+        List<Feature> features = createPositionedFeatures(3);
+        ArrowLineLayer arrowLineLayer = new ArrowLineLayer.Builder(context
+                , new ArrowLineLayer.FeatureConfig(FeatureCollection.fromFeatures(features))
+                , new ArrowLineLayer.SortConfig("position", ArrowLineLayer.SortConfig.SortOrder.ASC, ArrowLineLayer.SortConfig.PropertyType.NUMBER))
+                .build();
+        GeoJsonSource lineLayerSource = mockArrowSources(arrowLineLayer);
+
+        arrowLineLayer.updateFeatures(FeatureCollection.fromFeatures(new ArrayList<>(features)));
+        runAsyncTasks();
+        Mockito.verify(lineLayerSource, Mockito.times(1)).setGeoJson(ArgumentMatchers.any(Geometry.class));
+
+        // The same features in a new collection do not change the arrows
+        arrowLineLayer.updateFeatures(FeatureCollection.fromFeatures(new ArrayList<>(features)));
+        runAsyncTasks();
+        Mockito.verify(lineLayerSource, Mockito.times(1)).setGeoJson(ArgumentMatchers.any(Geometry.class));
+
+        // Features modified in place are redrawn, whether they come in a new collection
+        features.get(0).addNumberProperty("position", 10);
+        arrowLineLayer.updateFeatures(FeatureCollection.fromFeatures(new ArrayList<>(features)));
+        runAsyncTasks();
+        Mockito.verify(lineLayerSource, Mockito.times(2)).setGeoJson(ArgumentMatchers.any(Geometry.class));
+
+        // or in the collection already held
+        FeatureCollection featureCollection = arrowLineLayer.getFeatureCollection();
+        featureCollection.features().get(1).addNumberProperty("position", 20);
+        arrowLineLayer.updateFeatures(featureCollection);
+        runAsyncTasks();
+        Mockito.verify(lineLayerSource, Mockito.times(3)).setGeoJson(ArgumentMatchers.any(Geometry.class));
+    }
+
+    @Test
+    public void updateFeaturesShouldRedrawArrowsWhenSameFeaturesAreReordered() throws InvalidArrowLineConfigException {
+        List<Feature> features = createPositionedFeatures(3);
+        ArrowLineLayer arrowLineLayer = new ArrowLineLayer.Builder(context
+                , new ArrowLineLayer.FeatureConfig(FeatureCollection.fromFeatures(features))
+                , new ArrowLineLayer.OneToManyConfig("childCases"))
+                .build();
+        GeoJsonSource lineLayerSource = mockArrowSources(arrowLineLayer);
+
+        arrowLineLayer.updateFeatures(FeatureCollection.fromFeatures(new ArrayList<>(features)));
+        runAsyncTasks();
+        arrowLineLayer.updateFeatures(FeatureCollection.fromFeatures(new ArrayList<>(features)));
+        runAsyncTasks();
+        Mockito.verify(lineLayerSource, Mockito.times(1)).setGeoJson(ArgumentMatchers.any(Geometry.class));
+
+        List<Feature> reorderedFeatures = new ArrayList<>(features);
+        Collections.reverse(reorderedFeatures);
+        arrowLineLayer.updateFeatures(FeatureCollection.fromFeatures(reorderedFeatures));
+        runAsyncTasks();
+        Mockito.verify(lineLayerSource, Mockito.times(2)).setGeoJson(ArgumentMatchers.any(Geometry.class));
+    }
+
+    private List<Feature> createPositionedFeatures(int count) {
+        List<Feature> features = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Feature feature = Feature.fromGeometry(Point.fromLngLat(36.8 + i * 0.01, -1.3), null, "feature-" + i);
+            feature.addNumberProperty("position", i);
+            features.add(feature);
+        }
+        return features;
+    }
+
+    /**
+     * Makes the layer look added to the map so that {@link ArrowLineLayer#updateFeatures(FeatureCollection)} redraws it
+     *
+     * @return the mocked line layer source
+     */
+    private GeoJsonSource mockArrowSources(ArrowLineLayer arrowLineLayer) {
+        GeoJsonSource lineLayerSource = Mockito.mock(GeoJsonSource.class);
+        ReflectionHelpers.setField(arrowLineLayer, "lineLayer", Mockito.mock(LineLayer.class));
+        ReflectionHelpers.setField(arrowLineLayer, "arrowHeadSource", Mockito.mock(GeoJsonSource.class));
+        ReflectionHelpers.setField(arrowLineLayer, "lineLayerSource", lineLayerSource);
+        return lineLayerSource;
+    }
+
+    private void runAsyncTasks() {
+        Robolectric.flushBackgroundThreadScheduler();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+}
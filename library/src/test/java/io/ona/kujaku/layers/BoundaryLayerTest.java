@@ -18,7 +18,9 @@ import com.mapbox.mapboxsdk.utils.ColorUtils;
 import org.junit.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
+import org.robolectric.Robolectric;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.util.ArrayList;
@@ -359,4 +361,70 @@ public class BoundaryLayerTest extends BaseKujakuLayerTest {
                 ReflectionHelpers.getField(boundaryLayer, "builder"), "featureCollection")
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void updateFeaturesShouldOnlyRedrawWhenFeaturesChangeOrAreModifiedInPlace() {
+        List<Feature> features = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Feature feature = Feature.fromGeometry(Point.fromLngLat(36.8 + i * 0.01, -1.3), null, "district-" + i);
+            feature.addStringProperty("district-name", "District " + i);
+            features.add(feature);
+        }
+        BoundaryLayer boundaryLayer = new BoundaryLayer.Builder(FeatureCollection.fromFeatures(features))
+                .setLabelProperty("district-name")
+                .build();
+        GeoJsonSource boundaryLabelsSource = Mockito.mock(GeoJsonSource.class);
+        ReflectionHelpers.setField(boundaryLayer, "boundaryLabelLayer", Mockito.mock(SymbolLayer.class));
+        ReflectionHelpers.setField(boundaryLayer, "boundarySource", Mockito.mock(GeoJsonSource.class));
+        ReflectionHelpers.setField(boundaryLayer, "boundaryLabelsSource", boundaryLabelsSource);
+
+        boundaryLayer.updateFeatures(FeatureCollection.fromFeatures(new ArrayList<>(features)));
+        runAsyncTasks();
+        Mockito.verify(boundaryLabelsSource, Mockito.times(1)).setGeoJson(ArgumentMatchers.any(FeatureCollection.class));
+
+        // The same features in a new collection do not change the boundaries
+        boundaryLayer.updateFeatures(FeatureCollection.fromFeatures(new ArrayList<>(features)));
+        runAsyncTasks();
+        Mockito.verify(boundaryLabelsSource, Mockito.times(1)).setGeoJson(ArgumentMatchers.any(FeatureCollection.class));
+
+        // Features modified in place are redrawn, whether they come in a new collection
+        features.get(0).addStringProperty("district-name", "Renamed");
+        boundaryLayer.updateFeatures(FeatureCollection.fromFeatures(new ArrayList<>(features)));
+        runAsyncTasks();
+        Mockito.verify(boundaryLabelsSource, Mockito.times(2)).setGeoJson(ArgumentMatchers.any(FeatureCollection.class));
+
+        // or in the collection already held
+        FeatureCollection featureCollection = boundaryLayer.getFeatureCollection();
+        featureCollection.features().get(1).addStringProperty("district-name", "Renamed too");
+        boundaryLayer.updateFeatures(featureCollection);
+        runAsyncTasks();
+        Mockito.verify(boundaryLabelsSource, Mockito.times(3)).setGeoJson(ArgumentMatchers.any(FeatureCollection.class));
+    }
+
+    @Test
+    public void updateFeaturesShouldOnlyDrawLatestFeaturesWhenUpdatesOverlap() {
+        BoundaryLayer boundaryLayer = new BoundaryLayer.Builder(FeatureCollection.fromFeatures(new ArrayList<Feature>()))
+                .setLabelProperty("district-name")
+                .build();
+        GeoJsonSource boundarySource = Mockito.mock(GeoJsonSource.class);
+        ReflectionHelpers.setField(boundaryLayer, "boundaryLabelLayer", Mockito.mock(SymbolLayer.class));
+        ReflectionHelpers.setField(boundaryLayer, "boundarySource", boundarySource);
+        ReflectionHelpers.setField(boundaryLayer, "boundaryLabelsSource", Mockito.mock(GeoJsonSource.class));
+
+        FeatureCollection olderFeatureCollection = FeatureCollection.fromFeature(
+                Feature.fromGeometry(Point.fromLngLat(36.8, -1.3), null, "district-1"));
+        FeatureCollection newerFeatureCollection = FeatureCollection.fromFeature(
+                Feature.fromGeometry(Point.fromLngLat(36.9, -1.3), null, "district-1"));
+        boundaryLayer.updateFeatures(olderFeatureCollection);
+        boundaryLayer.updateFeatures(newerFeatureCollection);
+        runAsyncTasks();
+
+        Mockito.verify(boundarySource, Mockito.never()).setGeoJson(olderFeatureCollection);
+        Mockito.verify(boundarySource, Mockito.times(1)).setGeoJson(newerFeatureCollection);
+    }
+
+    private void runAsyncTasks() {
+        Robolectric.flushBackgroundThreadScheduler();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+}
@@ -0,0 +1,92 @@
+package io.ona.kujaku.layers;
+
+import android.graphics.PointF;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class KujakuLayerHitTesterTest extends BaseTest {
+
+    private ArrayList<KujakuLayer> kujakuLayers;
+    private KujakuLayerHitTester kujakuLayerHitTester;
+    private MapboxMap mapboxMap;
+
+    private Set<String> hitLayerIds;
+    private int queryCount;
+
+    @Before
+    public void setUp() {
+        kujakuLayers = new ArrayList<>();
+        kujakuLayers.add(mockKujakuLayer("a1", "a2"));
+        kujakuLayers.add(mockKujakuLayer("b"));
+        kujakuLayers.add(mockKujakuLayer("c"));
+        kujakuLayers.add(mockKujakuLayer("d"));
+        kujakuLayerHitTester = new KujakuLayerHitTester(kujakuLayers);
+
+        hitLayerIds = new HashSet<>();
+        queryCount = 0;
+        mapboxMap = Mockito.mock(MapboxMap.class, invocation -> {
+            if (!"queryRenderedFeatures".equals(invocation.getMethod().getName())) {
+                return null;
+            }
+            queryCount++;
+            String[] layerIds = (String[]) invocation.getRawArguments()[2];
+            for (String layerId : layerIds) {
+                if (hitLayerIds.contains(layerId)) {
+                    return Collections.singletonList(Feature.fromGeometry(Point.fromLngLat(0, 0)));
+                }
+            }
+            return new ArrayList<Feature>();
+        });
+    }
+
+    @Test
+    public void getKujakuLayerSelectedShouldQueryOnceWhenNothingIsHit() {
+        assertNull(kujakuLayerHitTester.getKujakuLayerSelected(new PointF(1, 1), mapboxMap));
+        assertEquals(1, queryCount);
+    }
+
+    @Test
+    public void getKujakuLayerSelectedShouldReturnFirstLayerHitInListOrder() {
+        hitLayerIds.addAll(Arrays.asList("c", "d"));
+
+        assertEquals(kujakuLayers.get(2), kujakuLayerHitTester.getKujakuLayerSelected(new PointF(1, 1), mapboxMap));
+        assertEquals(3, queryCount);
+
+        hitLayerIds.add("a2");
+        assertEquals(kujakuLayers.get(0), kujakuLayerHitTester.getKujakuLayerSelected(new PointF(1, 1), mapboxMap));
+    }
+
+    @Test
+    public void invalidateShouldPickUpAddedLayers() {
+        hitLayerIds.add("e");
+        assertNull(kujakuLayerHitTester.getKujakuLayerSelected(new PointF(1, 1), mapboxMap));
+
+        kujakuLayers.add(mockKujakuLayer("e"));
+        kujakuLayerHitTester.invalidate();
+
+        assertEquals(kujakuLayers.get(4), kujakuLayerHitTester.getKujakuLayerSelected(new PointF(1, 1), mapboxMap));
+    }
+
+    private KujakuLayer mockKujakuLayer(String... layerIds) {
+        KujakuLayer kujakuLayer = Mockito.mock(KujakuLayer.class);
+        Mockito.doReturn(layerIds).when(kujakuLayer).getLayerIds();
+        return kujakuLayer;
+    }
+}
@@ -0,0 +1,103 @@
+package io.ona.kujaku.mbtiles;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class CompositeTileSourceTest extends BaseTest {
+
+    private CompositeTileSource compositeTileSource;
+
+    @Before
+    public void setUp() throws IOException {
+        compositeTileSource = new CompositeTileSource(Arrays.asList(
+                new MbtilesFile(new File("src/test/resources/raster.mbtiles")),
+                new MbtilesFile(new File("src/test/resources/trails.mbtiles"))));
+    }
+
+    @After
+    public void tearDown() {
+        compositeTileSource.close();
+    }
+
+    @Test
+    public void getTileShouldServeTileFromFileCoveringIt() {
+        TileHttpServer.Response rasterTile = compositeTileSource.getTile(15, 18968, (1 << 15) - 1 - 14965);
+        assertNotNull(rasterTile);
+        assertEquals("image/png", rasterTile.contentType);
+
+        TileHttpServer.Response vectorTile = compositeTileSource.getTile(0, 0, 0);
+        assertNotNull(vectorTile);
+        assertEquals("application/protobuf", vectorTile.contentType);
+
+        assertNull(compositeTileSource.getTile(15, 0, 0));
+    }
+
+    @Test
+    public void getETagShouldMatchFileServingTileOnceCoverageIsLoaded() throws IOException {
+        MbtilesFile first = createFileWithoutBackgroundCoverage();
+        MbtilesFile second = createFileWithoutBackgroundCoverage();
+        second.etagPrefix = "\"second-";
+        CompositeTileSource source = new CompositeTileSource(Arrays.asList(first, second));
+        try {
+            int y = (1 << 15) - 1 - 14965;
+
+            // The first file may hold the tile until its coverage says otherwise
+            assertNull(source.getETag(15, 18968, y));
+
+            first.coverage = new TileCoverage();
+            assertNull(source.getETag(15, 18968, y));
+
+            SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(new File("src/test/resources/raster.mbtiles"), null);
+            try {
+                second.coverage = TileCoverage.load(db, "map");
+            } finally {
+                db.close();
+            }
+            assertEquals(second.getETag(15, 18968, y), source.getETag(15, 18968, y));
+            assertEquals(source.getTile(15, 18968, y).etag, source.getETag(15, 18968, y));
+        } finally {
+            source.close();
+        }
+    }
+
+    private MbtilesFile createFileWithoutBackgroundCoverage() throws IOException {
+        return new MbtilesFile(new File("src/test/resources/raster.mbtiles")) {
+            @Override
+            protected void loadCoverageInBackground() {
+                // The coverage is set by the test instead
+            }
+        };
+    }
+
+    @Test
+    public void getMinZoomAndMaxZoomShouldSpanAllFiles() {
+        assertEquals(0, compositeTileSource.getMinZoom());
+        assertEquals(19, compositeTileSource.getMaxZoom());
+    }
+
+    @Test
+    public void getBoundsShouldReturnNullWhenAFileHasNoBounds() {
+        assertNull(compositeTileSource.getBounds());
+    }
+
+    @Test
+    public void tileToLongitudeAndLatitudeShouldReturnTileEdges() {
+        assertEquals(-180, CompositeTileSource.tileToLongitude(0, 1), 1e-9);
+        assertEquals(0, CompositeTileSource.tileToLongitude(1, 1), 1e-9);
+        assertEquals(0, CompositeTileSource.tileToLatitude(1, 1), 1e-9);
+        assertEquals(85.0511, CompositeTileSource.tileToLatitude(0, 1), 1e-4);
+    }
+}
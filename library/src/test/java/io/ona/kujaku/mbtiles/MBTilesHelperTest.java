@@ -23,6 +23,7 @@ import org.robolectric.annotation.Config;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -109,6 +110,18 @@ public class MBTilesHelperTest extends BaseTest {
     }
 
 
+    @Test
+    public void testInitializeCompositeMbTilesLayersSkipsFilesOfAnotherType() {
+        List<File> offlineFiles = Arrays.asList(new File("src/test/resources/raster.mbtiles"),
+                new File("src/test/resources/trails.mbtiles"));
+        Pair<Set<Source>, Set<Layer>> layersAndSources = mbTilesHelper.initializeCompositeMbTilesLayers("district", offlineFiles);
+        assertNotNull(layersAndSources);
+        assertEquals(1, layersAndSources.first.size());
+        assertEquals(1, layersAndSources.second.size());
+        Source source = layersAndSources.first.iterator().next();
+        assertTrue(source instanceof RasterSource);
+    }
+
     @Test
     public void testOnDestroy() {
         mbTilesHelper.initializeMbTileslayers(new File("src/test/resources/raster.mbtiles"));
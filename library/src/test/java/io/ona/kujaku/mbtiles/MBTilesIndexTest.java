@@ -0,0 +1,58 @@
+package io.ona.kujaku.mbtiles;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MBTilesIndexTest extends BaseTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void scanShouldReadMetadataOfEveryMbtilesFile() throws IOException {
+        File indexFile = new File(temporaryFolder.getRoot(), MBTilesIndex.INDEX_FILE_NAME);
+        List<MBTilesIndex.Entry> entries = new MBTilesIndex(indexFile).scan(new File("src/test/resources"));
+
+        assertEquals(2, entries.size());
+        assertTrue(indexFile.exists());
+    }
+
+    @Test
+    public void getEntryShouldReturnIndexedMetadataAfterReload() throws IOException {
+        File indexFile = new File(temporaryFolder.getRoot(), MBTilesIndex.INDEX_FILE_NAME);
+        File trails = new File("src/test/resources/trails.mbtiles");
+        MBTilesIndex index = new MBTilesIndex(indexFile);
+        MBTilesIndex.Entry entry = index.getEntry(trails);
+        index.save();
+
+        MBTilesIndex.Entry indexedEntry = new MBTilesIndex(indexFile).getEntry(trails);
+        assertNotNull(indexedEntry);
+        assertEquals("trails", indexedEntry.name);
+        assertEquals(MbtilesFile.Type.VECTOR, indexedEntry.type);
+        assertEquals(0, indexedEntry.minZoom);
+        assertEquals(14, indexedEntry.maxZoom);
+        assertNull(indexedEntry.bounds);
+        assertEquals(entry.vectorLayers, indexedEntry.vectorLayers);
+        assertArrayEquals(new String[]{"trails/multilinestring-glacier_trails.fill", "trails/multilinestring-glacier_trails.line"},
+                MBTilesHelper.getLayerIds(indexedEntry));
+    }
+
+    @Test
+    public void getEntryShouldReturnNullWhenFileIsNotMbtiles() throws IOException {
+        MBTilesIndex index = new MBTilesIndex(new File(temporaryFolder.getRoot(), MBTilesIndex.INDEX_FILE_NAME));
+        assertNull(index.getEntry(temporaryFolder.newFile("broken.mbtiles")));
+    }
+}
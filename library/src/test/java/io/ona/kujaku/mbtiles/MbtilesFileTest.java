@@ -0,0 +1,107 @@
+package io.ona.kujaku.mbtiles;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MbtilesFileTest extends BaseTest {
+
+    private MbtilesFile mbtilesFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mbtilesFile = new MbtilesFile(new File("src/test/resources/raster.mbtiles"));
+    }
+
+    @After
+    public void tearDown() {
+        mbtilesFile.close();
+    }
+
+    @Test
+    public void getTileBlobShouldReturnTileDataWhenTileExists() {
+        byte[] data = mbtilesFile.getTileBlob(15, 18968, 14965);
+        assertNotNull(data);
+        assertEquals(2633, data.length);
+    }
+
+    @Test
+    public void getTileBlobShouldReturnNullWhenTileIsMissing() {
+        assertNull(mbtilesFile.getTileBlob(3, 0, 0));
+    }
+
+    @Test
+    public void queryTileBlobWithCursorShouldBindCoordinates() {
+        // Goes through the "tiles" view, as the flat schema would
+        assertArrayEquals(mbtilesFile.getTileBlob(15, 18968, 14965), mbtilesFile.queryTileBlobWithCursor(15, 18968, 14965));
+        assertNull(mbtilesFile.queryTileBlobWithCursor(3, 0, 0));
+    }
+
+    @Test
+    public void getTileShouldIncludeETagMatchingGetETag() {
+        // Tile rows are flipped between the XYZ scheme and the TMS scheme used in the file
+        TileHttpServer.Response response = mbtilesFile.getTile(15, 18968, (1 << 15) - 1 - 14965);
+        assertNotNull(response);
+        assertEquals(mbtilesFile.getETag(15, 18968, (1 << 15) - 1 - 14965), response.etag);
+    }
+
+    @Test
+    public void getTileShouldDetectEncodingOfVectorTiles() throws IOException {
+        MbtilesFile vectorFile = new MbtilesFile(new File("src/test/resources/trails.mbtiles"));
+        try {
+            TileHttpServer.Response response = vectorFile.getTile(0, 0, 0);
+            assertEquals(TileEncoding.sniff(response.data), response.contentEncoding);
+
+            vectorFile.setDecompressTiles(true);
+            response = vectorFile.getTile(0, 0, 0);
+            assertEquals(TileEncoding.IDENTITY, response.contentEncoding);
+            assertEquals(TileEncoding.IDENTITY, TileEncoding.sniff(response.data));
+        } finally {
+            vectorFile.close();
+        }
+    }
+
+    @Test
+    public void isDeduplicatedShouldReturnTrueForMapAndImagesSchema() {
+        assertTrue(mbtilesFile.isDeduplicated());
+    }
+
+    @Test
+    public void getTileBlobShouldReturnSharedDataForTilesWithTheSameTileId() {
+        byte[] first = mbtilesFile.getTileBlob(15, 18968, 14963);
+        int hitCount = mbtilesFile.imageCache.hitCount();
+        byte[] second = mbtilesFile.getTileBlob(15, 18968, 14964);
+        assertNotNull(first);
+        // The second tile is served from the image cache rather than read again
+        assertSame(first, second);
+        assertEquals(hitCount + 1, mbtilesFile.imageCache.hitCount());
+    }
+
+    @Test
+    public void reopenDatabaseShouldOnlyReopenTheDatabaseThatFailed() {
+        SQLiteDatabase failedDb = mbtilesFile.db;
+        mbtilesFile.reopenDatabase(failedDb);
+        SQLiteDatabase reopenedDb = mbtilesFile.db;
+        assertNotSame(failedDb, reopenedDb);
+
+        // Another worker that saw the same failure does not reopen it again
+        mbtilesFile.reopenDatabase(failedDb);
+        assertSame(reopenedDb, mbtilesFile.db);
+        assertNotNull(mbtilesFile.getTileBlob(15, 18968, 14965));
+    }
+}
@@ -0,0 +1,58 @@
+package io.ona.kujaku.mbtiles;
+
+import org.junit.Test;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TileCacheTest extends BaseTest {
+
+    @Test
+    public void getTileShouldServeRepeatedRequestsFromMemory() {
+        TileCache tileCache = new TileCache(1);
+        TileHttpServer.TileSource source = mock(TileHttpServer.TileSource.class);
+        TileHttpServer.Response response = new TileHttpServer.Response(new byte[100], "image/png", "identity");
+        when(source.getTile(1, 2, 3)).thenReturn(response);
+
+        TileHttpServer.TileSource cachingSource = tileCache.wrap("satellite", source);
+        assertSame(response, cachingSource.getTile(1, 2, 3));
+        assertSame(response, cachingSource.getTile(1, 2, 3));
+
+        verify(source, times(1)).getTile(1, 2, 3);
+        assertEquals(1, tileCache.hitCount());
+        assertEquals(1, tileCache.missCount());
+        assertEquals(100, tileCache.size());
+    }
+
+    @Test
+    public void getTileShouldKeepSourcesSeparate() {
+        TileCache tileCache = new TileCache(1);
+        TileHttpServer.TileSource first = mock(TileHttpServer.TileSource.class);
+        TileHttpServer.TileSource second = mock(TileHttpServer.TileSource.class);
+        when(first.getTile(1, 0, 0)).thenReturn(new TileHttpServer.Response(new byte[10], "image/png", "identity"));
+
+        tileCache.wrap("first", first).getTile(1, 0, 0);
+        assertNull(tileCache.wrap("second", second).getTile(1, 0, 0));
+        verify(second).getTile(1, 0, 0);
+    }
+
+    @Test
+    public void putShouldEvictLeastRecentlyUsedTilesWhenBudgetIsExceeded() {
+        TileCache tileCache = new TileCache(1);
+        int halfBudget = TileCache.BYTES_PER_MB / 2;
+        tileCache.put("a", new TileHttpServer.Response(new byte[halfBudget], "image/png", "identity"));
+        tileCache.put("b", new TileHttpServer.Response(new byte[halfBudget], "image/png", "identity"));
+        tileCache.get("a");
+        tileCache.put("c", new TileHttpServer.Response(new byte[halfBudget], "image/png", "identity"));
+
+        assertNull(tileCache.get("b"));
+        assertEquals(1, tileCache.evictionCount());
+    }
+}
@@ -0,0 +1,47 @@
+package io.ona.kujaku.mbtiles;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TileCoverageTest extends BaseTest {
+
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        db = SQLiteDatabase.openOrCreateDatabase(new File("src/test/resources/raster.mbtiles"), null);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void loadShouldIndexEveryTile() {
+        TileCoverage coverage = TileCoverage.load(db, "map");
+        assertEquals(4056, coverage.getTileCount());
+    }
+
+    @Test
+    public void containsShouldReturnTrueOnlyForTilesInTheFile() {
+        TileCoverage coverage = TileCoverage.load(db, "map");
+        assertTrue(coverage.contains(15, 18968, 14963));
+        assertTrue(coverage.contains(15, 18968, 14964));
+        assertTrue(coverage.contains(15, 18968, 14965));
+        assertFalse(coverage.contains(15, 18968, 14962));
+        assertFalse(coverage.contains(15, 1, 14963));
+        assertFalse(coverage.contains(3, 0, 0));
+    }
+}
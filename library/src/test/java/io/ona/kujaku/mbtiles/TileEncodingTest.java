@@ -0,0 +1,60 @@
+package io.ona.kujaku.mbtiles;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TileEncodingTest extends BaseTest {
+
+    private final byte[] tile = {0x1a, 0x05, 0x0a, 0x03, 'r', 'o', 'a'};
+
+    @Test
+    public void sniffShouldDetectEncodingFromMagicBytes() throws IOException {
+        assertEquals(TileEncoding.GZIP, TileEncoding.sniff(gzip(tile)));
+        assertEquals(TileEncoding.DEFLATE, TileEncoding.sniff(deflate(tile)));
+        assertEquals(TileEncoding.IDENTITY, TileEncoding.sniff(tile));
+    }
+
+    @Test
+    public void decodeShouldReturnOriginalData() throws IOException {
+        assertArrayEquals(tile, TileEncoding.decode(gzip(tile), TileEncoding.GZIP));
+        assertArrayEquals(tile, TileEncoding.decode(deflate(tile), TileEncoding.DEFLATE));
+        assertArrayEquals(tile, TileEncoding.decode(tile, TileEncoding.IDENTITY));
+    }
+
+    @Test
+    public void isAcceptedShouldHonourAcceptEncoding() {
+        assertTrue(TileEncoding.isAccepted(null, TileEncoding.GZIP));
+        assertTrue(TileEncoding.isAccepted("deflate, gzip", TileEncoding.GZIP));
+        assertTrue(TileEncoding.isAccepted("*", TileEncoding.GZIP));
+        assertTrue(TileEncoding.isAccepted("br", TileEncoding.IDENTITY));
+        assertFalse(TileEncoding.isAccepted("gzip;q=0", TileEncoding.GZIP));
+        assertFalse(TileEncoding.isAccepted("br", TileEncoding.GZIP));
+    }
+
+    private byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(data);
+        }
+        return output.toByteArray();
+    }
+
+    private byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(output)) {
+            deflater.write(data);
+        }
+        return output.toByteArray();
+    }
+}
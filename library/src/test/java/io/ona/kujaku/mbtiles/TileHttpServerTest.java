@@ -0,0 +1,214 @@
+package io.ona.kujaku.mbtiles;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import io.ona.kujaku.BaseTest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TileHttpServerTest extends BaseTest {
+
+    private TileHttpServer tileHttpServer;
+
+    @Before
+    public void setUp() throws IOException {
+        tileHttpServer = new TileHttpServer(2);
+        tileHttpServer.addSource("test", (zoom, x, y) -> new TileHttpServer.Response(
+                String.format(Locale.US, "%d/%d/%d", zoom, x, y).getBytes(), "image/png", "identity"));
+        tileHttpServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        tileHttpServer.destroy();
+    }
+
+    @Test
+    public void serverShouldServeMultipleRequestsOnTheSameConnection() throws IOException {
+        try (Socket socket = new Socket("localhost", tileHttpServer.socket.getLocalPort())) {
+            OutputStream output = socket.getOutputStream();
+            InputStream input = socket.getInputStream();
+
+            output.write("GET /test/1/0/1 HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes());
+            output.flush();
+            List<String> headers = readHeaders(input);
+            assertEquals("HTTP/1.1 200 OK", headers.get(0));
+            assertTrue(headers.contains("Connection: keep-alive"));
+            assertArrayEquals("1/0/1".getBytes(), readBody(input, headers));
+
+            output.write("GET /test/2/1/3 HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes());
+            output.flush();
+            headers = readHeaders(input);
+            assertEquals("HTTP/1.1 200 OK", headers.get(0));
+            assertTrue(headers.contains("Connection: close"));
+            assertArrayEquals("2/1/3".getBytes(), readBody(input, headers));
+            assertEquals(-1, input.read());
+        }
+    }
+
+    @Test
+    public void serverShouldServeMoreKeepAliveClientsThanWorkers() throws IOException {
+        // setUp only has 2 workers; idle connections should not hold on to them
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 6; i++) {
+                Socket socket = new Socket("localhost", tileHttpServer.socket.getLocalPort());
+                socket.setSoTimeout(TileHttpServer.KEEP_ALIVE_TIMEOUT / 2);
+                sockets.add(socket);
+            }
+
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < sockets.size(); i++) {
+                    Socket socket = sockets.get(i);
+                    socket.getOutputStream().write(String.format(Locale.US
+                            , "GET /test/%d/%d/0 HTTP/1.1\r\nHost: localhost\r\n\r\n", round, i).getBytes());
+                    socket.getOutputStream().flush();
+
+                    List<String> headers = readHeaders(socket.getInputStream());
+                    assertEquals("HTTP/1.1 200 OK", headers.get(0));
+                    assertTrue(headers.contains("Connection: keep-alive"));
+                    assertArrayEquals(String.format(Locale.US, "%d/%d/0", round, i).getBytes()
+                            , readBody(socket.getInputStream(), headers));
+                }
+            }
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void serverShouldAnswerNotModifiedWhenETagMatches() throws IOException {
+        tileHttpServer.addSource("validated", new TileHttpServer.ValidatedTileSource() {
+            @Override
+            public String getETag(int zoom, int x, int y) {
+                return "\"" + zoom + "-" + x + "-" + y + "\"";
+            }
+
+            @Override
+            public TileHttpServer.Response getTile(int zoom, int x, int y) {
+                return new TileHttpServer.Response("tile".getBytes(),
+                        new TileHttpServer.ContentHeaders("image/png", "identity"), getETag(zoom, x, y));
+            }
+        });
+
+        try (Socket socket = new Socket("localhost", tileHttpServer.socket.getLocalPort())) {
+            OutputStream output = socket.getOutputStream();
+            InputStream input = socket.getInputStream();
+
+            output.write("GET /validated/1/0/1 HTTP/1.1\r\n\r\n".getBytes());
+            output.flush();
+            List<String> headers = readHeaders(input);
+            assertEquals("HTTP/1.1 200 OK", headers.get(0));
+            assertTrue(headers.contains("ETag: \"1-0-1\""));
+            assertTrue(headers.contains("Cache-Control: max-age=" + TileHttpServer.DEFAULT_CACHE_MAX_AGE));
+            assertArrayEquals("tile".getBytes(), readBody(input, headers));
+
+            output.write("GET /validated/1/0/1 HTTP/1.1\r\nIf-None-Match: \"1-0-1\"\r\n\r\n".getBytes());
+            output.flush();
+            headers = readHeaders(input);
+            assertEquals("HTTP/1.1 304 Not Modified", headers.get(0));
+            assertTrue(headers.contains("ETag: \"1-0-1\""));
+        }
+    }
+
+    @Test
+    public void serverShouldAnswerWithStatusLineWhenTileIsMissing() throws IOException {
+        tileHttpServer.addSource("empty", (zoom, x, y) -> null);
+
+        try (Socket socket = new Socket("localhost", tileHttpServer.socket.getLocalPort())) {
+            OutputStream output = socket.getOutputStream();
+            InputStream input = socket.getInputStream();
+
+            output.write("GET /empty/1/0/1 HTTP/1.1\r\n\r\n".getBytes());
+            output.flush();
+            List<String> headers = readHeaders(input);
+            assertEquals("HTTP/1.1 204 No Content", headers.get(0));
+            assertTrue(headers.contains("Connection: keep-alive"));
+
+            output.write("GET /unknown/1/0/1 HTTP/1.1\r\n\r\n".getBytes());
+            output.flush();
+            headers = readHeaders(input);
+            assertEquals("HTTP/1.1 404 Not Found", headers.get(0));
+            assertTrue(headers.contains("Content-Length: 0"));
+        }
+    }
+
+    @Test
+    public void matchesETagShouldAcceptListsAndWeakTags() {
+        assertTrue(TileHttpServer.matchesETag("\"a\", W/\"b\"", "\"b\""));
+        assertTrue(TileHttpServer.matchesETag("*", "\"b\""));
+        assertFalse(TileHttpServer.matchesETag("\"a\"", "\"b\""));
+        assertFalse(TileHttpServer.matchesETag("*", null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorShouldThrowExceptionWhenMaxConcurrencyIsLessThanOne() throws IOException {
+        new TileHttpServer(0);
+    }
+
+    @Test
+    public void putDecimalShouldWriteAsciiDigits() {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        TileHttpServer.putDecimal(buffer, 0);
+        buffer.put((byte) ' ');
+        TileHttpServer.putDecimal(buffer, 1048576);
+        assertEquals("0 1048576", new String(buffer.array(), 0, buffer.position()));
+    }
+
+    @Test
+    public void serverSocketShouldBeBackedByAChannel() {
+        assertNotNull(tileHttpServer.socket.getChannel());
+    }
+
+    private List<String> readHeaders(InputStream input) throws IOException {
+        List<String> headers = new ArrayList<>();
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) != -1) {
+            if (b == '\n') {
+                String header = line.toString().trim();
+                if (header.isEmpty()) {
+                    break;
+                }
+                headers.add(header);
+                line.reset();
+            } else {
+                line.write(b);
+            }
+        }
+        return headers;
+    }
+
+    private byte[] readBody(InputStream input, List<String> headers) throws IOException {
+        int length = 0;
+        for (String header : headers) {
+            if (header.startsWith("Content-Length: ")) {
+                length = Integer.parseInt(header.substring("Content-Length: ".length()));
+            }
+        }
+        byte[] body = new byte[length];
+        int read = 0;
+        while (read < length) {
+            read += input.read(body, read, length - read);
+        }
+        return body;
+    }
+}
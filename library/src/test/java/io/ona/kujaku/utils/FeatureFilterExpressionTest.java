@@ -0,0 +1,119 @@
+package io.ona.kujaku.utils;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.mapboxsdk.style.expressions.Expression;
+import com.mapbox.mapboxsdk.style.layers.LineLayer;
+import com.mapbox.mapboxsdk.style.layers.RasterLayer;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.threeten.bp.LocalDateTime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.ona.kujaku.BaseTest;
+import io.ona.kujaku.comparisons.Comparison;
+import io.ona.kujaku.utils.helpers.converters.GeoJSONFeature;
+
+import static com.mapbox.mapboxsdk.style.expressions.Expression.all;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.any;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.eq;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.get;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.gte;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.has;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.literal;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.lte;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.not;
+import static com.mapbox.mapboxsdk.style.expressions.Expression.toNumber;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FeatureFilterExpressionTest extends BaseTest {
+
+    @Test
+    public void fromShouldTranslateSupportedConditions() {
+        FeatureFilter.Builder builder = new FeatureFilter.Builder(FeatureCollection.fromFeatures(new ArrayList<Feature>()))
+                .whereEq("task-status", "positive")
+                .whereBetween("cases", 1, 10)
+                .whereNot(FeatureFilter.FilterCondition.exists("closed"));
+
+        FeatureFilterExpression filterExpression = FeatureFilterExpression.from(builder);
+
+        Expression expected = all(
+                all(has("task-status"), eq(Expression.toString(get("task-status")), literal("positive"))),
+                all(all(has("cases"), gte(toNumber(get("cases")), literal(1)))
+                        , all(has("cases"), lte(toNumber(get("cases")), literal(10)))),
+                not(has("closed")));
+
+        assertTrue(filterExpression.isFullyNative());
+        assertEquals(expected.toString(), filterExpression.getExpression().toString());
+    }
+
+    @Test
+    public void fromShouldLeaveUnsupportedConditionsForJavaEvaluation() {
+        FeatureFilter.FilterCondition regexGroup = FeatureFilter.FilterCondition.any(
+                FeatureFilter.FilterCondition.regex("district", "K.*")
+                , FeatureFilter.FilterCondition.equalTo("priority", "high"));
+        FeatureFilter.Builder builder = new FeatureFilter.Builder(FeatureCollection.fromFeatures(new ArrayList<Feature>()))
+                .whereIn("village", Arrays.asList("v1", "v2"))
+                .where(regexGroup);
+
+        FeatureFilterExpression filterExpression = FeatureFilterExpression.from(builder);
+
+        Expression expected = all(has("village"), any(eq(Expression.toString(get("village")), literal("v1"))
+                , eq(Expression.toString(get("village")), literal("v2"))));
+
+        assertFalse(filterExpression.isFullyNative());
+        assertEquals(1, filterExpression.getUnsupportedConditions().size());
+        assertEquals(regexGroup, filterExpression.getUnsupportedConditions().get(0));
+        assertEquals(expected.toString(), filterExpression.getExpression().toString());
+    }
+
+    @Test
+    public void filterUnsupportedShouldOnlyApplyUnsupportedConditions() {
+        ArrayList<Feature> featuresList = new ArrayList<>();
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("district", "Kyela")
+                , new GeoJSONFeature.Property("village", "v3")));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("district", "Magu")
+                , new GeoJSONFeature.Property("village", "v1")));
+
+        FeatureFilter.Builder builder = new FeatureFilter.Builder(FeatureCollection.fromFeatures(featuresList))
+                .whereIn("village", Arrays.asList("v1", "v2"))
+                .whereRegex("district", "K.*");
+
+        List<Feature> actualFeatures = FeatureFilterExpression.from(builder).filterUnsupported().features();
+
+        assertEquals(1, actualFeatures.size());
+        assertEquals("Kyela", actualFeatures.get(0).getStringProperty("district"));
+    }
+
+    @Test
+    public void fromShouldReturnNullExpressionWhenThereAreNoSupportedConditions() {
+        FeatureFilter.Builder builder = new FeatureFilter.Builder(FeatureCollection.fromFeatures(new ArrayList<Feature>()))
+                .whereDateBetween("test-date", null, LocalDateTime.of(2019, 2, 1, 0, 0));
+
+        FeatureFilterExpression filterExpression = FeatureFilterExpression.from(builder);
+
+        assertNull(filterExpression.getExpression());
+        assertEquals(1, filterExpression.getUnsupportedConditions().size());
+    }
+
+    @Test
+    public void applyToShouldSetFilterOnLayersWithFilters() {
+        FeatureFilter.Builder builder = new FeatureFilter.Builder(FeatureCollection.fromFeatures(new ArrayList<Feature>()))
+                .where(FeatureFilter.FilterCondition.in("cases", Arrays.asList(1, 2), Comparison.TYPE_NUMBER));
+        FeatureFilterExpression filterExpression = FeatureFilterExpression.from(builder);
+
+        LineLayer lineLayer = Mockito.mock(LineLayer.class);
+        RasterLayer rasterLayer = Mockito.mock(RasterLayer.class);
+
+        assertTrue(filterExpression.applyTo(lineLayer));
+        assertFalse(filterExpression.applyTo(rasterLayer));
+        Mockito.verify(lineLayer).setFilter(filterExpression.getExpression());
+    }
+}
@@ -1,16 +1,26 @@
 package io.ona.kujaku.utils;
 
+import android.support.annotation.NonNull;
+
 import com.mapbox.geojson.Feature;
 import com.mapbox.geojson.FeatureCollection;
 
 import junit.framework.Assert;
 
 import org.junit.Test;
+import org.threeten.bp.LocalDateTime;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import io.ona.kujaku.BaseTest;
+import io.ona.kujaku.comparisons.Comparison;
+import io.ona.kujaku.comparisons.FeaturePredicate;
+import io.ona.kujaku.comparisons.RegexComparison;
 import io.ona.kujaku.utils.helpers.converters.GeoJSONFeature;
 
 /**
@@ -130,4 +140,209 @@ public class FeatureFilterTest extends BaseTest {
         Assert.assertEquals(4, (int) actualFeatures.get(1).getNumberProperty("position"));
         Assert.assertEquals(5, (int) actualFeatures.get(2).getNumberProperty("position"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void filterShouldReturnNoFeaturesWhenRegexIsInvalid() {
+        ArrayList<Feature> featuresList = new ArrayList<>();
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("sample-string", "efgh")));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("sample-string", "[abc")));
+
+        FeatureCollection actualFeatureCollection = new FeatureFilter.Builder(FeatureCollection.fromFeatures(featuresList))
+                .whereRegex("sample-string", "[abc")
+                .build()
+                .filter();
+
+        Assert.assertEquals(0, actualFeatureCollection.features().size());
+    }
+
+    @Test
+    public void filterShouldReturnSameFeaturesWhenReusedWithNewFeatureCollection() {
+        ArrayList<Feature> featuresList = new ArrayList<>();
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("task-status", "positive")
+                , new GeoJSONFeature.Property("position", 0)));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("task-status", "negative")
+                , new GeoJSONFeature.Property("position", 1)));
+
+        FeatureFilter.Builder builder = new FeatureFilter.Builder(FeatureCollection.fromFeatures(new ArrayList<Feature>()))
+                .whereRegex("task-status", "pos.*");
+        FeatureFilter featureFilter = builder.build();
+        Assert.assertEquals(0, featureFilter.filter().features().size());
+
+        builder.setFeatureCollection(FeatureCollection.fromFeatures(featuresList));
+        List<Feature> actualFeatures = featureFilter.filter().features();
+
+        Assert.assertEquals(1, actualFeatures.size());
+        Assert.assertEquals(0, (int) actualFeatures.get(0).getNumberProperty("position"));
+    }
+
+    @Test
+    public void filterShouldSkipFeaturesWithoutSortProperty() {
+        ArrayList<Feature> featuresList = new ArrayList<>();
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("task-status", "positive")
+                , new GeoJSONFeature.Property("position", 0)));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("task-status", "positive")));
+
+        List<Feature> actualFeatures = new FeatureFilter.Builder(FeatureCollection.fromFeatures(featuresList))
+                .setSortProperty("position")
+                .whereEq("task-status", "positive")
+                .build()
+                .filter()
+                .features();
+
+        Assert.assertEquals(1, actualFeatures.size());
+        Assert.assertEquals(0, (int) actualFeatures.get(0).getNumberProperty("position"));
+    }
+
+    @Test
+    public void matchesShouldReturnTrueOnlyForFeaturesPassingAllConditions() {
+        FeatureFilter featureFilter = new FeatureFilter.Builder(FeatureCollection.fromFeatures(new ArrayList<Feature>()))
+                .whereEq("task-status", "positive")
+                .whereRegex("sample-string", "b.*")
+                .build();
+
+        Assert.assertTrue(featureFilter.matches(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("task-status", "positive")
+                , new GeoJSONFeature.Property("sample-string", "bcde"))));
+        Assert.assertFalse(featureFilter.matches(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("task-status", "positive")
+                , new GeoJSONFeature.Property("sample-string", "abcd"))));
+        Assert.assertFalse(featureFilter.matches(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("sample-string", "bcde"))));
+    }
+
+    @Test
+    public void filterShouldApplyRangeInAndOrConditionsInSinglePass() {
+        ArrayList<Feature> featuresList = new ArrayList<>();
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("test-date", "2019-02-10T10:00:00")
+                , new GeoJSONFeature.Property("village", "v1")
+                , new GeoJSONFeature.Property("position", 0)));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("test-date", "2019-01-10T10:00:00")
+                , new GeoJSONFeature.Property("village", "v1")
+                , new GeoJSONFeature.Property("position", 1)));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("test-date", "2019-02-12T10:00:00")
+                , new GeoJSONFeature.Property("village", "v3")
+                , new GeoJSONFeature.Property("position", 2)));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("test-date", "2019-02-12T10:00:00")
+                , new GeoJSONFeature.Property("village", "v3")
+                , new GeoJSONFeature.Property("priority", "high")
+                , new GeoJSONFeature.Property("position", 3)));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("test-date", "not a date")
+                , new GeoJSONFeature.Property("village", "v2")
+                , new GeoJSONFeature.Property("position", 4)));
+
+        List<Feature> actualFeatures = new FeatureFilter.Builder(FeatureCollection.fromFeatures(featuresList))
+                .whereDateBetween("test-date", LocalDateTime.of(2019, 2, 1, 0, 0), null)
+                .whereAny(FeatureFilter.FilterCondition.in("village", Arrays.asList("v1", "v2"), Comparison.TYPE_STRING)
+                        , FeatureFilter.FilterCondition.equalTo("priority", "high"))
+                .build()
+                .filter()
+                .features();
+
+        Assert.assertEquals(2, actualFeatures.size());
+        Assert.assertEquals(0, (int) actualFeatures.get(0).getNumberProperty("position"));
+        Assert.assertEquals(3, (int) actualFeatures.get(1).getNumberProperty("position"));
+    }
+
+    @Test
+    public void filterShouldCompareNumbersAsNumbers() {
+        ArrayList<Feature> featuresList = new ArrayList<>();
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("cases", 9)));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("cases", 10)));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("cases", "25")));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("cases", 100)));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("cases", "many")));
+
+        List<Feature> actualFeatures = new FeatureFilter.Builder(FeatureCollection.fromFeatures(featuresList))
+                .whereBetween("cases", 10, 25.0)
+                .build()
+                .filter()
+                .features();
+
+        Assert.assertEquals(2, actualFeatures.size());
+        Assert.assertEquals("10", actualFeatures.get(0).getStringProperty("cases"));
+        Assert.assertEquals("25", actualFeatures.get(1).getStringProperty("cases"));
+
+        actualFeatures = new FeatureFilter.Builder(FeatureCollection.fromFeatures(featuresList))
+                .where(FeatureFilter.FilterCondition.in("cases", Arrays.asList(9.0, 100), Comparison.TYPE_NUMBER))
+                .build()
+                .filter()
+                .features();
+
+        Assert.assertEquals(2, actualFeatures.size());
+        Assert.assertEquals(9, actualFeatures.get(0).getNumberProperty("cases").intValue());
+        Assert.assertEquals(100, actualFeatures.get(1).getNumberProperty("cases").intValue());
+    }
+
+    @Test
+    public void filterShouldNegateConditions() {
+        ArrayList<Feature> featuresList = new ArrayList<>();
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("task-status", "positive")
+                , new GeoJSONFeature.Property("position", 0)));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("task-status", "negative")
+                , new GeoJSONFeature.Property("position", 1)));
+        featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("task-status", "positive")
+                , new GeoJSONFeature.Property("closed", true)
+                , new GeoJSONFeature.Property("position", 2)));
+
+        List<Feature> actualFeatures = new FeatureFilter.Builder(FeatureCollection.fromFeatures(featuresList))
+                .whereExists("task-status")
+                .whereNot(FeatureFilter.FilterCondition.any(FeatureFilter.FilterCondition.equalTo("task-status", "negative")
+                        , FeatureFilter.FilterCondition.exists("closed")))
+                .build()
+                .filter()
+                .features();
+
+        Assert.assertEquals(1, actualFeatures.size());
+        Assert.assertEquals(0, (int) actualFeatures.get(0).getNumberProperty("position"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whereBetweenShouldThrowExceptionWhenThereAreNoBounds() {
+        new FeatureFilter.Builder(FeatureCollection.fromFeatures(new ArrayList<Feature>()))
+                .whereBetween("cases", null, null);
+    }
+
+    @Test
+    public void filterShouldPreserveOrderWhenFilteringInParallel() {
+        ArrayList<Feature> featuresList = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            featuresList.add(generateRandomFeatureWithProperties(new GeoJSONFeature.Property("task-status", i % 3 == 0 ? "positive" : "negative")
+                    , new GeoJSONFeature.Property("position", i)));
+        }
+
+        FeatureFilter.Builder builder = new FeatureFilter.Builder(FeatureCollection.fromFeatures(featuresList))
+                .whereRegex("task-status", "pos.*");
+        List<Feature> serialFeatures = builder.build().filter().features();
+
+        // Force several chunks even when the machine running the tests has a single core
+        ParallelFeatureFilter.parallelismOverride = 3;
+        try {
+            final Set<Thread> evaluatingThreads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+            final FeaturePredicate predicate = new RegexComparison().compile("task-status", Comparison.TYPE_STRING, "pos.*");
+            ParallelFeatureFilter.filter(featuresList, new FeaturePredicate() {
+                @Override
+                public boolean test(@NonNull Feature feature) {
+                    evaluatingThreads.add(Thread.currentThread());
+                    return predicate.test(feature);
+                }
+
+                @Override
+                public int getCost() {
+                    return predicate.getCost();
+                }
+            });
+            Assert.assertTrue(evaluatingThreads.size() > 1);
+
+            List<Feature> parallelFeatures = builder.setParallel(true)
+                    .setParallelThreshold(10)
+                    .build()
+                    .filter()
+                    .features();
+
+            Assert.assertEquals(334, parallelFeatures.size());
+            Assert.assertEquals(serialFeatures, parallelFeatures);
+            for (int i = 0; i < parallelFeatures.size(); i++) {
+                Assert.assertEquals(i * 3, (int) parallelFeatures.get(i).getNumberProperty("position"));
+            }
+        } finally {
+            ParallelFeatureFilter.parallelismOverride = 0;
+        }
+    }
+}
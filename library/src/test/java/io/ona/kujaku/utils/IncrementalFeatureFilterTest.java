@@ -0,0 +1,148 @@
+package io.ona.kujaku.utils;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.ona.kujaku.BaseTest;
+import io.ona.kujaku.utils.helpers.converters.GeoJSONFeature;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalFeatureFilterTest extends BaseTest {
+
+    private IncrementalFeatureFilter incrementalFeatureFilter;
+
+    @Before
+    public void setUp() {
+        FeatureFilter featureFilter = new FeatureFilter.Builder(FeatureCollection.fromFeatures(new ArrayList<Feature>()))
+                .whereEq("task-status", "positive")
+                .build();
+        incrementalFeatureFilter = new IncrementalFeatureFilter(featureFilter);
+    }
+
+    @Test
+    public void updateShouldOnlyEvaluateAddedAndReplacedFeatures() {
+        Feature feature1 = createFeature("1", "positive");
+        Feature feature2 = createFeature("2", "negative");
+        Feature feature3 = createFeature("3", "positive");
+
+        IncrementalFeatureFilter.Delta delta = incrementalFeatureFilter.update(
+                FeatureCollection.fromFeatures(Arrays.asList(feature1, feature2, feature3)));
+
+        assertEquals(3, delta.getEvaluatedCount());
+        assertEquals(Arrays.asList(feature1, feature3), delta.getAddedFeatures());
+        assertEquals(Arrays.asList(feature1, feature3), delta.getFeatureCollection().features());
+
+        Feature updatedFeature2 = createFeature("2", "positive");
+        delta = incrementalFeatureFilter.update(
+                FeatureCollection.fromFeatures(Arrays.asList(feature1, updatedFeature2, feature3)));
+
+        assertEquals(1, delta.getEvaluatedCount());
+        assertEquals(Collections.singletonList(updatedFeature2), delta.getAddedFeatures());
+        assertTrue(delta.getRemovedFeatureIds().isEmpty());
+        assertEquals(Arrays.asList(feature1, updatedFeature2, feature3), delta.getFeatureCollection().features());
+    }
+
+    @Test
+    public void updateShouldReportRemovedAndUpdatedFeatures() {
+        Feature feature1 = createFeature("1", "positive");
+        Feature feature2 = createFeature("2", "positive");
+        Feature feature3 = createFeature("3", "positive");
+        incrementalFeatureFilter.update(FeatureCollection.fromFeatures(Arrays.asList(feature1, feature2, feature3)));
+
+        Feature updatedFeature1 = createFeature("1", "positive");
+        Feature updatedFeature2 = createFeature("2", "negative");
+        IncrementalFeatureFilter.Delta delta = incrementalFeatureFilter.update(
+                FeatureCollection.fromFeatures(Arrays.asList(updatedFeature1, updatedFeature2)));
+
+        assertEquals(2, delta.getEvaluatedCount());
+        assertTrue(delta.getAddedFeatures().isEmpty());
+        assertEquals(Collections.singletonList(updatedFeature1), delta.getUpdatedFeatures());
+        assertEquals(Arrays.asList("2", "3"), delta.getRemovedFeatureIds());
+        assertEquals(Collections.singletonList(updatedFeature1), delta.getFeatureCollection().features());
+    }
+
+    @Test
+    public void updateShouldReturnEmptyDeltaWhenNothingChanged() {
+        List<Feature> features = Arrays.asList(createFeature("1", "positive"), createFeature("2", "negative"));
+        incrementalFeatureFilter.update(FeatureCollection.fromFeatures(features));
+
+        IncrementalFeatureFilter.Delta delta = incrementalFeatureFilter.update(FeatureCollection.fromFeatures(features));
+
+        assertTrue(delta.isEmpty());
+        assertEquals(0, delta.getEvaluatedCount());
+        assertEquals(1, delta.getFeatureCollection().features().size());
+    }
+
+    @Test
+    public void updateShouldReturnNonEmptyDeltaWhenSameFeaturesAreReordered() {
+        Feature feature1 = createFeature("1", "positive");
+        Feature feature2 = createFeature("2", "positive");
+        incrementalFeatureFilter.update(FeatureCollection.fromFeatures(Arrays.asList(feature1, feature2)));
+
+        IncrementalFeatureFilter.Delta delta = incrementalFeatureFilter.update(
+                FeatureCollection.fromFeatures(Arrays.asList(feature2, feature1)));
+
+        assertFalse(delta.isEmpty());
+        assertEquals(0, delta.getEvaluatedCount());
+        assertEquals(Arrays.asList(feature2, feature1), delta.getFeatureCollection().features());
+    }
+
+    @Test
+    public void updateShouldReevaluateFeaturesModifiedInPlace() {
+        Feature feature1 = createFeature("1", "positive");
+        Feature feature2 = createFeature("2", "positive");
+        incrementalFeatureFilter.update(FeatureCollection.fromFeatures(Arrays.asList(feature1, feature2)));
+
+        feature1.addStringProperty("task-status", "negative");
+        feature2.addStringProperty("task-name", "Spray");
+        IncrementalFeatureFilter.Delta delta = incrementalFeatureFilter.update(
+                FeatureCollection.fromFeatures(Arrays.asList(feature1, feature2)));
+
+        assertEquals(2, delta.getEvaluatedCount());
+        assertEquals(Collections.singletonList("1"), delta.getRemovedFeatureIds());
+        assertEquals(Collections.singletonList(feature2), delta.getUpdatedFeatures());
+        assertEquals(Collections.singletonList(feature2), delta.getFeatureCollection().features());
+    }
+
+    @Test
+    public void updateShouldAlwaysEvaluateFeaturesWithoutIds() {
+        List<Feature> features = Arrays.asList(
+                generateRandomFeatureWithProperties(new GeoJSONFeature.Property("task-status", "positive")),
+                createFeature("1", "positive"));
+        incrementalFeatureFilter.update(FeatureCollection.fromFeatures(features));
+
+        IncrementalFeatureFilter.Delta delta = incrementalFeatureFilter.update(FeatureCollection.fromFeatures(features));
+
+        assertFalse(delta.isEmpty());
+        assertEquals(1, delta.getEvaluatedCount());
+        assertEquals(features, delta.getFeatureCollection().features());
+    }
+
+    @Test
+    public void resetShouldEvaluateAllFeaturesOnNextUpdate() {
+        List<Feature> features = Arrays.asList(createFeature("1", "positive"), createFeature("2", "negative"));
+        incrementalFeatureFilter.update(FeatureCollection.fromFeatures(features));
+
+        incrementalFeatureFilter.reset();
+        IncrementalFeatureFilter.Delta delta = incrementalFeatureFilter.update(FeatureCollection.fromFeatures(features));
+
+        assertEquals(2, delta.getEvaluatedCount());
+        assertEquals(1, delta.getAddedFeatures().size());
+    }
+
+    private Feature createFeature(String id, String taskStatus) {
+        Feature feature = generateRandomFeatureWithProperties(new GeoJSONFeature.Property("task-status", taskStatus));
+        return Feature.fromGeometry(feature.geometry(), feature.properties(), id);
+    }
+}
@@ -1,13 +1,24 @@
 package io.ona.kujaku.views;
 
+import android.graphics.PointF;
+import android.graphics.RectF;
 import android.location.LocationListener;
 import android.util.AttributeSet;
 
 import com.google.android.gms.location.LocationRequest;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Point;
+import com.mapbox.mapboxsdk.camera.CameraUpdate;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.maps.Projection;
 import com.mapbox.mapboxsdk.maps.Style;
+import com.mapbox.mapboxsdk.style.layers.CircleLayer;
 import com.mapbox.mapboxsdk.style.layers.Layer;
 import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 
+import org.json.JSONException;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -20,10 +31,17 @@ import org.robolectric.annotation.Config;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import io.ona.kujaku.BaseTest;
+import io.ona.kujaku.features.ClusterOptions;
+import io.ona.kujaku.features.FeatureStore;
 import io.ona.kujaku.interfaces.ILocationClient;
 import io.ona.kujaku.listeners.LocationClientStartedCallback;
+import io.ona.kujaku.listeners.OnFeatureClickListener;
+import io.ona.kujaku.listeners.OnKujakuLayerClickListener;
 import io.ona.kujaku.location.clients.GoogleLocationClient;
 import io.ona.kujaku.test.shadows.ShadowKujakuMapView;
 import io.ona.kujaku.test.shadows.ShadowMapView;
@@ -193,4 +211,201 @@ public class KujakuMapViewTest extends BaseTest {
                 .onStarted(Mockito.any(ILocationClient.class));
         assertEquals(0, callbacks.size());
     }
+
+    @Test
+    public void updateFeaturePointPropertiesAndCountShouldKeepPropertyTypesAndCountOnlyChangedFeatures() throws JSONException {
+        Feature feature1 = Feature.fromGeometry(Point.fromLngLat(36.8, -1.3), null, "feature-1");
+        feature1.addNumberProperty("count", 1);
+        Feature feature2 = Feature.fromGeometry(Point.fromLngLat(36.9, -1.4), null, "feature-2");
+        feature2.addBooleanProperty("visited", false);
+        kujakuMapView.addFeaturePoints(FeatureCollection.fromFeatures(new Feature[]{feature1, feature2}));
+
+        Feature update1 = Feature.fromGeometry(null, null, "feature-1");
+        update1.addNumberProperty("count", 2);
+        Feature update2 = Feature.fromGeometry(null, null, "feature-2");
+        update2.addBooleanProperty("visited", false);
+
+        assertEquals(1, kujakuMapView.updateFeaturePointPropertiesAndCount(FeatureCollection.fromFeatures(new Feature[]{update1, update2})));
+
+        FeatureStore featureStore = ReflectionHelpers.getField(kujakuMapView, "featureStore");
+        Feature updatedFeature1 = featureStore.get("feature-1");
+        assertEquals(2, updatedFeature1.getNumberProperty("count").intValue());
+        assertTrue(updatedFeature1.properties().get("count").getAsJsonPrimitive().isNumber());
+        assertEquals(feature2, featureStore.get("feature-2"));
+
+        assertEquals(0, kujakuMapView.updateFeaturePointPropertiesAndCount(FeatureCollection.fromFeatures(new Feature[]{update1, update2})));
+    }
+
+    @Test
+    public void removeFeaturesShouldRemoveExistingFeaturesAndReturnCount() {
+        Feature feature1 = Feature.fromGeometry(Point.fromLngLat(36.8, -1.3), null, "feature-1");
+        Feature feature2 = Feature.fromGeometry(Point.fromLngLat(36.9, -1.4), null, "feature-2");
+        kujakuMapView.addFeaturePoints(FeatureCollection.fromFeatures(new Feature[]{feature1, feature2}));
+
+        assertEquals(1, kujakuMapView.removeFeatures(Arrays.asList("feature-1", "feature-3")));
+
+        FeatureStore featureStore = ReflectionHelpers.getField(kujakuMapView, "featureStore");
+        assertEquals(1, featureStore.size());
+        assertFalse(featureStore.contains("feature-1"));
+        assertEquals(feature2, featureStore.get("feature-2"));
+    }
+
+    @Test
+    public void onMapClickShouldQueryToleranceBoxAndDeliverTopMostFeature() {
+        Feature topFeature = Feature.fromGeometry(Point.fromLngLat(36.8, -1.3), null, "top");
+        Feature bottomFeature = Feature.fromGeometry(Point.fromLngLat(36.8, -1.3), null, "bottom");
+        List<RectF> queriedBoxes = new ArrayList<>();
+
+        MapboxMap mapboxMap = Mockito.mock(MapboxMap.class, invocation -> {
+            if ("queryRenderedFeatures".equals(invocation.getMethod().getName())) {
+                queriedBoxes.add((RectF) invocation.getRawArguments()[0]);
+                return Arrays.asList(topFeature, bottomFeature);
+            }
+            return null;
+        });
+        Projection projection = Mockito.mock(Projection.class);
+        Mockito.doReturn(new PointF(100, 100)).when(projection).toScreenLocation(Mockito.any(LatLng.class));
+        Mockito.doReturn(projection).when(mapboxMap).getProjection();
+        ReflectionHelpers.setField(kujakuMapView, "mapboxMap", mapboxMap);
+
+        OnFeatureClickListener onFeatureClickListener = Mockito.mock(OnFeatureClickListener.class);
+        kujakuMapView.setOnFeatureClickListener(onFeatureClickListener, "layer-id");
+        kujakuMapView.setFeatureClickTolerance(10);
+        kujakuMapView.setFeatureClickResolution(KujakuMapView.FEATURE_CLICK_RESOLVE_TOP_MOST);
+
+        kujakuMapView.onMapClick(new LatLng(-1.3, 36.8));
+
+        assertEquals(1, queriedBoxes.size());
+        assertEquals(new RectF(90, 90, 110, 110), queriedBoxes.get(0));
+        Mockito.verify(onFeatureClickListener).onFeatureClick(Collections.singletonList(topFeature));
+    }
+
+    @Test
+    public void onMapClickShouldNotRunExtraQueryWhenBothClickListenersAreSet() {
+        List<Object> queries = new ArrayList<>();
+        MapboxMap mapboxMap = Mockito.mock(MapboxMap.class, invocation -> {
+            if ("queryRenderedFeatures".equals(invocation.getMethod().getName())) {
+                queries.add(invocation.getRawArguments()[0]);
+                return new ArrayList<Feature>();
+            }
+            return null;
+        });
+        Projection projection = Mockito.mock(Projection.class);
+        Mockito.doReturn(new PointF(100, 100)).when(projection).toScreenLocation(Mockito.any(LatLng.class));
+        Mockito.doReturn(projection).when(mapboxMap).getProjection();
+        ReflectionHelpers.setField(kujakuMapView, "mapboxMap", mapboxMap);
+
+        OnFeatureClickListener onFeatureClickListener = Mockito.mock(OnFeatureClickListener.class);
+        kujakuMapView.setOnFeatureClickListener(onFeatureClickListener);
+        kujakuMapView.setOnKujakuLayerClickListener(Mockito.mock(OnKujakuLayerClickListener.class));
+
+        kujakuMapView.onMapClick(new LatLng(-1.3, 36.8));
+
+        // Only the feature click query runs since there are no KujakuLayers to hit
+        assertEquals(1, queries.size());
+        Mockito.verifyZeroInteractions(onFeatureClickListener);
+    }
+
+    @Test
+    public void onMapClickShouldExpandPrimarySourceClusterInsteadOfDeliveringIt() {
+        Feature cluster = createCluster();
+        List<String[]> queriedLayerIds = new ArrayList<>();
+        MapboxMap mapboxMap = mockClusteredMap(queriedLayerIds, Collections.singletonList(cluster), Collections.singletonList(cluster));
+        GeoJsonSource primarySource = ReflectionHelpers.getField(kujakuMapView, "primaryGeoJsonSource");
+        Mockito.doReturn(15).when(primarySource).getClusterExpansionZoom(cluster);
+
+        OnFeatureClickListener onFeatureClickListener = Mockito.mock(OnFeatureClickListener.class);
+        kujakuMapView.setOnFeatureClickListener(onFeatureClickListener);
+
+        kujakuMapView.onMapClick(new LatLng(-1.3, 36.8));
+
+        // The cluster is looked up again in the layers rendering the primary source only
+        assertEquals(2, queriedLayerIds.size());
+        assertTrue(Arrays.equals(new String[]{"primary-circles"}, queriedLayerIds.get(1)));
+        Mockito.verify(primarySource).getClusterExpansionZoom(cluster);
+        Mockito.verify(mapboxMap).animateCamera(Mockito.any(CameraUpdate.class));
+        Mockito.verifyZeroInteractions(onFeatureClickListener);
+    }
+
+    @Test
+    public void onMapClickShouldDeliverClustersOfOtherSourcesToListener() {
+        Feature otherCluster = createCluster();
+        MapboxMap mapboxMap = mockClusteredMap(new ArrayList<>(), Collections.singletonList(otherCluster), new ArrayList<>());
+        GeoJsonSource primarySource = ReflectionHelpers.getField(kujakuMapView, "primaryGeoJsonSource");
+
+        OnFeatureClickListener onFeatureClickListener = Mockito.mock(OnFeatureClickListener.class);
+        kujakuMapView.setOnFeatureClickListener(onFeatureClickListener);
+
+        kujakuMapView.onMapClick(new LatLng(-1.3, 36.8));
+
+        Mockito.verify(primarySource, Mockito.never()).getClusterExpansionZoom(Mockito.any(Feature.class));
+        Mockito.verify(mapboxMap, Mockito.never()).animateCamera(Mockito.any(CameraUpdate.class));
+        Mockito.verify(onFeatureClickListener).onFeatureClick(Collections.singletonList(otherCluster));
+    }
+
+    @Test
+    public void onMapClickShouldDeliverPrimarySourceClusterWhenZoomOnClickIsDisabled() {
+        Feature cluster = createCluster();
+        List<String[]> queriedLayerIds = new ArrayList<>();
+        MapboxMap mapboxMap = mockClusteredMap(queriedLayerIds, Collections.singletonList(cluster), Collections.singletonList(cluster));
+        ReflectionHelpers.setField(kujakuMapView, "primaryClusterOptions", new ClusterOptions().setZoomOnClick(false));
+
+        OnFeatureClickListener onFeatureClickListener = Mockito.mock(OnFeatureClickListener.class);
+        kujakuMapView.setOnFeatureClickListener(onFeatureClickListener);
+
+        kujakuMapView.onMapClick(new LatLng(-1.3, 36.8));
+
+        assertEquals(1, queriedLayerIds.size());
+        Mockito.verify(mapboxMap, Mockito.never()).animateCamera(Mockito.any(CameraUpdate.class));
+        Mockito.verify(onFeatureClickListener).onFeatureClick(Collections.singletonList(cluster));
+    }
+
+    private Feature createCluster() {
+        Feature cluster = Feature.fromGeometry(Point.fromLngLat(36.8, -1.3));
+        cluster.addBooleanProperty(ClusterOptions.CLUSTER, true);
+        cluster.addNumberProperty(ClusterOptions.POINT_COUNT, 12);
+        return cluster;
+    }
+
+    /**
+     * Sets up a clustered primary source rendered by the "primary-circles" layer, next to an
+     * "other-circles" layer rendering another source
+     *
+     * @param queriedLayerIds collects the layer ids of each rendered features query
+     * @param clickedFeatures the features returned by the query of the feature click listener
+     * @param primaryClusters the features returned by the query of the primary source layers
+     * @return the map
+     */
+    private MapboxMap mockClusteredMap(List<String[]> queriedLayerIds, List<Feature> clickedFeatures, List<Feature> primaryClusters) {
+        MapboxMap mapboxMap = Mockito.mock(MapboxMap.class, invocation -> {
+            if ("queryRenderedFeatures".equals(invocation.getMethod().getName())) {
+                String[] layerIds = (String[]) invocation.getRawArguments()[2];
+                queriedLayerIds.add(layerIds);
+                return layerIds != null && Arrays.asList(layerIds).contains("primary-circles") ? primaryClusters : clickedFeatures;
+            }
+            return null;
+        });
+        Projection projection = Mockito.mock(Projection.class);
+        Mockito.doReturn(new PointF(100, 100)).when(projection).toScreenLocation(Mockito.any(LatLng.class));
+        Mockito.doReturn(projection).when(mapboxMap).getProjection();
+
+        GeoJsonSource primarySource = Mockito.mock(GeoJsonSource.class);
+        Mockito.doReturn("primary-source").when(primarySource).getId();
+        CircleLayer primaryLayer = Mockito.mock(CircleLayer.class);
+        Mockito.doReturn("primary-circles").when(primaryLayer).getId();
+        Mockito.doReturn("primary-source").when(primaryLayer).getSourceId();
+        CircleLayer otherLayer = Mockito.mock(CircleLayer.class);
+        Mockito.doReturn("other-circles").when(otherLayer).getId();
+        Mockito.doReturn("other-source").when(otherLayer).getSourceId();
+
+        Mockito.doReturn(true).when(style).isFullyLoaded();
+        Mockito.doReturn(primarySource).when(style).getSource("primary-source");
+        Mockito.doReturn(Arrays.<Layer>asList(otherLayer, primaryLayer)).when(style).getLayers();
+        Mockito.doReturn(style).when(mapboxMap).getStyle();
+
+        ReflectionHelpers.setField(kujakuMapView, "mapboxMap", mapboxMap);
+        ReflectionHelpers.setField(kujakuMapView, "primaryGeoJsonSource", primarySource);
+        ReflectionHelpers.setField(kujakuMapView, "primaryClusterOptions", new ClusterOptions());
+        return mapboxMap;
+    }
 }